@@ -0,0 +1,91 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.yaml.grammar.CompactDocument;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.NodePointer;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Compares the {@link CompactDocument} to the syntax tree built by the {@link YamlParser}, for parsing and for
+ * navigation. Run with {@code -prof gc}: the allocations per parse are dominated by the model that is kept, so
+ * {@code gc.alloc.rate.norm} compares the memory taken by both models.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactDocumentBenchmark {
+  private static final NodePointer POINTER = NodePointer.compile("/components/schemas/Resource50/properties/name/type");
+
+  @Param({"MEDIUM", "LARGE"})
+  private Documents document;
+
+  private String text;
+  private YamlParser parser;
+  private JsonNode tree;
+  private JsonNode compact;
+
+  @Setup
+  public void setUp() {
+    text = document.generate();
+    parser = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withEngine(YamlParser.Engine.RECURSIVE_DESCENT).build();
+    tree = parser.parse(text);
+    compact = CompactDocument.parse(text).getRoot();
+  }
+
+  @Benchmark
+  public JsonNode parseTree() {
+    return parser.parse(text);
+  }
+
+  @Benchmark
+  public CompactDocument parseCompact() {
+    return CompactDocument.parse(text);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public JsonNode navigateTree() {
+    return tree.at(POINTER);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public JsonNode navigateCompact() {
+    return compact.at(POINTER);
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.yaml.grammar.ASTValidator;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.ValidationIssue;
+import org.sonar.sslr.yaml.grammar.ValidationRule;
+import org.sonar.sslr.yaml.grammar.YamlGrammarBuilder;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Measures the validation of an array of 5,000 objects against a choice between object variants identified by the
+ * value of their {@code type} discriminant, like the security schemes of OpenAPI.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscriminantBenchmark {
+  private static final int ELEMENTS = 5_000;
+
+  @Param({"2", "8", "32"})
+  private int variants;
+
+  private ASTValidator validator;
+  private JsonNode root;
+  private NodeTypes types;
+
+  @Setup
+  public void setUp() {
+    StringBuilder document = new StringBuilder();
+    for (int i = 0; i < ELEMENTS; ++i) {
+      document.append("- type: type").append(i % variants).append('\n')
+        .append("  name: element").append(i).append('\n')
+        .append("  description: a variant of the scheme\n")
+        .append("  scheme:\n")
+        .append("    flows: [implicit, password]\n")
+        .append("    scopes: {read: Read access, write: Write access}\n");
+    }
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    b.setRootRule(Rules.ROOT);
+    // Not a named rule: the nodes of a failed alternative would be decorated, and fail to match the next alternatives
+    ValidationRule scheme = b.object(
+      b.mandatoryProperty("flows", b.array(b.firstOf("implicit", "password", "clientCredentials"))),
+      b.property("scopes", b.object(b.patternProperty(".*", b.string()))));
+    Object[] alternatives = new Object[variants];
+    for (int i = 0; i < variants; ++i) {
+      alternatives[i] = b.object(
+        b.discriminant("type", "type" + i),
+        b.mandatoryProperty("name", b.string()),
+        b.property("description", b.string()),
+        b.property("scheme", scheme));
+    }
+    b.rule(Rules.ROOT).is(b.array(b.firstOf(alternatives[0], alternatives[1], copyOfRange(alternatives, 2))));
+    validator = new ASTValidator(b.build());
+    root = new YamlParser(StandardCharsets.UTF_8).parse(document.toString());
+    types = new NodeTypes(root);
+    if (!validator.validate(root).isEmpty()) {
+      throw new IllegalStateException("The generated document must match the grammar");
+    }
+  }
+
+  private static Object[] copyOfRange(Object[] alternatives, int from) {
+    Object[] result = new Object[alternatives.length - from];
+    System.arraycopy(alternatives, from, result, 0, result.length);
+    return result;
+  }
+
+  @Setup(Level.Invocation)
+  public void restore() {
+    types.restore();
+  }
+
+  @Benchmark
+  public List<ValidationIssue> validate() {
+    return validator.validate(root);
+  }
+
+  private enum Rules implements GrammarRuleKey {
+    ROOT
+  }
+}
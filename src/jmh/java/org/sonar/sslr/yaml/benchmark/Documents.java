@@ -0,0 +1,112 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+/**
+ * Generates OpenAPI-like YAML documents of various sizes, used as the benchmark corpus.
+ */
+public enum Documents {
+  SMALL(1),
+  MEDIUM(100),
+  LARGE(5_000);
+
+  private final int operations;
+
+  Documents(int operations) {
+    this.operations = operations;
+  }
+
+  /**
+   * Generate the document. Every operation adds roughly 40 lines to the document (the path, its operation and the
+   * referenced schema).
+   *
+   * @return the YAML text of the document
+   */
+  public String generate() {
+    return generate(operations);
+  }
+
+  /**
+   * Generate a document with an arbitrary number of operations.
+   *
+   * @param operations the number of operations of the document
+   * @return the YAML text of the document
+   */
+  public static String generate(int operations) {
+    StringBuilder b = new StringBuilder();
+    b.append("openapi: 3.0.1\n")
+      .append("info:\n")
+      .append("  title: Generated API\n")
+      .append("  description: >\n")
+      .append("    An API generated for benchmarking purposes,\n")
+      .append("    with ").append(operations).append(" operations.\n")
+      .append("  version: 1.0.0\n")
+      .append("servers:\n")
+      .append("  - url: https://api.example.com/v1\n")
+      .append("paths:\n");
+    for (int i = 0; i < operations; ++i) {
+      b.append("  /resources-").append(i).append("/{id}:\n")
+        .append("    get:\n")
+        .append("      operationId: getResource").append(i).append('\n')
+        .append("      description: \"Retrieve the resource number ").append(i).append("\"\n")
+        .append("      tags: [ resources, 'group-").append(i % 10).append("' ]\n")
+        .append("      parameters:\n")
+        .append("        - name: id\n")
+        .append("          in: path\n")
+        .append("          required: true\n")
+        .append("          schema:\n")
+        .append("            type: integer\n")
+        .append("            format: int64\n")
+        .append("      responses:\n")
+        .append("        '200':\n")
+        .append("          description: OK\n")
+        .append("          content:\n")
+        .append("            application/json:\n")
+        .append("              schema:\n")
+        .append("                $ref: '#/components/schemas/Resource").append(i).append("'\n")
+        .append("        default:\n")
+        .append("          description: Unexpected error # generic error\n")
+        .append("      x-rate-limit: ").append(100 + i).append('\n');
+    }
+    b.append("components:\n")
+      .append("  schemas:\n");
+    for (int i = 0; i < operations; ++i) {
+      b.append("    Resource").append(i).append(":\n")
+        .append("      type: object\n")
+        .append("      required: [ id, name ]\n")
+        .append("      properties:\n")
+        .append("        id:\n")
+        .append("          type: integer\n")
+        .append("          minimum: 0\n")
+        .append("        name:\n")
+        .append("          type: string\n")
+        .append("          maxLength: 255\n")
+        .append("        ratio:\n")
+        .append("          type: number\n")
+        .append("          example: 0.75\n")
+        .append("        notes:\n")
+        .append("          type: string\n")
+        .append("          example: |\n")
+        .append("            Some notes about the resource ").append(i).append(",\n")
+        .append("            spanning multiple lines.\n");
+    }
+    return b.toString();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import com.sonar.sslr.api.Token;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlEventHandler;
+import org.sonar.sslr.yaml.grammar.YamlEventParser;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Collects the {@code $ref} values of a document, either from the events of the {@link YamlEventParser} or by walking
+ * the syntax tree built by the {@link YamlParser}. Run with {@code -prof gc} to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventParserBenchmark {
+
+  @Param({"MEDIUM", "LARGE"})
+  private Documents document;
+
+  private String text;
+  private YamlParser parser;
+
+  @Setup
+  public void setUp() {
+    text = document.generate();
+    parser = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withEngine(YamlParser.Engine.RECURSIVE_DESCENT).build();
+  }
+
+  @Benchmark
+  public List<String> events() {
+    List<String> refs = new ArrayList<>();
+    YamlEventParser.parse(text, new YamlEventHandler() {
+      private boolean ref = false;
+
+      @Override
+      public void key(Token token, Context context) {
+        ref = "$ref".equals(token.getValue());
+      }
+
+      @Override
+      public void scalar(Token token, Context context) {
+        if (ref) {
+          refs.add(token.getValue());
+          ref = false;
+        }
+      }
+    });
+    return refs;
+  }
+
+  @Benchmark
+  public List<String> syntaxTree() {
+    List<String> refs = new ArrayList<>();
+    collect(parser.parse(text), refs);
+    return refs;
+  }
+
+  private static void collect(JsonNode node, List<String> refs) {
+    if (node.isObject()) {
+      JsonNode ref = node.get("$ref");
+      if (ref.isScalar()) {
+        refs.add(ref.stringValue());
+      }
+      node.properties().forEach(child -> collect(child, refs));
+    } else if (node.isArray()) {
+      node.elements().forEach(child -> collect(child, refs));
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.yaml.grammar.IncrementalDocument;
+import org.sonar.sslr.yaml.grammar.ParseResult;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Measures the parsing of a document after an edit of a single character, such as a keystroke in an editor: in
+ * place, and with a line break that moves the rest of the document. The documents are not validated, so that the
+ * measures only cover the lexing and the parsing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalBenchmark {
+
+  @Param({"MEDIUM", "LARGE"})
+  private Documents document;
+
+  private YamlParser parser;
+  private IncrementalDocument current;
+  private int offset;
+
+  @Setup
+  public void setUp() {
+    String text = document.generate();
+    parser = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withEngine(YamlParser.Engine.RECURSIVE_DESCENT).build();
+    current = parser.parseIncrementally(text);
+    // A character in the middle of the description of an operation
+    offset = text.indexOf("Retrieve the resource", text.length() / 4) + "Retrieve".length();
+  }
+
+  @Benchmark
+  public IncrementalDocument editCharacter() {
+    String replacement = current.getText().charAt(offset) == ' ' ? "_" : " ";
+    current = current.edit(offset, 1, replacement);
+    return current;
+  }
+
+  @Benchmark
+  public IncrementalDocument editLineBreak() {
+    if (current.getText().charAt(offset) == '\n') {
+      current = current.edit(offset, 1, " ");
+    } else {
+      current = current.edit(offset, 1, "\n");
+    }
+    return current;
+  }
+
+  @Benchmark
+  public ParseResult parseFully() {
+    return parser.parseDocument(current.getText());
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Compares the sources a document can be parsed from: a file read into a string by the caller, a file read by the
+ * lexer, a file mapped in memory, and an array of bytes. Run with {@code -prof gc} to compare the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputBenchmark {
+
+  @Param({"MEDIUM", "LARGE"})
+  private Documents document;
+
+  private Path path;
+  private byte[] bytes;
+  private YamlParser parser;
+
+  @Setup
+  public void setUp() throws IOException {
+    bytes = document.generate().getBytes(StandardCharsets.UTF_8);
+    path = Files.createTempFile("input-benchmark", ".yaml");
+    Files.write(path, bytes);
+    parser = YamlParser.builder().withCharset(StandardCharsets.UTF_8).build();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  @Benchmark
+  public JsonNode string() throws IOException {
+    return parser.parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+  }
+
+  @Benchmark
+  public JsonNode file() {
+    return parser.parse(path.toFile());
+  }
+
+  @Benchmark
+  public JsonNode mappedFile() {
+    return parser.parse(path);
+  }
+
+  @Benchmark
+  public JsonNode bytes() {
+    return parser.parse(bytes, StandardCharsets.UTF_8);
+  }
+}
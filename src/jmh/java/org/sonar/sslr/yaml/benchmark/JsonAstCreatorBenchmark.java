@@ -0,0 +1,93 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.yaml.grammar.JsonAstCreator;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.JsonNodeFactory;
+import org.sonar.sslr.yaml.grammar.YamlGrammar;
+import org.sonar.sslr.yaml.grammar.impl.SyntaxNode;
+import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+
+/**
+ * Measures the conversion of the SSLR parse tree of a document of about 50,000 nodes by the {@link JsonAstCreator},
+ * with the default node factory against a factory instantiating the node classes by reflection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonAstCreatorBenchmark {
+  // Every operation of the generated document yields about 240 nodes
+  private static final int OPERATIONS = 207;
+
+  private static final JsonNodeFactory REFLECTIVE_FACTORY = JsonAstCreatorBenchmark::createByReflection;
+
+  private List<Token> tokens;
+  private ParseNode parseTree;
+
+  @Setup
+  public void setUp() {
+    tokens = Lexer.create(StandardCharsets.UTF_8).lex(Documents.generate(OPERATIONS));
+    parseTree = Machine.parse(tokens, YamlGrammar.compiled());
+  }
+
+  @Benchmark
+  public JsonNode defaultFactory() {
+    return JsonAstCreator.create(parseTree, tokens, JsonNodeFactory.DEFAULT);
+  }
+
+  @Benchmark
+  public JsonNode reflectiveFactory() {
+    return JsonAstCreator.create(parseTree, tokens, REFLECTIVE_FACTORY);
+  }
+
+  private static JsonNode createByReflection(YamlGrammar rule, AstNodeType type, String name, Token token) {
+    Class<? extends JsonNode> nodeClass = rule.getNodeClass();
+    if (nodeClass == null) {
+      return new SyntaxNode(type, name, token);
+    }
+    try {
+      return nodeClass.getConstructor(AstNodeType.class, String.class, Token.class).newInstance(type, name, token);
+    } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+      throw new IllegalArgumentException("Node class " + nodeClass + " misses the expected constructor");
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Parses a document and looks at a few top-level sections only, or walks the whole document, with the syntax tree
+ * built eagerly or lazily. Run with {@code -prof gc} to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazySubtreesBenchmark {
+
+  @Param({"MEDIUM", "LARGE"})
+  private Documents document;
+
+  @Param({"false", "true"})
+  private boolean lazy;
+
+  private String text;
+  private YamlParser parser;
+
+  @Setup
+  public void setUp() {
+    text = document.generate();
+    parser = YamlParser.builder()
+      .withCharset(StandardCharsets.UTF_8)
+      .withEngine(YamlParser.Engine.RECURSIVE_DESCENT)
+      .withLazySubtrees(lazy)
+      .build();
+  }
+
+  @Benchmark
+  public void shallowQuery(Blackhole blackhole) {
+    JsonNode root = parser.parse(text);
+    blackhole.consume(root.at("/info/title"));
+    blackhole.consume(root.at("/servers/0/url"));
+  }
+
+  @Benchmark
+  public int fullWalk() {
+    return count(parser.parse(text));
+  }
+
+  private static int count(JsonNode node) {
+    int count = 1;
+    for (JsonNode child : node.properties()) {
+      count += count(child);
+    }
+    for (JsonNode child : node.elements()) {
+      count += count(child);
+    }
+    return count;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import com.sonar.sslr.api.Token;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+
+/**
+ * Measures the lexing of the MEDIUM document, as generated and with all its lowercase letters replaced by CJK
+ * ideographs, so that most of its characters are outside of the ASCII range. The lexer either builds the list of all
+ * the tokens, or hands them out one at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+  @Param({"ASCII", "UNICODE"})
+  private String corpus;
+
+  private String text;
+
+  @Setup
+  public void setUp() {
+    text = Documents.MEDIUM.generate();
+    if ("UNICODE".equals(corpus)) {
+      char[] chars = text.toCharArray();
+      for (int i = 0; i < chars.length; ++i) {
+        if (chars[i] >= 'a' && chars[i] <= 'z') {
+          chars[i] = (char) ('\u4E00' + chars[i] - 'a');
+        }
+      }
+      text = new String(chars);
+    }
+  }
+
+  @Benchmark
+  public List<Token> lex() {
+    return Lexer.create(StandardCharsets.UTF_8).lex(text);
+  }
+
+  @Benchmark
+  public void iterate(Blackhole blackhole) {
+    Lexer.tokens(text, URI.create("tests://benchmark")).forEachRemaining(blackhole::consume);
+  }
+}
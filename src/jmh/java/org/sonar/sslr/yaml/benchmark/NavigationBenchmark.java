@@ -0,0 +1,77 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.NodePointer;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Measures the evaluation of a constant JSON pointer, given as a string or compiled once. Run with {@code -prof gc} to
+ * check that neither allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NavigationBenchmark {
+  private static final String PATH = "/components/schemas/Resource50/properties/name/type";
+  private static final NodePointer POINTER = NodePointer.compile(PATH);
+
+  private JsonNode root;
+
+  @Setup
+  public void parse() {
+    root = YamlParser.builder()
+      .withCharset(StandardCharsets.UTF_8)
+      .withEngine(YamlParser.Engine.RECURSIVE_DESCENT)
+      .build()
+      .parse(Documents.MEDIUM.generate());
+  }
+
+  @Benchmark
+  public JsonNode stringPointer() {
+    return root.at(PATH);
+  }
+
+  @Benchmark
+  public JsonNode compiledPointer() {
+    return root.at(POINTER);
+  }
+
+  @Benchmark
+  public JsonNode escapedPath() {
+    return root.at("/paths/~1resources-50~1{id}/get/responses/200/description");
+  }
+}
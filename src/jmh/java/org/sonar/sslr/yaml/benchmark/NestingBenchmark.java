@@ -0,0 +1,105 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import com.sonar.sslr.api.Token;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+
+/**
+ * Measures the lexing of deeply nested documents, where the lexer mostly tracks indentation levels and possible simple
+ * keys: block mappings nested {@code depth} levels deep, and flow mappings and sequences nested as deep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestingBenchmark {
+  private static final int REPEAT = 20;
+
+  @Param({"BLOCK", "FLOW"})
+  private String style;
+
+  @Param({"50", "200"})
+  private int depth;
+
+  private String text;
+
+  @Setup
+  public void setUp() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < REPEAT; ++i) {
+      if ("BLOCK".equals(style)) {
+        block(builder, i);
+      } else {
+        flow(builder, i);
+      }
+    }
+    text = builder.toString();
+  }
+
+  private void block(StringBuilder builder, int index) {
+    for (int level = 0; level < depth; ++level) {
+      indent(builder, level).append("k").append(index).append('_').append(level).append(":\n");
+      indent(builder, level + 1).append("a: 1\n");
+      indent(builder, level + 1).append("b: two\n");
+    }
+    indent(builder, depth).append("leaf: value\n");
+  }
+
+  private void flow(StringBuilder builder, int index) {
+    builder.append("k").append(index).append(": ");
+    for (int level = 0; level < depth; ++level) {
+      builder.append(level % 2 == 0 ? "{a: 1, b: " : "[x, ");
+    }
+    builder.append("leaf");
+    for (int level = depth - 1; level >= 0; --level) {
+      builder.append(level % 2 == 0 ? '}' : ']');
+    }
+    builder.append('\n');
+  }
+
+  private static StringBuilder indent(StringBuilder builder, int level) {
+    for (int i = 0; i < level; ++i) {
+      builder.append("  ");
+    }
+    return builder;
+  }
+
+  @Benchmark
+  public List<Token> lex() {
+    return Lexer.create(StandardCharsets.UTF_8).lex(text);
+  }
+}
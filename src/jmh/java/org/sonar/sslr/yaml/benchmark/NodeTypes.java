@@ -0,0 +1,56 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import java.util.ArrayList;
+import java.util.List;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+/**
+ * Keeps the original type of the nodes of a syntax tree. The validation decorates the nodes with the rule they matched,
+ * and a decorated tree no longer matches the grammar: benchmarks restore the types before each validation instead of
+ * building a new tree.
+ */
+final class NodeTypes {
+  private final List<JsonNode> nodes = new ArrayList<>();
+  private final List<AstNodeType> types = new ArrayList<>();
+
+  NodeTypes(JsonNode root) {
+    collect(root);
+  }
+
+  private void collect(AstNode node) {
+    if (node instanceof JsonNode) {
+      nodes.add((JsonNode) node);
+      types.add(node.getType());
+    }
+    for (AstNode child : node.getChildren()) {
+      collect(child);
+    }
+  }
+
+  void restore() {
+    for (int i = 0; i < nodes.size(); ++i) {
+      nodes.get(i).decorate(types.get(i));
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+import org.sonar.sslr.yaml.grammar.impl.MissingNode;
+
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_PROPERTY;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_PROPERTY;
+
+/**
+ * Measures the lookup of the properties of an object by key, through the key index of the object node, against a
+ * linear scan of the property nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectNodeBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  private int keys;
+
+  private JsonNode object;
+  private String[] names;
+  private int next = 0;
+
+  @Setup
+  public void setUp() {
+    StringBuilder text = new StringBuilder();
+    names = new String[keys];
+    for (int i = 0; i < keys; ++i) {
+      names[i] = "key-" + i;
+      text.append(names[i]).append(": value-").append(i).append('\n');
+    }
+    object = YamlParser.builder()
+      .withCharset(StandardCharsets.UTF_8)
+      .withEngine(YamlParser.Engine.RECURSIVE_DESCENT)
+      .build()
+      .parse(text.toString());
+  }
+
+  @Benchmark
+  public JsonNode get() {
+    return object.get(nextName());
+  }
+
+  @Benchmark
+  public JsonNode propertyMap() {
+    return object.propertyMap().get(nextName());
+  }
+
+  @Benchmark
+  public JsonNode linearScan() {
+    String name = nextName();
+    for (JsonNode property : object.getJsonChildren(FLOW_PROPERTY, BLOCK_PROPERTY)) {
+      if (name.equals(property.key().getTokenValue())) {
+        return property.value();
+      }
+    }
+    return MissingNode.MISSING;
+  }
+
+  private String nextName() {
+    String name = names[next];
+    next = (next + 1) % names.length;
+    return name;
+  }
+}
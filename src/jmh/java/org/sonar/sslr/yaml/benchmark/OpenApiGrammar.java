@@ -0,0 +1,125 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.yaml.grammar.YamlGrammarBuilder;
+
+/**
+ * A subset of the OpenAPI 3 grammar, covering the {@link Documents} of the benchmark corpus. It exercises the usual
+ * constructs of real-life grammars: named, mandatory and pattern properties, discriminants, alternatives and arrays.
+ */
+public enum OpenApiGrammar implements GrammarRuleKey {
+  ROOT,
+  INFO,
+  SERVER,
+  PATHS,
+  PATH_ITEM,
+  OPERATION,
+  PARAMETER,
+  RESPONSES,
+  RESPONSE,
+  MEDIA_TYPE,
+  COMPONENTS,
+  SCHEMA,
+  REF;
+
+  public static YamlGrammarBuilder create() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    b.setRootRule(ROOT);
+
+    b.rule(ROOT).is(b.object(
+      b.mandatoryProperty("openapi", b.firstOf("3.0.0", "3.0.1", "3.0.2")),
+      b.mandatoryProperty("info", INFO),
+      b.property("servers", b.array(SERVER)),
+      b.mandatoryProperty("paths", PATHS),
+      b.property("components", COMPONENTS),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(INFO).is(b.object(
+      b.mandatoryProperty("title", b.string()),
+      b.property("description", b.string()),
+      b.mandatoryProperty("version", b.string()),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(SERVER).is(b.object(
+      b.mandatoryProperty("url", b.string()),
+      b.property("description", b.string()),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(PATHS).is(b.object(
+      b.patternProperty("^x-.*", b.anything()),
+      b.patternProperty("^/.*", PATH_ITEM)));
+    b.rule(PATH_ITEM).is(b.object(
+      b.property("summary", b.string()),
+      b.property("get", OPERATION),
+      b.property("put", OPERATION),
+      b.property("post", OPERATION),
+      b.property("delete", OPERATION),
+      b.property("parameters", b.array(b.firstOf(REF, PARAMETER))),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(OPERATION).is(b.object(
+      b.property("operationId", b.string()),
+      b.property("summary", b.string()),
+      b.property("description", b.string()),
+      b.property("tags", b.array(b.string())),
+      b.property("parameters", b.array(b.firstOf(REF, PARAMETER))),
+      b.mandatoryProperty("responses", RESPONSES),
+      b.property("deprecated", b.bool()),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(PARAMETER).is(b.object(
+      b.mandatoryProperty("name", b.string()),
+      b.discriminant("in", b.firstOf("path", "query", "header", "cookie")),
+      b.property("description", b.string()),
+      b.property("required", b.bool()),
+      b.property("schema", b.firstOf(REF, SCHEMA)),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(RESPONSES).is(b.object(
+      b.property("default", b.firstOf(REF, RESPONSE)),
+      b.patternProperty("^x-.*", b.anything()),
+      b.patternProperty("^[1-5][0-9X][0-9X]$", b.firstOf(REF, RESPONSE))));
+    b.rule(RESPONSE).is(b.object(
+      b.mandatoryProperty("description", b.string()),
+      b.property("headers", b.anyObject()),
+      b.property("content", b.object(b.patternProperty(".*", MEDIA_TYPE))),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(MEDIA_TYPE).is(b.object(
+      b.property("schema", b.firstOf(REF, SCHEMA)),
+      b.property("example", b.anything()),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(COMPONENTS).is(b.object(
+      b.property("schemas", b.object(b.patternProperty(".*", b.firstOf(REF, SCHEMA)))),
+      b.property("responses", b.object(b.patternProperty(".*", b.firstOf(REF, RESPONSE)))),
+      b.property("parameters", b.object(b.patternProperty(".*", b.firstOf(REF, PARAMETER)))),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(SCHEMA).is(b.object(
+      b.property("type", b.firstOf("object", "array", "string", "integer", "number", "boolean")),
+      b.property("format", b.string()),
+      b.property("description", b.string()),
+      b.property("required", b.array(b.string())),
+      b.property("properties", b.object(b.patternProperty(".*", b.firstOf(REF, SCHEMA)))),
+      b.property("items", b.firstOf(REF, SCHEMA)),
+      b.property("minimum", b.firstOf(b.integer(), b.floating())),
+      b.property("maximum", b.firstOf(b.integer(), b.floating())),
+      b.property("maxLength", b.integer()),
+      b.property("example", b.anything()),
+      b.patternProperty("^x-.*", b.anything())));
+    b.rule(REF).is(b.object(b.discriminant("$ref", b.string())));
+
+    return b;
+  }
+}
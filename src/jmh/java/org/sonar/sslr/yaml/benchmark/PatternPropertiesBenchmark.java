@@ -0,0 +1,91 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.yaml.grammar.ASTValidator;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.ValidationIssue;
+import org.sonar.sslr.yaml.grammar.YamlGrammarBuilder;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Measures the validation of an object of 10,000 properties matched by a pattern property, for the common shapes of
+ * patterns: a prefix ({@code "^x-.*"}), a match-all ({@code ".*"}) and an arbitrary regular expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternPropertiesBenchmark {
+  private static final int PROPERTIES = 10_000;
+
+  @Param({"^x-.*", ".*", "^x-[a-z]+[0-9]+$"})
+  private String pattern;
+
+  private ASTValidator validator;
+  private JsonNode root;
+  private NodeTypes types;
+
+  @Setup
+  public void setUp() {
+    StringBuilder document = new StringBuilder();
+    for (int i = 0; i < PROPERTIES; ++i) {
+      document.append("x-extension").append(i).append(": value").append(i).append('\n');
+    }
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    b.setRootRule(Rules.ROOT);
+    b.rule(Rules.ROOT).is(b.object(b.patternProperty(pattern, b.string())));
+    validator = new ASTValidator(b.build());
+    root = new YamlParser(StandardCharsets.UTF_8).parse(document.toString());
+    types = new NodeTypes(root);
+  }
+
+  @Setup(Level.Invocation)
+  public void restore() {
+    types.restore();
+  }
+
+  @Benchmark
+  public List<ValidationIssue> validate() {
+    return validator.validate(root);
+  }
+
+  private enum Rules implements GrammarRuleKey {
+    ROOT
+  }
+}
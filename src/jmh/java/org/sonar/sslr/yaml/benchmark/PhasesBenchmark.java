@@ -0,0 +1,121 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import com.sonar.sslr.api.Token;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.yaml.grammar.ASTValidator;
+import org.sonar.sslr.yaml.grammar.JsonAstCreator;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.ValidationIssue;
+import org.sonar.sslr.yaml.grammar.YamlGrammar;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+
+/**
+ * Measures each phase of the parsing of a document on its own: the lexing, the SSLR parsing, the conversion of the
+ * parse tree into a syntax tree and the validation against the {@link OpenApiGrammar}, along with the whole pipeline.
+ * Run it with {@code -prof gc} to get the allocation rate of each phase.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhasesBenchmark {
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  private Documents document;
+
+  private String text;
+  private List<Token> tokens;
+  private ParseNode parseTree;
+  private ASTValidator validator;
+  private YamlParser parser;
+
+  @Setup
+  public void setUp() {
+    text = document.generate();
+    tokens = Lexer.create(StandardCharsets.UTF_8).lex(text);
+    parseTree = Machine.parse(tokens, YamlGrammar.compiled());
+    validator = new ASTValidator(OpenApiGrammar.create().build());
+    parser = YamlParser.builder().withGrammar(OpenApiGrammar.create()).withStrictValidation(true).build();
+    // The corpus must be valid, otherwise the validation would stop early or record issues
+    parser.parseDocument(text);
+  }
+
+  @Benchmark
+  public List<Token> lex() {
+    return Lexer.create(StandardCharsets.UTF_8).lex(text);
+  }
+
+  @Benchmark
+  public ParseNode parse() {
+    return Machine.parse(tokens, YamlGrammar.compiled());
+  }
+
+  @Benchmark
+  public JsonNode createAst() {
+    return JsonAstCreator.create(parseTree, tokens);
+  }
+
+  @Benchmark
+  public List<ValidationIssue> validate(SyntaxTree tree) {
+    return validator.validate(tree.root);
+  }
+
+  @Benchmark
+  public JsonNode all() {
+    return parser.parse(text);
+  }
+
+  @State(Scope.Thread)
+  public static class SyntaxTree {
+    private JsonNode root;
+    private NodeTypes types;
+
+    @Setup
+    public void setUp(PhasesBenchmark benchmark) {
+      root = (JsonNode) JsonAstCreator.create(benchmark.parseTree, benchmark.tokens).getFirstChild();
+      types = new NodeTypes(root);
+    }
+
+    @Setup(Level.Invocation)
+    public void restore() {
+      types.restore();
+    }
+  }
+}
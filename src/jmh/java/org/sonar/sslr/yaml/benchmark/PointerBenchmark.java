@@ -0,0 +1,155 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import com.sonar.sslr.api.AstNode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.sslr.yaml.grammar.CompactDocument;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.Utils;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_ARRAY_ELEMENT;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_ARRAY_ELEMENT;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.ROOT;
+
+/**
+ * Measures the computation of the JSON pointers of all the nodes of a large array, against the former algorithm that
+ * walked up to the root and scanned the array for the position of every element. Each measurement parses a fresh
+ * document, since the pointers are memoized. The former algorithm is quadratic and already takes about a minute per
+ * operation on 10,000 elements: run it with {@code -p elements=10000} only. {@code compactPointers} computes the
+ * pointers of all the nodes of the same document parsed as a {@link CompactDocument}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PointerBenchmark {
+
+  @Param({"10000", "200000"})
+  private int elements;
+
+  private String text;
+  private List<JsonNode> nodes;
+  private List<JsonNode> compactNodes;
+
+  @Setup
+  public void generate() {
+    StringBuilder b = new StringBuilder("items:\n");
+    for (int i = 0; i < elements; ++i) {
+      b.append("  - { id: ").append(i).append(", tags: [a, b] }\n");
+    }
+    text = b.toString();
+  }
+
+  @Setup(Level.Iteration)
+  public void parse() {
+    JsonNode root = YamlParser.builder()
+      .withCharset(StandardCharsets.UTF_8)
+      .withEngine(YamlParser.Engine.RECURSIVE_DESCENT)
+      .build()
+      .parse(text);
+    nodes = new ArrayList<>();
+    collect(root, nodes);
+    compactNodes = new ArrayList<>();
+    collectValues(CompactDocument.parse(text).getRoot(), compactNodes);
+  }
+
+  @Benchmark
+  public void pointers(Blackhole blackhole) {
+    for (JsonNode node : nodes) {
+      blackhole.consume(node.getPointer());
+    }
+  }
+
+  @Benchmark
+  public void compactPointers(Blackhole blackhole) {
+    for (JsonNode node : compactNodes) {
+      blackhole.consume(node.getPointer());
+    }
+  }
+
+  @Benchmark
+  public void formerPointers(Blackhole blackhole) {
+    for (JsonNode node : nodes) {
+      blackhole.consume(formerPointer(node));
+    }
+  }
+
+  private static void collect(JsonNode node, List<JsonNode> nodes) {
+    nodes.add(node);
+    for (JsonNode child : node.getJsonChildren()) {
+      collect(child, nodes);
+    }
+  }
+
+  private static void collectValues(JsonNode node, List<JsonNode> nodes) {
+    nodes.add(node);
+    for (JsonNode child : node.isArray() ? node.elements() : node.properties()) {
+      collectValues(child, nodes);
+    }
+  }
+
+  private static String formerPointer(JsonNode node) {
+    StringBuilder path = new StringBuilder();
+    JsonNode root = node;
+    while (root.getParent() != null && root.getParent().getType() != ROOT) {
+      if (!root.isSyntax()) {
+        JsonNode key = root.key();
+        if (!key.isMissing()) {
+          path.insert(0, "/" + Utils.escapeJsonPointer(key.stringValue()));
+        } else if (root.getParent().getType() == BLOCK_ARRAY_ELEMENT || root.getParent().getType() == FLOW_ARRAY_ELEMENT) {
+          path.insert(0, "/" + formerIndex(root.getParent().getParent(), root.getParent()));
+        }
+      }
+      root = (JsonNode) root.getParent();
+    }
+    return path.toString();
+  }
+
+  private static int formerIndex(AstNode parent, AstNode child) {
+    int i = 0;
+    for (AstNode c : parent.getChildren(FLOW_ARRAY_ELEMENT, BLOCK_ARRAY_ELEMENT)) {
+      if (c == child) {
+        return i;
+      }
+      i++;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.yaml.grammar.CompactDocument;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Measures the heap retained by a parsed document, as the syntax tree built by the {@link YamlParser} and as a
+ * {@link CompactDocument}: the heap used after a full garbage collection is read before parsing and while the parsed
+ * document is still held. The difference, for the last document parsed in each iteration, is reported by the
+ * {@code retainedBytes} secondary result. The time of each operation is dominated by the garbage collections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RetainedHeapBenchmark {
+  @Param({"MEDIUM", "LARGE"})
+  private Documents document;
+
+  private String text;
+  private YamlParser parser;
+
+  @Setup
+  public void setUp() {
+    text = document.generate();
+    parser = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withEngine(YamlParser.Engine.RECURSIVE_DESCENT).build();
+  }
+
+  @Benchmark
+  public void retainTree(Retained retained) {
+    retained.document = null;
+    long before = usedAfterGc();
+    retained.document = parser.parse(text);
+    retained.retainedBytes = usedAfterGc() - before;
+  }
+
+  @Benchmark
+  public void retainCompact(Retained retained) {
+    retained.document = null;
+    long before = usedAfterGc();
+    retained.document = CompactDocument.parse(text);
+    retained.retainedBytes = usedAfterGc() - before;
+  }
+
+  private static long usedAfterGc() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    // Collect until the used heap stops shrinking, the first collections may leave some garbage behind
+    for (int i = 0; i < 10; ++i) {
+      System.gc();
+      long current = runtime.totalMemory() - runtime.freeMemory();
+      if (current >= used) {
+        break;
+      }
+      used = current;
+    }
+    return used;
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Retained {
+    public long retainedBytes;
+    // Holds the parsed document while the heap is measured, and releases it before the next parsing
+    private Object document;
+  }
+}
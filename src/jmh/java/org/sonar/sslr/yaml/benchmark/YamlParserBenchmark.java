@@ -0,0 +1,82 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.benchmark;
+
+import com.sonar.sslr.api.Token;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
+import org.sonar.sslr.yaml.grammar.JsonAstCreator;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlGrammar;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+
+/**
+ * Measures the per-document latency of {@link YamlParser#parse(String)}, with the shared compiled grammar, against
+ * the same pipeline compiling the grammar for every document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YamlParserBenchmark {
+
+  @Param({"SMALL", "LARGE"})
+  private Documents document;
+
+  private String text;
+  private YamlParser parser;
+
+  @Setup
+  public void setUp() {
+    text = document.generate();
+    parser = YamlParser.builder().withCharset(StandardCharsets.UTF_8).build();
+  }
+
+  @Benchmark
+  public JsonNode sharedGrammar() {
+    return parser.parse(text);
+  }
+
+  @Benchmark
+  public JsonNode grammarCompiledPerDocument() {
+    List<Token> tokens = Lexer.create(StandardCharsets.UTF_8).lex(text);
+    CompiledGrammar grammar = MutableGrammarCompiler.compile((CompilableGrammarRule) YamlGrammar.create().build().getRootRule());
+    return JsonAstCreator.create(Machine.parse(tokens, grammar), tokens);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.Token;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.yaml.benchmark.Documents;
+import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+
+/**
+ * Measures the construction of the syntax tree from the tokens of a document, with the SSLR parsing machine followed by
+ * the {@link JsonAstCreator}, against the {@link RecursiveDescentParser}. Lives in the grammar package to access the
+ * parser directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserEngineBenchmark {
+
+  @Param({"SMALL", "LARGE"})
+  private Documents document;
+
+  private List<Token> tokens;
+
+  @Setup
+  public void setUp() {
+    tokens = Lexer.create(StandardCharsets.UTF_8).lex(document.generate());
+  }
+
+  @Benchmark
+  public JsonNode sslr() {
+    return JsonAstCreator.create(Machine.parse(tokens, YamlGrammar.compiled()), tokens);
+  }
+
+  @Benchmark
+  public JsonNode recursiveDescent() {
+    return RecursiveDescentParser.parse(tokens, JsonNodeFactory.DEFAULT);
+  }
+}
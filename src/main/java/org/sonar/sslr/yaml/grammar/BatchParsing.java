@@ -0,0 +1,104 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Iterates over the results of the parsing of a batch of files, either in their order of submission or in their order
+ * of completion. Files are submitted to the executor only as results are consumed, so that no more than
+ * {@code maxConcurrency} files are being parsed or waiting to be consumed at any given time.
+ */
+class BatchParsing implements Iterator<BatchResult> {
+  private final Iterator<Path> paths;
+  private final Function<Path, ParseResult> parsing;
+  private final Executor executor;
+  private final int maxConcurrency;
+  private final boolean ordered;
+  private final BlockingQueue<CompletableFuture<BatchResult>> results = new LinkedBlockingQueue<>();
+  private int pending = 0;
+
+  BatchParsing(Iterator<Path> paths, Function<Path, ParseResult> parsing, Executor executor, int maxConcurrency, boolean ordered) {
+    this.paths = paths;
+    this.parsing = parsing;
+    this.executor = executor;
+    this.maxConcurrency = maxConcurrency;
+    this.ordered = ordered;
+  }
+
+  @Override
+  public boolean hasNext() {
+    fill();
+    return pending > 0;
+  }
+
+  @Override
+  public BatchResult next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    CompletableFuture<BatchResult> future;
+    try {
+      future = results.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the parsing of a file", e);
+    }
+    --pending;
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      // Only errors can get there, parsing exceptions are reported in the batch result
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private void fill() {
+    while (pending < maxConcurrency && paths.hasNext()) {
+      Path path = paths.next();
+      CompletableFuture<BatchResult> future = CompletableFuture.supplyAsync(() -> parse(path), executor);
+      ++pending;
+      if (ordered) {
+        results.add(future);
+      } else {
+        future.whenComplete((r, t) -> results.add(future));
+      }
+    }
+  }
+
+  private BatchResult parse(Path path) {
+    try {
+      return new BatchResult(path, parsing.apply(path), null);
+    } catch (RuntimeException e) {
+      return new BatchResult(path, null, e);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import java.nio.file.Path;
+import javax.annotation.Nullable;
+
+/**
+ * The outcome of the parsing of one of the files of a batch submitted to {@link YamlParser#parseAll}: either the
+ * {@link ParseResult} of the file, or the exception that prevented the file from being parsed.
+ */
+public class BatchResult {
+  private final Path path;
+  private final ParseResult result;
+  private final RuntimeException failure;
+
+  BatchResult(Path path, @Nullable ParseResult result, @Nullable RuntimeException failure) {
+    this.path = path;
+    this.result = result;
+    this.failure = failure;
+  }
+
+  /**
+   * @return the path of the parsed file
+   */
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * @return {@code true} if the file could be parsed, in which case {@link #getResult()} is not {@code null}
+   */
+  public boolean isSuccess() {
+    return failure == null;
+  }
+
+  /**
+   * Get the result of the parsing of the file.
+   * @return the result, or {@code null} if the parsing failed
+   */
+  @Nullable
+  public ParseResult getResult() {
+    return result;
+  }
+
+  /**
+   * Get the exception raised while parsing the file, typically a {@link com.sonar.sslr.api.RecognitionException} for
+   * malformed documents, or a {@link ValidationException} in strict mode.
+   * @return the exception, or {@code null} if the parsing succeeded
+   */
+  @Nullable
+  public RuntimeException getFailure() {
+    return failure;
+  }
+}
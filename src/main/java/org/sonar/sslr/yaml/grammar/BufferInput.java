@@ -0,0 +1,137 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.impl.LexerException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Feeds the bytes of a buffer to the SSLR lexer. The lexer only reads documents from a {@link String} or through a
+ * {@link URL}, so the buffer is exposed as a URL whose stream reads straight from the buffer: the lexer decodes the
+ * bytes into its own character buffer, without any intermediate copy of the document.
+ */
+final class BufferInput extends URLStreamHandler {
+  /** The URI of the tokens lexed from a buffer that does not come from a file. */
+  static final URI BUFFER_URI = URI.create("yaml:buffer");
+
+  private final ByteBuffer buffer;
+
+  private BufferInput(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Map a file in memory.
+   * @param path the file to map
+   * @return the content of the file
+   * @throws LexerException if the file cannot be read
+   */
+  static MappedByteBuffer map(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new LexerException("File is too large to be parsed: " + path);
+      }
+      // The mapping remains valid once the channel is closed
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    } catch (IOException e) {
+      throw new LexerException("Unable to read file: " + path, e);
+    }
+  }
+
+  /**
+   * Expose the remaining bytes of a buffer as a URL. The position of the buffer is left untouched, so that the URL can
+   * be read several times.
+   * @param uri the URI of the document, which becomes the URI of its tokens
+   * @param buffer the bytes of the document
+   * @return a URL reading the bytes of the buffer
+   */
+  static URL url(URI uri, ByteBuffer buffer) {
+    try {
+      return new URL(null, uri.toString(), new BufferInput(buffer));
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException("Invalid document URI: " + uri, e);
+    }
+  }
+
+  @Override
+  protected URLConnection openConnection(URL url) {
+    return new URLConnection(url) {
+      @Override
+      public void connect() {
+        // Nothing to connect to
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        return new BufferInputStream(buffer.duplicate());
+      }
+    };
+  }
+
+  private static final class BufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private BufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long n) {
+      int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A mapping or a sequence, whose children can be built on first access when the document is parsed with lazy subtrees.
+ * The other nodes have no children to defer, and do not pay for this state.
+ */
+public abstract class CollectionNode extends JsonNode {
+  private static final Runnable BUILDING = () -> { };
+  /**
+   * Builds the children of this node on first access, see {@link #defer(Runnable)}. Reset once they are built.
+   */
+  private volatile Runnable deferredChildren;
+
+  protected CollectionNode(AstNodeType type, String name, @Nullable Token token) {
+    super(type, name, token);
+  }
+
+  /**
+   * Build the children of this node only when they are first accessed, through any of the methods of {@link AstNode}
+   * or {@link JsonNode} that return children or descendants.
+   * @param children adds the children to this node
+   */
+  final void defer(Runnable children) {
+    this.deferredChildren = children;
+  }
+
+  private void buildDeferredChildren() {
+    if (deferredChildren == null) {
+      return;
+    }
+    synchronized (this) {
+      Runnable children = deferredChildren;
+      // The children are being built by this very thread if BUILDING
+      if (children != null && children != BUILDING) {
+        deferredChildren = BUILDING;
+        try {
+          children.run();
+          deferredChildren = null;
+        } catch (RuntimeException e) {
+          deferredChildren = children;
+          throw e;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void addChild(AstNode child) {
+    // keep the document order when adding to a node whose children are deferred
+    buildDeferredChildren();
+    super.addChild(child);
+  }
+
+  @Override
+  public boolean hasChildren() {
+    buildDeferredChildren();
+    return super.hasChildren();
+  }
+
+  @Override
+  public List<AstNode> getChildren() {
+    buildDeferredChildren();
+    return super.getChildren();
+  }
+
+  @Override
+  public List<AstNode> getChildren(AstNodeType... nodeTypes) {
+    buildDeferredChildren();
+    return super.getChildren(nodeTypes);
+  }
+
+  @Override
+  public int getNumberOfChildren() {
+    buildDeferredChildren();
+    return super.getNumberOfChildren();
+  }
+
+  /**
+   * @deprecated like {@link AstNode#getChild(int)}, use {@link #getChildren()}
+   */
+  @Deprecated
+  @Override
+  public AstNode getChild(int index) {
+    buildDeferredChildren();
+    return super.getChild(index);
+  }
+
+  @Override
+  public AstNode getFirstChild() {
+    buildDeferredChildren();
+    return super.getFirstChild();
+  }
+
+  @Override
+  public AstNode getFirstChild(AstNodeType... nodeTypes) {
+    buildDeferredChildren();
+    return super.getFirstChild(nodeTypes);
+  }
+
+  @Override
+  public AstNode getLastChild() {
+    buildDeferredChildren();
+    return super.getLastChild();
+  }
+
+  @Override
+  public AstNode getLastChild(AstNodeType... nodeTypes) {
+    buildDeferredChildren();
+    return super.getLastChild(nodeTypes);
+  }
+
+  @Override
+  public boolean hasDirectChildren(AstNodeType... nodeTypes) {
+    buildDeferredChildren();
+    return super.hasDirectChildren(nodeTypes);
+  }
+
+  @Override
+  public AstNode getFirstDescendant(AstNodeType... nodeTypes) {
+    buildDeferredChildren();
+    return super.getFirstDescendant(nodeTypes);
+  }
+
+  @Override
+  public List<AstNode> getDescendants(AstNodeType... nodeTypes) {
+    buildDeferredChildren();
+    return super.getDescendants(nodeTypes);
+  }
+
+  @Override
+  public boolean hasDescendant(AstNodeType... nodeTypes) {
+    buildDeferredChildren();
+    return super.hasDescendant(nodeTypes);
+  }
+
+  @Override
+  public List<Token> getTokens() {
+    buildDeferredChildren();
+    return super.getTokens();
+  }
+}
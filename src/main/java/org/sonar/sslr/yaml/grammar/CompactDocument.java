@@ -0,0 +1,721 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.LexerException;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.sonar.sslr.yaml.grammar.impl.ScalarNode;
+import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+import org.sonar.sslr.yaml.snakeyaml.parser.Tokens;
+
+import static org.sonar.sslr.yaml.grammar.impl.MissingNode.MISSING;
+
+/**
+ * A read-only YAML document stored in a few primitive arrays rather than as a tree of {@link JsonNode}. Each node of the
+ * document is a row of parallel arrays holding its kind, its parent, its position among its siblings, the offset of its
+ * children in a table where the children of each collection are contiguous, its token and the token of its key; the
+ * tokens keep only their type, value and position, and equal values are shared. Syntax tokens such as {@code KEY},
+ * {@code VALUE} or {@code BLOCK_END} are not stored at all. This retains less memory than the syntax tree built by the
+ * {@link YamlParser}, for documents that are only navigated.
+ * <p>
+ * The nodes are exposed as lightweight {@link JsonNode} views, created on demand and not retained, that support the
+ * navigation API of the syntax tree: {@link JsonNode#at(String)}, {@link JsonNode#get(String)},
+ * {@link JsonNode#elements()}, {@link JsonNode#propertyMap()}, {@link JsonNode#key()}, {@link JsonNode#value()},
+ * {@link JsonNode#getPointer()}, the scalar values and the resolution of local references. Two views of the same node
+ * are equal. The views have no AST children, so they cannot be validated against a grammar: use the {@link YamlParser}
+ * for that.
+ * <p>
+ * The document is built in a single pass over the tokens produced by the lexer, with the {@link YamlTokenWalker} of the
+ * {@link YamlEventParser}, and matches the syntax tree with two exceptions: the single-pair mappings of flow sequences
+ * ({@code [a: 1]}) are objects rather than property nodes, and the keys that are collections are only kept as the first
+ * token of the collection, which is what the syntax tree uses to index them.
+ */
+public final class CompactDocument {
+  private static final URI TEXT_URI = URI.create("yaml:text");
+  private static final YamlGrammar[] KINDS = YamlGrammar.values();
+  private static final Tokens[] TOKEN_TYPES = Tokens.values();
+  private static final int NONE = -1;
+  /**
+   * The number of properties above which a mapping is indexed by key, on first lookup.
+   */
+  private static final int INDEXED_PROPERTIES = 16;
+
+  private final URI uri;
+  private final int size;
+  // The nodes, in document order
+  private final byte[] kinds;
+  private final int[] parents;
+  // The position of each node among its siblings, which is the index of the elements of sequences
+  private final int[] positions;
+  // The children of node n are children[childOffsets[n]] to children[childOffsets[n + 1] - 1], in document order
+  private final int[] childOffsets;
+  private final int[] children;
+  private final int[] nodeTokens;
+  private final int[] keyTokens;
+  // The tokens of the nodes and of their keys
+  private final byte[] tokenTypes;
+  private final String[] values;
+  private final int[] lines;
+  private final int[] columns;
+  // The children of the mappings of more than INDEXED_PROPERTIES properties, by key
+  private final Map<Integer, Map<String, Integer>> propertyIndexes = new ConcurrentHashMap<>();
+
+  private CompactDocument(Builder builder) {
+    this.uri = builder.uri;
+    this.size = builder.size;
+    this.kinds = Arrays.copyOf(builder.kinds, size);
+    this.parents = Arrays.copyOf(builder.parents, size);
+    this.positions = Arrays.copyOf(builder.positions, size);
+    this.childOffsets = new int[size + 1];
+    for (int node = 0; node < size; ++node) {
+      if (parents[node] != NONE) {
+        ++childOffsets[parents[node] + 1];
+      }
+    }
+    for (int node = 0; node < size; ++node) {
+      childOffsets[node + 1] += childOffsets[node];
+    }
+    // The nodes are recorded in document order, so are the children of each node
+    this.children = new int[childOffsets[size]];
+    for (int node = 0; node < size; ++node) {
+      int parent = parents[node];
+      if (parent != NONE) {
+        children[childOffsets[parent] + positions[node]] = node;
+      }
+    }
+    this.nodeTokens = Arrays.copyOf(builder.nodeTokens, size);
+    this.keyTokens = Arrays.copyOf(builder.keyTokens, size);
+    int tokenCount = builder.tokenCount;
+    this.tokenTypes = Arrays.copyOf(builder.tokenTypes, tokenCount);
+    this.values = Arrays.copyOf(builder.values, tokenCount);
+    this.lines = Arrays.copyOf(builder.lines, tokenCount);
+    this.columns = Arrays.copyOf(builder.columns, tokenCount);
+  }
+
+  /**
+   * Parse a text.
+   * @param text the document to parse
+   * @return the document
+   * @throws RecognitionException if the document is not valid YAML
+   */
+  public static CompactDocument parse(String text) {
+    return parse(() -> Lexer.tokens(text, TEXT_URI), TEXT_URI);
+  }
+
+  /**
+   * Parse a document from a reader, which is left open. The whole text is read into memory first.
+   * @param reader the reader of the document
+   * @param uri the URI of the document, given to the tokens
+   * @return the document
+   * @throws RecognitionException if the document is not valid YAML
+   */
+  public static CompactDocument parse(Reader reader, URI uri) {
+    return parse(() -> Lexer.tokens(reader, uri), uri);
+  }
+
+  /**
+   * Parse a file.
+   * @param file the file to parse
+   * @param charset the encoding of the file
+   * @return the document
+   * @throws RecognitionException if the document is not valid YAML, or cannot be read
+   */
+  public static CompactDocument parse(Path file, Charset charset) {
+    try (Reader reader = Files.newBufferedReader(file, charset)) {
+      return parse(reader, file.toUri());
+    } catch (IOException e) {
+      throw new RecognitionException(new LexerException("Unable to read file: " + file, e));
+    }
+  }
+
+  private static CompactDocument parse(TokenSource source, URI uri) {
+    try {
+      Builder builder = new Builder(uri);
+      new YamlTokenWalker(source.open(), builder).walk();
+      return new CompactDocument(builder);
+    } catch (LexerException e) {
+      throw new RecognitionException(e);
+    }
+  }
+
+  /**
+   * Get the root node of the document.
+   * <p>
+   * Navigating from a view does not build any other node than the views on the way. The elements of a sequence are
+   * found in constant time. The properties of a mapping are found by scanning its keys, except for the mappings of more
+   * than {@value #INDEXED_PROPERTIES} properties: these are indexed by key on first lookup, and the index is then kept
+   * with the document.
+   * @return the root node, or the Missing node if the document is empty
+   */
+  public JsonNode getRoot() {
+    return size == 0 ? MISSING : view(0);
+  }
+
+  /**
+   * Get the number of nodes of the document, that is its scalars and collections.
+   * @return the number of nodes
+   */
+  public int size() {
+    return size;
+  }
+
+  private JsonNode view(int node) {
+    if (kinds[node] == YamlGrammar.MISSING.ordinal()) {
+      return MISSING;
+    }
+    return new View(this, node, false);
+  }
+
+  private Token token(int token) {
+    return Token.builder()
+      .setType(TOKEN_TYPES[tokenTypes[token]])
+      .setValueAndOriginalValue(values[token])
+      .setLine(lines[token])
+      .setColumn(columns[token])
+      .setURI(uri)
+      .build();
+  }
+
+  private String keyName(int node) {
+    int key = keyTokens[node];
+    return key == NONE ? MISSING.getTokenValue() : values[key];
+  }
+
+  private boolean isMapping(int node) {
+    return kinds[node] == YamlGrammar.BLOCK_MAPPING.ordinal() || kinds[node] == YamlGrammar.FLOW_MAPPING.ordinal();
+  }
+
+  private boolean isSequence(int node) {
+    return kinds[node] == YamlGrammar.BLOCK_SEQUENCE.ordinal() || kinds[node] == YamlGrammar.FLOW_SEQUENCE.ordinal()
+      || kinds[node] == YamlGrammar.INDENTLESS_SEQUENCE.ordinal();
+  }
+
+  private JsonNode property(int node, String name) {
+    int from = childOffsets[node];
+    int to = childOffsets[node + 1];
+    if (to - from > INDEXED_PROPERTIES) {
+      Integer child = propertyIndexes.computeIfAbsent(node, this::indexProperties).get(name);
+      return child == null ? MISSING : view(child);
+    }
+    for (int i = from; i < to; ++i) {
+      if (name.equals(keyName(children[i]))) {
+        return view(children[i]);
+      }
+    }
+    return MISSING;
+  }
+
+  /**
+   * Index the properties of a mapping by key. If a key appears several times, the first property wins.
+   */
+  private Map<String, Integer> indexProperties(int node) {
+    Map<String, Integer> index = new HashMap<>();
+    for (int i = childOffsets[node]; i < childOffsets[node + 1]; ++i) {
+      index.putIfAbsent(keyName(children[i]), children[i]);
+    }
+    return index;
+  }
+
+  private JsonNode element(int node, int index) {
+    if (index < 0 || index >= childOffsets[node + 1] - childOffsets[node]) {
+      return MISSING;
+    }
+    return view(children[childOffsets[node] + index]);
+  }
+
+  private List<JsonNode> children(int node) {
+    List<JsonNode> result = new ArrayList<>(childOffsets[node + 1] - childOffsets[node]);
+    for (int i = childOffsets[node]; i < childOffsets[node + 1]; ++i) {
+      result.add(view(children[i]));
+    }
+    return result;
+  }
+
+  /**
+   * A node of a compact document. The key of a property is a view of its own, of the same node. The token of a view is
+   * only built when it is asked for, so that navigating through a view costs nothing more than the view.
+   */
+  private static final class View extends JsonNode {
+    private final CompactDocument document;
+    private final int node;
+    private final boolean isKey;
+    private Token token;
+
+    View(CompactDocument document, int node, boolean isKey) {
+      super(type(document, node, isKey), type(document, node, isKey).toString(), null);
+      this.document = document;
+      this.node = node;
+      this.isKey = isKey;
+    }
+
+    private static YamlGrammar type(CompactDocument document, int node, boolean isKey) {
+      return isKey ? YamlGrammar.SCALAR : KINDS[document.kinds[node]];
+    }
+
+    @Override
+    public Token getToken() {
+      if (token == null) {
+        token = document.token(isKey ? document.keyTokens[node] : document.nodeTokens[node]);
+      }
+      return token;
+    }
+
+    @Override
+    public boolean hasToken() {
+      return true;
+    }
+
+    @Override
+    public String getTokenValue() {
+      return getToken().getValue();
+    }
+
+    @Override
+    public String getTokenOriginalValue() {
+      return getToken().getOriginalValue();
+    }
+
+    @Override
+    public int getTokenLine() {
+      return getToken().getLine();
+    }
+
+    @Override
+    public List<Token> getTokens() {
+      return Collections.singletonList(getToken());
+    }
+
+    @Override
+    public String toString() {
+      Token t = getToken();
+      return getName() + " tokenValue='" + t.getValue() + "' tokenLine=" + t.getLine() + " tokenColumn=" + t.getColumn();
+    }
+
+    @Override
+    public AstNode getParent() {
+      // The parent of a key is the mapping, as for its value
+      int parent = document.parents[node];
+      return parent == NONE ? null : document.view(parent);
+    }
+
+    @Override
+    public JsonNode get(String fieldName) {
+      return isObject() ? document.property(node, fieldName) : MISSING;
+    }
+
+    @Override
+    protected JsonNode internalAt(String property, int index) {
+      if (isObject()) {
+        return document.property(node, property);
+      } else if (isArray()) {
+        return document.element(node, index);
+      }
+      return MISSING;
+    }
+
+    @Override
+    int elementIndex() {
+      return document.positions[node];
+    }
+
+    @Override
+    public boolean isObject() {
+      return !isKey && document.isMapping(node);
+    }
+
+    @Override
+    public boolean isArray() {
+      return !isKey && document.isSequence(node);
+    }
+
+    @Override
+    public boolean isScalar() {
+      return isKey || document.kinds[node] == YamlGrammar.SCALAR.ordinal();
+    }
+
+    @Override
+    public boolean isNull() {
+      return isScalar() && getToken().getType() == Tokens.NULL;
+    }
+
+    @Override
+    public JsonNode key() {
+      if (isKey) {
+        return this;
+      }
+      return document.keyTokens[node] == NONE ? MISSING : new View(document, node, true);
+    }
+
+    @Override
+    public JsonNode value() {
+      if (isKey) {
+        return document.view(node);
+      }
+      return document.keyTokens[node] == NONE ? MISSING : this;
+    }
+
+    @Override
+    public List<String> propertyNames() {
+      if (!isObject()) {
+        return Collections.emptyList();
+      }
+      List<String> result = new ArrayList<>(document.childOffsets[node + 1] - document.childOffsets[node]);
+      for (int i = document.childOffsets[node]; i < document.childOffsets[node + 1]; ++i) {
+        result.add(document.keyName(document.children[i]));
+      }
+      return result;
+    }
+
+    @Override
+    public Collection<JsonNode> properties() {
+      return isObject() ? document.children(node) : Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned map is unmodifiable, and iterates over the properties in document order. If a key appears several
+     * times, the first property wins, as in {@link #get(String)}.
+     */
+    @Override
+    public Map<String, JsonNode> propertyMap() {
+      if (!isObject()) {
+        return Collections.emptyMap();
+      }
+      Map<String, JsonNode> result = new LinkedHashMap<>();
+      for (int i = document.childOffsets[node]; i < document.childOffsets[node + 1]; ++i) {
+        result.putIfAbsent(document.keyName(document.children[i]), document.view(document.children[i]));
+      }
+      return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public <T> Map<String, T> propertyMap(Function<JsonNode, T> mapper) {
+      Map<String, T> result = new HashMap<>();
+      for (Map.Entry<String, JsonNode> entry : propertyMap().entrySet()) {
+        result.put(entry.getKey(), mapper.apply(entry.getValue()));
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned list is unmodifiable.
+     */
+    @Override
+    public List<JsonNode> elements() {
+      return isArray() ? Collections.unmodifiableList(document.children(node)) : Collections.emptyList();
+    }
+
+    @Override
+    public boolean isRef() {
+      JsonNode ref = get("$ref");
+      return ref.isScalar() && ref.getToken().getType() == Tokens.STRING;
+    }
+
+    @Override
+    public JsonNode resolve() {
+      if (!isRef()) {
+        return this;
+      }
+      String p = get("$ref").stringValue();
+      if (!p.startsWith("#")) {
+        throw new IllegalArgumentException("Cannot resolve references to other documents: \"" + p + "\"");
+      }
+      return document.getRoot().at(p.substring(1));
+    }
+
+    @Override
+    public String stringValue() {
+      return isScalar() ? getTokenValue() : super.stringValue();
+    }
+
+    @Override
+    public boolean booleanValue() {
+      return isScalar() && getToken().getType() == Tokens.TRUE;
+    }
+
+    @Override
+    public double floatValue() {
+      return isScalar() ? scalar().floatValue() : super.floatValue();
+    }
+
+    @Override
+    public int intValue() {
+      return isScalar() ? scalar().intValue() : super.intValue();
+    }
+
+    @Override
+    public long longValue() {
+      return isScalar() ? scalar().longValue() : super.longValue();
+    }
+
+    @Override
+    public double doubleValue() {
+      return isScalar() ? scalar().doubleValue() : super.doubleValue();
+    }
+
+    @Override
+    public BigInteger bigIntegerValue() {
+      return isScalar() ? scalar().bigIntegerValue() : super.bigIntegerValue();
+    }
+
+    @Override
+    public BigDecimal decimalValue() {
+      return isScalar() ? scalar().decimalValue() : super.decimalValue();
+    }
+
+    /**
+     * The values of the scalars are decoded like those of the syntax tree, but not memoized since the views are not
+     * retained.
+     */
+    private ScalarNode scalar() {
+      return new ScalarNode(YamlGrammar.SCALAR, YamlGrammar.SCALAR.toString(), getToken());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof View)) {
+        return false;
+      }
+      View other = (View) o;
+      return document == other.document && node == other.node && isKey == other.isKey;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * System.identityHashCode(document) + node) + (isKey ? 1 : 0);
+    }
+  }
+
+  @FunctionalInterface
+  private interface TokenSource {
+    Iterator<Token> open();
+  }
+
+  /**
+   * Records the nodes of a document in growing arrays, as they are reported by a {@link YamlTokenWalker}.
+   */
+  private static final class Builder implements YamlTokenWalker.Listener {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final URI uri;
+    private final Map<String, String> sharedValues = new HashMap<>();
+    // Nodes reported while this is positive are not recorded, such as the keys that are collections
+    private int skipping = 0;
+    // The collections that are open, as a stack of size depth
+    private int[] openNodes = new int[16];
+    private int depth = 0;
+    // The token of the key of the next node
+    private int pendingKey = NONE;
+
+    private int size = 0;
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    // The number of children recorded so far, which is the position of the next child
+    private int[] childCounts = new int[INITIAL_CAPACITY];
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private int[] nodeTokens = new int[INITIAL_CAPACITY];
+    private int[] keyTokens = new int[INITIAL_CAPACITY];
+
+    private int tokenCount = 0;
+    private byte[] tokenTypes = new byte[INITIAL_CAPACITY];
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int[] columns = new int[INITIAL_CAPACITY];
+
+    Builder(URI uri) {
+      this.uri = uri;
+    }
+
+    @Override
+    public void startMapping(Token token) {
+      YamlGrammar kind = token.getType() == Tokens.FLOW_MAPPING_START ? YamlGrammar.FLOW_MAPPING : YamlGrammar.BLOCK_MAPPING;
+      open(node(kind, token));
+    }
+
+    @Override
+    public void endMapping() {
+      --depth;
+    }
+
+    @Override
+    public void startSequence(Token token) {
+      YamlGrammar kind;
+      if (token.getType() == Tokens.FLOW_SEQUENCE_START) {
+        kind = YamlGrammar.FLOW_SEQUENCE;
+      } else if (token.getType() == Tokens.BLOCK_SEQUENCE_START) {
+        kind = YamlGrammar.BLOCK_SEQUENCE;
+      } else {
+        kind = YamlGrammar.INDENTLESS_SEQUENCE;
+      }
+      open(node(kind, token));
+    }
+
+    @Override
+    public void endSequence() {
+      --depth;
+    }
+
+    @Override
+    public void startPair(Token token) {
+      open(node(YamlGrammar.FLOW_MAPPING, token));
+    }
+
+    @Override
+    public void endPair() {
+      --depth;
+    }
+
+    @Override
+    public void scalar(Token token) {
+      node(YamlGrammar.SCALAR, token);
+    }
+
+    @Override
+    public void startCollectionKey(Token token) {
+      ++skipping;
+    }
+
+    @Override
+    public void endCollectionKey() {
+      --skipping;
+    }
+
+    /**
+     * The key of the value is its scalar key or the first token of its collection key; a property without key has
+     * the VALUE token as key, as in the syntax tree.
+     */
+    @Override
+    public void startValue(@Nullable Token key, boolean scalarKey, @Nullable Token indicator) {
+      if (key != null) {
+        pendingKey = token(key);
+      } else if (indicator != null) {
+        pendingKey = token(indicator);
+      }
+    }
+
+    /**
+     * A property without value is recorded as a {@link YamlGrammar#MISSING} node, so that its key is kept.
+     */
+    @Override
+    public void endValue(@Nullable Token key) {
+      if (pendingKey != NONE) {
+        node(YamlGrammar.MISSING, null);
+      }
+    }
+
+    /**
+     * A key without value is not a property of the mapping.
+     */
+    @Override
+    public void startLoneKey() {
+      ++skipping;
+    }
+
+    @Override
+    public void endLoneKey() {
+      --skipping;
+    }
+
+    private void open(int node) {
+      if (depth == openNodes.length) {
+        openNodes = Arrays.copyOf(openNodes, depth * 2);
+      }
+      openNodes[depth++] = node;
+    }
+
+    /**
+     * Record a node, child of the innermost open collection, with the pending key.
+     * @param token the first token of the node, or {@code null} to share the token of its key
+     * @return the index of the node, or {@link #NONE} if nodes are not recorded
+     */
+    private int node(YamlGrammar kind, @Nullable Token token) {
+      if (skipping > 0) {
+        return NONE;
+      }
+      if (size == kinds.length) {
+        int capacity = size * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        nodeTokens = Arrays.copyOf(nodeTokens, capacity);
+        keyTokens = Arrays.copyOf(keyTokens, capacity);
+      }
+      int parent = depth == 0 ? NONE : openNodes[depth - 1];
+      int key = pendingKey;
+      pendingKey = NONE;
+      int node = size++;
+      kinds[node] = (byte) kind.ordinal();
+      parents[node] = parent;
+      childCounts[node] = 0;
+      positions[node] = parent == NONE ? 0 : childCounts[parent]++;
+      nodeTokens[node] = token == null ? key : token(token);
+      keyTokens[node] = key;
+      return node;
+    }
+
+    private int token(Token token) {
+      if (skipping > 0) {
+        return NONE;
+      }
+      if (tokenCount == values.length) {
+        int capacity = tokenCount * 2;
+        tokenTypes = Arrays.copyOf(tokenTypes, capacity);
+        values = Arrays.copyOf(values, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        columns = Arrays.copyOf(columns, capacity);
+      }
+      int index = tokenCount++;
+      tokenTypes[index] = (byte) ((Tokens) token.getType()).ordinal();
+      values[index] = sharedValues.computeIfAbsent(token.getValue(), Function.identity());
+      lines[index] = token.getLine();
+      columns[index] = token.getColumn();
+      return index;
+    }
+  }
+}
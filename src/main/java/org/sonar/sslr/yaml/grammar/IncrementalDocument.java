@@ -0,0 +1,611 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.sslr.yaml.grammar.impl.ObjectNode;
+import org.sonar.sslr.yaml.grammar.impl.PropertyNode;
+import org.sonar.sslr.yaml.grammar.impl.RuleDefinition;
+import org.sonar.sslr.yaml.grammar.impl.SyntaxNode;
+import org.sonar.sslr.yaml.snakeyaml.parser.Tokens;
+
+/**
+ * A document parsed by {@link YamlParser#parseIncrementally(String)}, that can be edited without lexing and parsing
+ * its whole text again.
+ * <p>
+ * An edit is confined to the properties of the innermost block mapping that contain it, provided that these properties
+ * start on lines of their own: only the text of these properties is lexed and parsed again. The other properties, and
+ * the rest of the document, keep their tokens and their nodes. When the edit changes the number of lines of the
+ * document, the tokens that follow it are moved to their new line and the tree is parsed again from the tokens, without
+ * lexing the rest of the document. When the edit cannot be confined, for instance because it breaks the structure of
+ * the enclosing mappings, the whole text is parsed again. In all cases the result is the same as the one of a parsing
+ * of the edited text from scratch. The whole tree is validated again after every edit.
+ * <p>
+ * In strict mode, the tree of the edited document is always parsed again from the tokens, without reusing the nodes of
+ * this document: the validation issues are only known once the new tree is built, and the document must be left as it
+ * was when the edit is rejected.
+ * <p>
+ * A document shares its nodes with the document returned by {@link #edit(int, int, String)}, so it must not be used
+ * anymore once edited. Documents are not thread-safe.
+ */
+public final class IncrementalDocument {
+  private final YamlParser parser;
+  private final String text;
+  private final List<Token> tokens;
+  /** The offset in the text of the start of every line, line {@code n} starting at {@code lineStarts[n - 1]}. */
+  private final int[] lineStarts;
+  private final ParseResult result;
+  /**
+   * The syntax types of the nodes that the validation decorated with the rules of the grammar, so that the nodes can be
+   * validated again once reused in the tree of an edited document.
+   */
+  private final Map<JsonNode, AstNodeType> syntaxTypes;
+
+  private IncrementalDocument(YamlParser parser, String text, List<Token> tokens, int[] lineStarts, ParseResult result,
+    Map<JsonNode, AstNodeType> syntaxTypes) {
+    this.parser = parser;
+    this.text = text;
+    this.tokens = tokens;
+    this.lineStarts = lineStarts;
+    this.result = result;
+    this.syntaxTypes = syntaxTypes;
+  }
+
+  static IncrementalDocument parse(YamlParser parser, String text) {
+    long start = System.nanoTime();
+    List<Token> tokens = parser.lex(text);
+    long lexed = System.nanoTime();
+    JsonNode rootNode = parser.parseAst(tokens);
+    long parsed = System.nanoTime();
+    Map<JsonNode, AstNodeType> syntaxTypes = syntaxTypes(rootNode);
+    ParseResult result = parser.checkStrictness(parser.validate(rootNode, tokens.size(), lexed - start, parsed - lexed, null));
+    return new IncrementalDocument(parser, text, tokens, lineStarts(text), result, decorated(syntaxTypes));
+  }
+
+  /**
+   * Get the text of the document.
+   * @return the text of the document
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * Get the root node of the document, along with the validation issues of this document.
+   * @return the outcome of the last parsing of the document
+   */
+  public ParseResult getResult() {
+    return result;
+  }
+
+  /**
+   * Get the root node of the document.
+   * @return the root node of the document
+   */
+  public JsonNode getRoot() {
+    return result.getRoot();
+  }
+
+  /**
+   * Replace a part of the text of the document, and parse and validate the edited document.
+   * @param offset the offset in the text of the start of the replaced part
+   * @param removedLength the length of the replaced part, {@code 0} for a pure insertion
+   * @param insertedText the text that replaces the part, empty for a pure removal
+   * @return the edited document
+   * @throws IndexOutOfBoundsException if the replaced part is not within the text of the document
+   * @throws RecognitionException if the edited document is not a valid YAML document
+   * @throws ValidationException in strict mode, if the validation raised issues; the document is left unchanged
+   */
+  public IncrementalDocument edit(int offset, int removedLength, String insertedText) {
+    if (offset < 0 || removedLength < 0 || offset + removedLength > text.length()) {
+      throw new IndexOutOfBoundsException("Cannot replace [" + offset + ", " + (offset + removedLength) + ") in a document of length " + text.length());
+    }
+    String newText = text.substring(0, offset) + insertedText + text.substring(offset + removedLength);
+    Edit edit = new Edit(newText, offset, offset + removedLength, offset + insertedText.length());
+    IncrementalDocument document = reparse(edit);
+    return document != null ? document : parse(parser, newText);
+  }
+
+  @CheckForNull
+  private IncrementalDocument reparse(Edit edit) {
+    List<Region> regions = new ArrayList<>();
+    JsonNode mapping = result.getRoot();
+    boolean top = true;
+    while (isBlockMapping(mapping)) {
+      Region region = locate(mapping, top, edit);
+      if (region == null) {
+        break;
+      }
+      regions.add(region);
+      mapping = region.last == region.first + 1 ? region.properties.get(region.first).value() : null;
+      top = false;
+    }
+    // Try the smallest region first
+    for (int i = regions.size() - 1; i >= 0; --i) {
+      IncrementalDocument document = reparse(regions.get(i), edit);
+      if (document != null) {
+        return document;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Find the properties of a block mapping that contain an edit.
+   * @param top whether the mapping is the root of the document: only the last properties of the root can be parsed
+   *            again, since the properties that follow a region are needed to check that the region ends where it did
+   */
+  @CheckForNull
+  private Region locate(JsonNode mapping, boolean top, Edit edit) {
+    List<JsonNode> properties = new ArrayList<>();
+    for (AstNode child : mapping.getChildren()) {
+      if (child instanceof PropertyNode) {
+        properties.add((JsonNode) child);
+      }
+    }
+    int first = -1;
+    while (first + 1 < properties.size() && lineStart(properties.get(first + 1)) <= edit.start) {
+      ++first;
+    }
+    if (first < 0 || !startsLine(properties.get(first))) {
+      return null;
+    }
+    int last = first + 1;
+    while (last < properties.size() && lineStart(properties.get(last)) < edit.end) {
+      ++last;
+    }
+    if (last == properties.size() && !top) {
+      return null;
+    }
+    return new Region(mapping, properties, first, last, top);
+  }
+
+  @CheckForNull
+  private IncrementalDocument reparse(Region region, Edit edit) {
+    long start = System.nanoTime();
+    Token firstKey = region.properties.get(region.first).getToken();
+    int column = firstKey.getColumn();
+    int lineShift = firstKey.getLine() - 1;
+    int regionStart = lineStarts[lineShift];
+    if (regionStart > 0 && regionStart < edit.text.length() && edit.text.charAt(regionStart - 1) == '\r' && edit.text.charAt(regionStart) == '\n') {
+      // The line of the first property is joined to the previous one
+      return null;
+    }
+    int last = region.last;
+    while (true) {
+      if (last == region.properties.size() && !region.top) {
+        return null;
+      }
+      boolean toEnd = last == region.properties.size();
+      Token nextKey = null;
+      int nextLine = 0;
+      int regionEnd;
+      if (toEnd) {
+        regionEnd = edit.text.length();
+      } else {
+        nextKey = region.properties.get(last).getToken();
+        nextLine = nextKey.getLine() + edit.lineDelta;
+        if (nextLine > edit.lineStarts.length || edit.lineStarts[nextLine - 1] != lineStarts[nextKey.getLine() - 1] + edit.charDelta) {
+          // The line of the next property is joined to the region
+          ++last;
+          continue;
+        }
+        regionEnd = nextLine < edit.lineStarts.length ? edit.lineStarts[nextLine] : edit.text.length();
+      }
+
+      // The region is lexed as a document of its own, that only differs by the start of its first mapping
+      List<Token> lexed;
+      try {
+        lexed = parser.lex(edit.text.substring(regionStart, regionEnd));
+      } catch (RecognitionException e) {
+        return null;
+      }
+      if (lexed.size() < 3 || lexed.get(0).getType() != Tokens.BLOCK_MAPPING_START || lexed.get(0).hasTrivia()
+        || lexed.get(1).getType() != Tokens.KEY || lexed.get(1).getLine() != 1 || lexed.get(1).getColumn() != column) {
+        return null;
+      }
+      int lexedEnd;
+      if (toEnd) {
+        lexedEnd = lexed.size() - 2;
+        if (lexed.get(lexedEnd).getType() != Tokens.BLOCK_END) {
+          return null;
+        }
+      } else {
+        lexedEnd = indexOfKey(lexed, nextLine - lineShift, column);
+        if (lexedEnd < 0) {
+          return null;
+        }
+        if (!sameTrivia(lexed.get(lexedEnd), lineShift, nextKey, edit.lineDelta)) {
+          // The comments before the next property have been edited
+          ++last;
+          continue;
+        }
+      }
+
+      int from = region.properties.get(region.first).getFromIndex();
+      int to = toEnd ? (tokens.size() - 2) : region.properties.get(last).getFromIndex();
+      List<Token> newTokens = new ArrayList<>(tokens.size() - (to - from) + lexedEnd);
+      newTokens.addAll(tokens.subList(0, from));
+      // The comments before the first property were not part of the region
+      newTokens.add(Token.builder(move(lexed.get(1), lineShift)).setTrivia(firstKey.getTrivia()).build());
+      for (int i = 2; i < lexedEnd; ++i) {
+        newTokens.add(move(lexed.get(i), lineShift));
+      }
+      int regionSize = newTokens.size() - from;
+      if (toEnd) {
+        newTokens.add(move(lexed.get(lexed.size() - 2), lineShift));
+        newTokens.add(move(lexed.get(lexed.size() - 1), lineShift));
+      } else if (edit.lineDelta == 0) {
+        newTokens.addAll(tokens.subList(to, tokens.size()));
+      } else {
+        for (Token token : tokens.subList(to, tokens.size())) {
+          newTokens.add(move(token, edit.lineDelta));
+        }
+      }
+      long lexedNanos = System.nanoTime();
+
+      JsonNode rootNode;
+      if ((toEnd || edit.lineDelta == 0) && !parser.isStrict()) {
+        rootNode = splice(region, last, newTokens, from, to, regionSize);
+        if (rootNode == null) {
+          return null;
+        }
+      } else {
+        rootNode = parser.parseAst(newTokens);
+      }
+      long parsed = System.nanoTime();
+      Map<JsonNode, AstNodeType> newSyntaxTypes = syntaxTypes(rootNode);
+      ParseResult newResult = parser.validate(rootNode, newTokens.size(), lexedNanos - start, parsed - lexedNanos, null);
+      return new IncrementalDocument(parser, edit.text, newTokens, edit.lineStarts, parser.checkStrictness(newResult),
+        decorated(newSyntaxTypes));
+    }
+  }
+
+  /**
+   * Build the tree of the edited document, made of the nodes of the edited properties and of the unchanged nodes of
+   * the previous tree. The nodes that enclose the edited properties are copied.
+   * @return the root node of the edited document, or {@code null} if the edited properties do not match the grammar
+   */
+  @CheckForNull
+  private JsonNode splice(Region region, int last, List<Token> newTokens, int from, int to, int regionSize) {
+    boolean toEnd = last == region.properties.size();
+    JsonNode mapping = region.mapping;
+    AstNode blockEnd = mapping.getChildren().get(region.properties.size() + 1);
+
+    // Parse the edited properties as the content of a mapping of their own
+    List<Token> content = new ArrayList<>(regionSize + 3);
+    content.add(mapping.getToken());
+    content.addAll(newTokens.subList(from, from + regionSize));
+    if (toEnd) {
+      content.addAll(newTokens.subList(from + regionSize, newTokens.size()));
+    } else {
+      content.add(blockEnd.getToken());
+      content.add(tokens.get(tokens.size() - 1));
+    }
+    JsonNode contentMapping;
+    try {
+      contentMapping = parser.parseAst(content);
+    } catch (RecognitionException e) {
+      return null;
+    }
+    List<AstNode> newProperties = new ArrayList<>(contentMapping.getChildren().subList(1, contentMapping.getNumberOfChildren() - 1));
+    for (AstNode property : newProperties) {
+      relocate(property, 0, from - 1);
+    }
+
+    // From now on the previous tree is modified
+    AstNode documentRoot = result.getRoot().getParent();
+    relocate(documentRoot, to, newTokens.size() - tokens.size());
+
+    JsonNode copy = copy(mapping);
+    copy.addChild(mapping.getFirstChild());
+    for (int i = 0; i < region.first; ++i) {
+      copy.addChild(region.properties.get(i));
+    }
+    for (AstNode property : newProperties) {
+      copy.addChild(property);
+    }
+    if (toEnd) {
+      copy.addChild(terminal(newTokens, newTokens.size() - 2));
+    } else {
+      for (int i = last; i < region.properties.size(); ++i) {
+        copy.addChild(region.properties.get(i));
+      }
+      copy.addChild(blockEnd);
+    }
+    close(copy, mapping);
+
+    AstNode node = mapping;
+    while (node.getParent() != documentRoot) {
+      AstNode parent = node.getParent();
+      JsonNode parentCopy = copy((JsonNode) parent);
+      for (AstNode child : parent.getChildren()) {
+        if (child == node) {
+          parentCopy.addChild(copy);
+        } else if (child.getType() != GenericTokenType.EOF) {
+          parentCopy.addChild(child);
+        }
+      }
+      close(parentCopy, parent);
+      node = parent;
+      copy = parentCopy;
+    }
+
+    JsonNode documentRootCopy = copy((JsonNode) documentRoot);
+    documentRootCopy.addChild(copy);
+    documentRootCopy.addChild(toEnd ? terminal(newTokens, newTokens.size() - 1) : documentRoot.getLastChild());
+    close(documentRootCopy, documentRoot);
+    return copy;
+  }
+
+  private JsonNode copy(JsonNode node) {
+    AstNodeType type = node.getType();
+    YamlGrammar rule = (YamlGrammar) (type instanceof RuleDefinition ? ((RuleDefinition) type).getRuleKey() : type);
+    return parser.getNodeFactory().create(rule, type, node.getName(), node.getToken());
+  }
+
+  private static void close(JsonNode copy, AstNode node) {
+    copy.setFromIndex(node.getFromIndex());
+    copy.setToIndex(node.getToIndex());
+  }
+
+  private static JsonNode terminal(List<Token> tokens, int index) {
+    Token token = tokens.get(index);
+    JsonNode node = new SyntaxNode(token.getType(), token.getType().getName(), token);
+    node.setFromIndex(index);
+    node.setToIndex(index + 1);
+    return node;
+  }
+
+  /**
+   * Prepare the nodes of a tree for a new validation and for the edited document, and move the nodes that start or end after a given token.
+   * @param node the root of the tree
+   * @param threshold the index of the first token to move
+   * @param delta the number of positions to move the tokens by
+   */
+  private void relocate(AstNode node, int threshold, int delta) {
+    Deque<AstNode> stack = new ArrayDeque<>();
+    stack.push(node);
+    while (!stack.isEmpty()) {
+      AstNode current = stack.pop();
+      if (current instanceof JsonNode) {
+        AstNodeType syntaxType = syntaxTypes.get(current);
+        if (syntaxType != null) {
+          ((JsonNode) current).decorate(syntaxType);
+        }
+        ((JsonNode) current).invalidate();
+      }
+      if (delta != 0) {
+        if (current.getFromIndex() >= threshold) {
+          current.setFromIndex(current.getFromIndex() + delta);
+        }
+        if (current.getToIndex() >= threshold) {
+          current.setToIndex(current.getToIndex() + delta);
+        }
+      }
+      for (AstNode child : current.getChildren()) {
+        stack.push(child);
+      }
+    }
+  }
+
+  /**
+   * Get the types of the nodes of a tree that the validation may decorate, that is all but the tokens.
+   */
+  private static Map<JsonNode, AstNodeType> syntaxTypes(AstNode root) {
+    Map<JsonNode, AstNodeType> types = new IdentityHashMap<>();
+    Deque<AstNode> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      AstNode current = stack.pop();
+      if (current instanceof JsonNode && !(current.getType() instanceof TokenType)) {
+        types.put((JsonNode) current, current.getType());
+      }
+      for (AstNode child : current.getChildren()) {
+        stack.push(child);
+      }
+    }
+    return types;
+  }
+
+  /**
+   * Keep the syntax types of the nodes whose type was changed by the validation.
+   */
+  private static Map<JsonNode, AstNodeType> decorated(Map<JsonNode, AstNodeType> syntaxTypes) {
+    syntaxTypes.entrySet().removeIf(e -> e.getKey().getType() == e.getValue());
+    return syntaxTypes;
+  }
+
+  private int lineStart(JsonNode property) {
+    return lineStarts[property.getToken().getLine() - 1];
+  }
+
+  /**
+   * Check that only spaces precede the key of a property on its line, so that the property can be lexed on its own.
+   */
+  private boolean startsLine(JsonNode property) {
+    int start = lineStart(property);
+    int keyStart = start + property.getToken().getColumn();
+    for (int i = start; i < keyStart; ++i) {
+      if (text.charAt(i) != ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isBlockMapping(@CheckForNull JsonNode node) {
+    return node instanceof ObjectNode && node.getToken() != null && node.getToken().getType() == Tokens.BLOCK_MAPPING_START;
+  }
+
+  private static int indexOfKey(List<Token> tokens, int line, int column) {
+    for (int i = 2; i < tokens.size(); ++i) {
+      Token token = tokens.get(i);
+      if (token.getLine() > line) {
+        break;
+      }
+      if (token.getType() == Tokens.KEY && token.getLine() == line && token.getColumn() == column) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean sameTrivia(Token token, int lines, Token previous, int previousLines) {
+    List<Trivia> trivia = token.getTrivia();
+    List<Trivia> previousTrivia = previous.getTrivia();
+    if (trivia.size() != previousTrivia.size()) {
+      return false;
+    }
+    for (int i = 0; i < trivia.size(); ++i) {
+      Token comment = trivia.get(i).getToken();
+      Token previousComment = previousTrivia.get(i).getToken();
+      if (comment.getColumn() != previousComment.getColumn() || comment.getLine() + lines != previousComment.getLine() + previousLines
+        || !comment.getValue().equals(previousComment.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Move a token, along with its comments, by a number of lines.
+   */
+  private static Token move(Token token, int lines) {
+    if (lines == 0) {
+      return token;
+    }
+    Token.Builder builder = Token.builder(token).setLine(token.getLine() + lines);
+    if (token.hasTrivia()) {
+      List<Trivia> trivia = new ArrayList<>(token.getTrivia().size());
+      for (Trivia comment : token.getTrivia()) {
+        trivia.add(Trivia.createComment(move(comment.getToken(), lines)));
+      }
+      builder.setTrivia(trivia);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Compute the starts of the lines of a text, with the same definition of a line break as the lexer.
+   */
+  private static int[] lineStarts(String text) {
+    int[] starts = new int[16];
+    int count = 0;
+    for (int i = 0; i <= text.length(); ++i) {
+      if (isLineStart(text, i)) {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count++] = i;
+      }
+    }
+    return Arrays.copyOf(starts, count);
+  }
+
+  private static boolean isLineStart(String text, int offset) {
+    if (offset == 0) {
+      return true;
+    }
+    char c = text.charAt(offset - 1);
+    return c == '\n' || (c == '\r' && (offset == text.length() || text.charAt(offset) != '\n'));
+  }
+
+  private static int indexOf(int[] starts, int offset) {
+    int i = Arrays.binarySearch(starts, offset);
+    return i >= 0 ? i : (-i - 1);
+  }
+
+  /**
+   * A replacement of a part of the text, and the resulting lines.
+   */
+  private final class Edit {
+    private final String text;
+    private final int start;
+    private final int end;
+    private final int charDelta;
+    private final int[] lineStarts;
+    private final int lineDelta;
+
+    /**
+     * @param text the edited text
+     * @param start the start of the replaced part
+     * @param end the end of the replaced part in the previous text
+     * @param newEnd the end of the inserted text in the edited text
+     */
+    Edit(String text, int start, int end, int newEnd) {
+      this.text = text;
+      this.start = start;
+      this.end = end;
+      this.charDelta = newEnd - end;
+      // The lines that start before the edit are unchanged, and the ones that start after are moved
+      int[] previous = IncrementalDocument.this.lineStarts;
+      int kept = indexOf(previous, start);
+      int moved = indexOf(previous, end + 1);
+      int[] inserted = new int[newEnd - start + 1];
+      int count = 0;
+      for (int i = start; i <= newEnd; ++i) {
+        if (isLineStart(text, i)) {
+          inserted[count++] = i;
+        }
+      }
+      this.lineStarts = new int[kept + count + previous.length - moved];
+      System.arraycopy(previous, 0, lineStarts, 0, kept);
+      System.arraycopy(inserted, 0, lineStarts, kept, count);
+      for (int i = moved; i < previous.length; ++i) {
+        lineStarts[kept + count + i - moved] = previous[i] + charDelta;
+      }
+      this.lineDelta = lineStarts.length - previous.length;
+    }
+  }
+
+  /**
+   * The properties of a block mapping that contain an edit, from {@code first} included to {@code last} excluded.
+   */
+  private static final class Region {
+    private final JsonNode mapping;
+    private final List<JsonNode> properties;
+    private final int first;
+    private final int last;
+    private final boolean top;
+
+    Region(JsonNode mapping, List<JsonNode> properties, int first, int last, boolean top) {
+      this.mapping = mapping;
+      this.properties = properties;
+      this.first = first;
+      this.last = last;
+      this.top = top;
+    }
+  }
+}
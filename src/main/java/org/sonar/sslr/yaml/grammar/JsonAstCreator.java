@@ -20,11 +20,9 @@
 package org.sonar.sslr.yaml.grammar;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.TokenType;
 import com.sonar.sslr.impl.matcher.RuleDefinition;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -34,16 +32,22 @@ import org.sonar.sslr.yaml.grammar.impl.SyntaxNode;
 public class JsonAstCreator {
 
   public static JsonNode create(ParseNode node, List<Token> tokens) {
-    JsonNode astNode = new JsonAstCreator(tokens).visit(node);
+    return create(node, tokens, JsonNodeFactory.DEFAULT);
+  }
+
+  public static JsonNode create(ParseNode node, List<Token> tokens, JsonNodeFactory nodeFactory) {
+    JsonNode astNode = new JsonAstCreator(tokens, nodeFactory).visit(node);
     // Unwrap AstNodeType for root node:
     astNode.hasToBeSkippedFromAst();
     return astNode;
   }
 
   private final List<Token> tokens;
+  private final JsonNodeFactory nodeFactory;
 
-  private JsonAstCreator(List<Token> tokens) {
+  private JsonAstCreator(List<Token> tokens, JsonNodeFactory nodeFactory) {
     this.tokens = tokens;
+    this.nodeFactory = nodeFactory;
   }
 
   private JsonNode visit(ParseNode node) {
@@ -84,15 +88,7 @@ public class JsonAstCreator {
 
   private JsonNode createNonSyntaxNode(RuleDefinition ruleMatcher, @Nullable Token token) {
     YamlGrammar ruleKey = (YamlGrammar)ruleMatcher.getRuleKey();
-    Class<? extends JsonNode> nodeClass = ruleKey.getNodeClass();
-    if (nodeClass == null) {
-      return new SyntaxNode(ruleMatcher, ruleMatcher.getName(), token);
-    }
-    try {
-      return nodeClass.getConstructor(AstNodeType.class, String.class, Token.class).newInstance(ruleMatcher, ruleMatcher.getName(), token);
-    } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-      throw new IllegalArgumentException("Node class " + nodeClass + " misses the expected constructor");
-    }
+    return nodeFactory.create(ruleKey, ruleMatcher, ruleMatcher.getName(), token);
   }
 
   private JsonNode visitTerminal(ParseNode node) {
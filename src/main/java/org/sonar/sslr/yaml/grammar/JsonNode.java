@@ -23,12 +23,17 @@ import com.fasterxml.jackson.core.JsonPointer;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import javax.annotation.Nullable;
+import org.sonar.sslr.yaml.grammar.impl.ArrayNode;
 import org.sonar.sslr.yaml.grammar.impl.MissingNode;
 
 import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_ARRAY_ELEMENT;
@@ -43,6 +48,24 @@ public abstract class JsonNode extends AstNode {
   private static final String EMPTY_STRING = "";
   private static final double DEFAULT_FLOAT_VALUE = 0.0;
   private static final int DEFAULT_INT_VALUE = 0;
+  private static final long DEFAULT_LONG_VALUE = 0L;
+  /**
+   * Whether a class still overrides the deprecated {@link #internalAt(JsonPointer)}, which is then used for navigation.
+   */
+  private static final ClassValue<Boolean> OVERRIDES_POINTER_NAVIGATION = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      for (Class<?> c = type; c != JsonNode.class; c = c.getSuperclass()) {
+        try {
+          c.getDeclaredMethod("internalAt", JsonPointer.class);
+          return true;
+        } catch (NoSuchMethodException e) {
+          // look at the superclass
+        }
+      }
+      return false;
+    }
+  };
   private String pointer;
 
   protected JsonNode(AstNodeType type, String name, @Nullable Token token) {
@@ -50,12 +73,13 @@ public abstract class JsonNode extends AstNode {
   }
 
   /**
-   * Get the node pointed at by the supplied JSON pointer. The pointer must start with {@code /}.
+   * Get the node pointed at by the supplied JSON pointer. The pointer must start with {@code /}. The pointer is compiled
+   * once and cached, see {@link NodePointer#of(String)}.
    * @param path a valid JSON pointer string.
    * @return the matching child node, or the Missing node if not found.
    */
   public final JsonNode at(String path) {
-    return at(JsonPointer.compile(path));
+    return at(NodePointer.of(path));
   }
 
   /**
@@ -64,40 +88,103 @@ public abstract class JsonNode extends AstNode {
    * @return the matching child node, or the Missing node if not found.
    */
   public final JsonNode at(JsonPointer pointer) {
-    if (pointer.matches()) {
-      return this;
-    } else {
-      JsonNode n = internalAt(pointer);
-      if (n == null) {
+    return at(NodePointer.of(pointer.toString()));
+  }
+
+  /**
+   * Get the node pointed at by the supplied compiled pointer.
+   * @param pointer a compiled pointer.
+   * @return the matching child node, or the Missing node if not found.
+   */
+  public final JsonNode at(NodePointer pointer) {
+    JsonNode node = this;
+    for (int i = 0; i < pointer.size(); ++i) {
+      if (OVERRIDES_POINTER_NAVIGATION.get(node.getClass())) {
+        node = node.internalAt(remainder(pointer, i));
+      } else {
+        node = node.internalAt(pointer.getProperty(i), pointer.getIndex(i));
+      }
+      if (node == null || node.isMissing()) {
         return MISSING;
       }
-      return n.at(pointer.tail());
     }
+    return node;
+  }
+
+  private static JsonPointer remainder(NodePointer pointer, int segment) {
+    JsonPointer remainder = JsonPointer.compile(pointer.toString());
+    for (int i = 0; i < segment; ++i) {
+      remainder = remainder.tail();
+    }
+    return remainder;
   }
 
+  /**
+   * Get the JSON pointer of this node, relative to the document root. The pointers are memoized along the path from
+   * the root, so computing the pointers of all the nodes of a document takes linear time.
+   * @return the JSON pointer of this node
+   */
   public final String getPointer() {
     if (this.pointer != null) {
       return this.pointer;
     }
-    StringBuilder path = new StringBuilder();
-    JsonNode root = this;
-    while (root.getParent() != null && root.getParent().getType() != ROOT) {
-      if (!root.isSyntax()) {
-        JsonNode key = root.key();
-        if (!key.isMissing()) {
-          path.insert(0, "/" + Utils.escapeJsonPointer(key.stringValue()));
-        } else if (root.getParent().getType() == BLOCK_ARRAY_ELEMENT || root.getParent().getType() == FLOW_ARRAY_ELEMENT) {
-          path.insert(0, "/" + findIndex(root.getParent().getParent(), root.getParent()));
-        }
-      }
-      root = (JsonNode)root.getParent();
+    Deque<JsonNode> path = new ArrayDeque<>();
+    JsonNode node = this;
+    while (node.pointer == null && !node.isDocumentRoot()) {
+      path.push(node);
+      node = (JsonNode) node.getParent();
+    }
+    if (node.pointer == null) {
+      node.pointer = EMPTY_STRING;
+    }
+    String current = node.pointer;
+    while (!path.isEmpty()) {
+      node = path.pop();
+      current = node.appendPointerSegment(current);
+      node.pointer = current;
     }
-    this.pointer = path.toString();
     return this.pointer;
   }
 
+  private boolean isDocumentRoot() {
+    return getParent() == null || getParent().getType() == ROOT;
+  }
+
+  private String appendPointerSegment(String parentPointer) {
+    if (isSyntax()) {
+      return parentPointer;
+    }
+    JsonNode key = key();
+    if (!key.isMissing()) {
+      return parentPointer + "/" + Utils.escapeJsonPointer(key.stringValue());
+    }
+    AstNode parent = getParent();
+    if (parent.getType() == BLOCK_ARRAY_ELEMENT || parent.getType() == FLOW_ARRAY_ELEMENT) {
+      return parentPointer + "/" + findIndex(parent.getParent(), parent);
+    }
+    if (parent instanceof JsonNode && ((JsonNode) parent).isArray()) {
+      // Elements that are not wrapped, as in a CompactDocument
+      return parentPointer + "/" + elementIndex();
+    }
+    return parentPointer;
+  }
+
+  /**
+   * The index of this node among the elements of its parent, for the nodes that are not wrapped in an element node.
+   * @return the index of this node in its parent array
+   */
+  int elementIndex() {
+    return ((JsonNode) getParent()).elements().indexOf(this);
+  }
+
   private static int findIndex(AstNode parent, AstNode child) {
-    int i=0;
+    if (parent instanceof ArrayNode) {
+      int i = ((ArrayNode) parent).indexOf(child);
+      if (i >= 0) {
+        return i;
+      }
+    }
+    int i = 0;
     for (AstNode c: parent.getChildren(FLOW_ARRAY_ELEMENT, BLOCK_ARRAY_ELEMENT)) {
       if (c == child) {
         return i;
@@ -221,6 +308,8 @@ public abstract class JsonNode extends AstNode {
 
   /**
    * Get the map of property nodes for this node, if the node represents an object. Else returns an empty map.
+   * <p>
+   * The map is unmodifiable, as it may be shared by all the callers: copy it before changing it.
    * @return the map of property nodes, indexed by property name, or the empty map if this node is not an object
    */
   public Map<String, JsonNode> propertyMap() {
@@ -240,6 +329,8 @@ public abstract class JsonNode extends AstNode {
 
   /**
    * Get the list of element nodes for this node, if the node represents an array. Else returns an empty list.
+   * <p>
+   * The list is unmodifiable, as it may be shared by all the callers: copy it before changing it.
    * @return the list of elements, or the empty list if this node is not an array
    */
   public List<JsonNode> elements() {
@@ -298,15 +389,69 @@ public abstract class JsonNode extends AstNode {
   }
 
   /**
-   * Internally resolve a local json pointer.
+   * Try to parse this node's value as a long, if this is a scalar node. Else return {@code 0}.
+   * @return the value, or {@code 0} for non-scalars
+   */
+  public long longValue() {
+    return DEFAULT_LONG_VALUE;
+  }
+
+  /**
+   * Try to parse this node's value as a double, if this is a scalar node. Else return {@code 0.0}.
+   * @return the value, or {@code 0.0} for non-scalars
+   */
+  public double doubleValue() {
+    return DEFAULT_FLOAT_VALUE;
+  }
+
+  /**
+   * Try to parse this node's value as an integer of arbitrary size, if this is a scalar node. Else return {@code 0}.
+   * @return the value, or {@code 0} for non-scalars
+   */
+  public BigInteger bigIntegerValue() {
+    return BigInteger.ZERO;
+  }
+
+  /**
+   * Try to parse this node's value as an exact decimal, if this is a scalar node. Else return {@code 0}.
+   * @return the value, or {@code 0} for non-scalars
+   */
+  public BigDecimal decimalValue() {
+    return BigDecimal.ZERO;
+  }
+
+  /**
+   * Internally resolve a local json pointer: get the node matched by the first segment of the pointer.
    * @param ptr the json pointer (expected to be local to the node)
    * @return a non-null JsonNode
+   * @deprecated override {@link #internalAt(String, int)}, which is given the segment already unescaped and parsed.
+   *             Subclasses that still override this method are navigated through it, at the cost of building a
+   *             {@link JsonPointer} at each step.
    */
+  @Deprecated
   protected JsonNode internalAt(JsonPointer ptr) {
+    return internalAt(ptr.getMatchingProperty(), ptr.getMatchingIndex());
+  }
+
+  /**
+   * Internally resolve a segment of a pointer.
+   * @param property the property name matched by the segment, unescaped
+   * @param index the array index matched by the segment, or {@code -1} if the segment is not a valid index
+   * @return a non-null JsonNode
+   */
+  protected JsonNode internalAt(String property, int index) {
     return MISSING;
   }
 
   public final void decorate(AstNodeType type) {
     this.type = type;
   }
+
+  /**
+   * Forget the values that the node derived from the rest of its document, such as the target of a reference, because
+   * the document changed.
+   */
+  protected void invalidate() {
+    // nothing derived by default
+  }
 }
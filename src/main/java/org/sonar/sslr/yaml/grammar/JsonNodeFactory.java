@@ -0,0 +1,48 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import javax.annotation.Nullable;
+
+/**
+ * Creates the nodes of the syntax tree for the rules of the {@link YamlGrammar}. Provide your own factory to
+ * {@link YamlParser.Builder#withNodeFactory(JsonNodeFactory)} to build the tree with your own node subclasses. The
+ * created nodes must extend the class returned by {@link YamlGrammar#getNodeClass()} for the rule, if any, since the
+ * validation and navigation rely on it.
+ */
+@FunctionalInterface
+public interface JsonNodeFactory {
+  /**
+   * The default factory, that creates nodes of the class returned by {@link YamlGrammar#getNodeClass()}.
+   */
+  JsonNodeFactory DEFAULT = (rule, type, name, token) -> rule.createNode(type, name, token);
+
+  /**
+   * Create a node for a grammar rule.
+   * @param rule the grammar rule matched by the node
+   * @param type the type to give to the node
+   * @param name the name to give to the node
+   * @param token the first token of the node
+   * @return the new node
+   */
+  JsonNode create(YamlGrammar rule, AstNodeType type, String name, @Nullable Token token);
+}
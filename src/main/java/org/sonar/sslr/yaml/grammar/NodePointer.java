@@ -0,0 +1,176 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A JSON pointer compiled for the navigation in a syntax tree: the pointer is split into its segments, the segments are
+ * unescaped and the array indexes are parsed once, so that evaluating the pointer with {@link JsonNode#at(NodePointer)}
+ * does not parse nor allocate anything. Pointers are immutable, and are meant to be compiled once and kept in a
+ * constant.
+ * <p>
+ * The pointers given as strings to {@link JsonNode#at(String)} are compiled with {@link #of(String)}, which caches a
+ * bounded number of pointers.
+ */
+public final class NodePointer {
+  static final int MAX_CACHED_POINTERS = 4096;
+  private static final Map<String, NodePointer> CACHE = new ConcurrentHashMap<>();
+  private static final NodePointer EMPTY = new NodePointer("", new String[0], new int[0]);
+
+  private final String text;
+  private final String[] properties;
+  private final int[] indexes;
+
+  private NodePointer(String text, String[] properties, int[] indexes) {
+    this.text = text;
+    this.properties = properties;
+    this.indexes = indexes;
+  }
+
+  /**
+   * Compile a pointer.
+   * @param pointer a valid JSON pointer string: empty, or starting with {@code /}
+   * @return the compiled pointer
+   * @throws IllegalArgumentException if the pointer does not start with {@code /}
+   */
+  public static NodePointer compile(String pointer) {
+    if (pointer.isEmpty()) {
+      return EMPTY;
+    }
+    if (pointer.charAt(0) != '/') {
+      throw new IllegalArgumentException("Invalid input: JSON Pointer expression must start with '/': \"" + pointer + "\"");
+    }
+    List<String> segments = new ArrayList<>();
+    int start = 1;
+    while (true) {
+      int end = pointer.indexOf('/', start);
+      if (end < 0) {
+        segments.add(unescape(pointer.substring(start)));
+        break;
+      }
+      segments.add(unescape(pointer.substring(start, end)));
+      start = end + 1;
+    }
+    String[] properties = segments.toArray(new String[0]);
+    int[] indexes = new int[properties.length];
+    for (int i = 0; i < properties.length; ++i) {
+      indexes[i] = parseIndex(properties[i]);
+    }
+    return new NodePointer(pointer, properties, indexes);
+  }
+
+  /**
+   * Compile a pointer, or get it from the cache of the pointers compiled by this method. When the cache is full, it is
+   * emptied, so that programs that build pointers dynamically do not retain them all.
+   * @param pointer a valid JSON pointer string: empty, or starting with {@code /}
+   * @return the compiled pointer
+   * @throws IllegalArgumentException if the pointer does not start with {@code /}
+   */
+  public static NodePointer of(String pointer) {
+    NodePointer compiled = CACHE.get(pointer);
+    if (compiled == null) {
+      compiled = compile(pointer);
+      if (CACHE.size() >= MAX_CACHED_POINTERS) {
+        CACHE.clear();
+      }
+      CACHE.put(pointer, compiled);
+    }
+    return compiled;
+  }
+
+  /**
+   * Get the number of segments of the pointer, {@code 0} for the pointer to the node itself.
+   */
+  public int size() {
+    return properties.length;
+  }
+
+  /**
+   * Get a segment of the pointer, unescaped.
+   * @param segment the position of the segment
+   * @return the property name matched by the segment
+   */
+  public String getProperty(int segment) {
+    return properties[segment];
+  }
+
+  /**
+   * Get a segment of the pointer, as an array index.
+   * @param segment the position of the segment
+   * @return the array index matched by the segment, or {@code -1} if the segment is not a valid index
+   */
+  public int getIndex(int segment) {
+    return indexes[segment];
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof NodePointer && text.equals(((NodePointer) o).text);
+  }
+
+  @Override
+  public int hashCode() {
+    return text.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+  private static String unescape(String segment) {
+    if (segment.indexOf('~') < 0) {
+      return segment;
+    }
+    StringBuilder b = new StringBuilder(segment.length());
+    for (int i = 0; i < segment.length(); ++i) {
+      char c = segment.charAt(i);
+      if (c == '~' && i + 1 < segment.length() && (segment.charAt(i + 1) == '0' || segment.charAt(i + 1) == '1')) {
+        b.append(segment.charAt(++i) == '0' ? '~' : '/');
+      } else {
+        b.append(c);
+      }
+    }
+    return b.toString();
+  }
+
+  /**
+   * Parse an array index with the rules of the JSON pointers: digits only, without leading zero.
+   */
+  private static int parseIndex(String segment) {
+    int length = segment.length();
+    if (length == 0 || length > 10 || (segment.charAt(0) == '0' && length > 1)) {
+      return -1;
+    }
+    long value = 0;
+    for (int i = 0; i < length; ++i) {
+      char c = segment.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value > Integer.MAX_VALUE ? -1 : (int) value;
+  }
+}
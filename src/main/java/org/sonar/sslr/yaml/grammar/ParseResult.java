@@ -0,0 +1,115 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.Token;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.sslr.yaml.snakeyaml.parser.OriginalValues;
+
+/**
+ * The outcome of the parsing of a single document by a {@link YamlParser}: the root of the syntax tree, the issues
+ * raised by the validation of the document against the grammar, and some statistics about the parsing.
+ */
+public class ParseResult {
+  private final JsonNode root;
+  private final List<ValidationIssue> issues;
+  private final int tokenCount;
+  private final long lexingNanos;
+  private final long parsingNanos;
+  private final long validationNanos;
+  @Nullable
+  private final OriginalValues originalValues;
+
+  ParseResult(JsonNode root, List<ValidationIssue> issues, int tokenCount, long lexingNanos, long parsingNanos, long validationNanos,
+    @Nullable OriginalValues originalValues) {
+    this.root = root;
+    this.issues = Collections.unmodifiableList(issues);
+    this.tokenCount = tokenCount;
+    this.lexingNanos = lexingNanos;
+    this.parsingNanos = parsingNanos;
+    this.validationNanos = validationNanos;
+    this.originalValues = originalValues;
+  }
+
+  /**
+   * Get the root node of the document.
+   * @return the root node
+   */
+  public JsonNode getRoot() {
+    return root;
+  }
+
+  /**
+   * Get the warnings and errors raised by the validation of this document only.
+   * @return the (potentially empty) list of issues
+   */
+  public List<ValidationIssue> getIssues() {
+    return issues;
+  }
+
+  /**
+   * Get the number of tokens produced by the lexer for this document, including the final EOF token.
+   * @return the number of tokens
+   */
+  public int getTokenCount() {
+    return tokenCount;
+  }
+
+  /**
+   * Get the text of a token as it appears in the document. When the parser is built with
+   * {@link YamlParser.Builder#withLazyOriginalValues(boolean)}, the scalar tokens do not hold their original value and
+   * it must be retrieved with this method; otherwise, this is the same as {@link Token#getOriginalValue()}.
+   * @param token a token of this document
+   * @return the original value of the token
+   */
+  public String getOriginalValue(Token token) {
+    return originalValues == null ? token.getOriginalValue() : originalValues.get(token);
+  }
+
+  /**
+   * @return the time spent in the lexer, in nanoseconds
+   */
+  public long getLexingNanos() {
+    return lexingNanos;
+  }
+
+  /**
+   * @return the time spent building the syntax tree from the tokens, in nanoseconds
+   */
+  public long getParsingNanos() {
+    return parsingNanos;
+  }
+
+  /**
+   * @return the time spent validating the syntax tree against the grammar, in nanoseconds
+   */
+  public long getValidationNanos() {
+    return validationNanos;
+  }
+
+  /**
+   * @return the total time spent parsing the document, in nanoseconds
+   */
+  public long getTotalNanos() {
+    return lexingNanos + parsingNanos + validationNanos;
+  }
+}
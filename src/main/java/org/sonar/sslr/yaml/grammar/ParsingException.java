@@ -20,6 +20,7 @@
 package org.sonar.sslr.yaml.grammar;
 
 import com.sonar.sslr.api.AstNode;
+import javax.annotation.Nullable;
 
 public class ParsingException extends RuntimeException {
   public AstNode getErrorNode() {
@@ -32,4 +33,9 @@ public class ParsingException extends RuntimeException {
     super(key);
     this.errorNode = property;
   }
+
+  public ParsingException(String key, @Nullable AstNode property, Throwable cause) {
+    super(key, cause);
+    this.errorNode = property;
+  }
 }
@@ -0,0 +1,402 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import org.sonar.sslr.yaml.grammar.impl.SyntaxNode;
+import org.sonar.sslr.yaml.snakeyaml.parser.Tokens;
+
+import static com.sonar.sslr.api.GenericTokenType.EOF;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_ARRAY_ELEMENT;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_MAPPING;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_PROPERTY;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_SEQUENCE;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_ARRAY_ELEMENT;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_MAPPING;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_PROPERTY;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_SEQUENCE;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.INDENTLESS_SEQUENCE;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.ROOT;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.SCALAR;
+
+/**
+ * A hand-written parser for the {@link YamlGrammar}, that builds the syntax tree in a single pass over the tokens. It
+ * produces the same tree as the SSLR parsing machine followed by the {@link JsonAstCreator}.
+ * <p>
+ * Every choice of the YAML grammar can be decided by looking at the next token only, so the parser never backtracks.
+ * It does not report errors either: when the tokens do not match the grammar, it gives up and lets the caller fall
+ * back to the SSLR parsing machine, which produces the detailed error message.
+ * <p>
+ * In lazy mode, the parser still checks the whole document against the grammar, but only creates the node of each
+ * collection: its children are built on first access (see {@link CollectionNode#defer(Runnable)}) by parsing the token
+ * range of the collection again, with the same token indexes. The nested collections are lazy in turn. The children of
+ * the collections that the node factory does not create as {@link CollectionNode} are built right away.
+ */
+final class RecursiveDescentParser {
+  private static final Mismatch MISMATCH = new Mismatch();
+
+  private final List<Token> tokens;
+  private final JsonNodeFactory nodeFactory;
+  private final boolean lazy;
+  // Receives the nodes created while the parser only checks the tokens of a lazy collection
+  private final JsonNode discarded = new SyntaxNode(ROOT, ROOT.toString(), null) {
+    @Override
+    public void addChild(AstNode child) {
+      // the nodes are dropped
+    }
+  };
+  private int index = 0;
+  // No node is created while this is positive
+  private int skipping = 0;
+
+  private RecursiveDescentParser(List<Token> tokens, JsonNodeFactory nodeFactory, boolean lazy) {
+    this.tokens = tokens;
+    this.nodeFactory = nodeFactory;
+    this.lazy = lazy;
+  }
+
+  /**
+   * Parse a list of tokens.
+   * @param tokens the tokens of the document, ending with an EOF token
+   * @param nodeFactory the factory of the nodes of the grammar rules
+   * @return the {@link YamlGrammar#ROOT} node, or {@code null} if the tokens do not match the grammar
+   */
+  @CheckForNull
+  static JsonNode parse(List<Token> tokens, JsonNodeFactory nodeFactory) {
+    return parse(tokens, nodeFactory, false);
+  }
+
+  /**
+   * Parse a list of tokens.
+   * @param tokens the tokens of the document, ending with an EOF token
+   * @param nodeFactory the factory of the nodes of the grammar rules
+   * @param lazy whether the children of the collections are built on first access only
+   * @return the {@link YamlGrammar#ROOT} node, or {@code null} if the tokens do not match the grammar
+   */
+  @CheckForNull
+  static JsonNode parse(List<Token> tokens, JsonNodeFactory nodeFactory, boolean lazy) {
+    try {
+      return new RecursiveDescentParser(tokens, nodeFactory, lazy).root();
+    } catch (Mismatch e) {
+      return null;
+    }
+  }
+
+  /**
+   * Build the children of a lazy collection, whose tokens already matched the grammar. The rule is given apart from
+   * the node, whose type may have been decorated by the validation meanwhile.
+   */
+  private static void buildChildren(List<Token> tokens, JsonNodeFactory nodeFactory, YamlGrammar rule, JsonNode node) {
+    RecursiveDescentParser parser = new RecursiveDescentParser(tokens, nodeFactory, true);
+    parser.index = node.getFromIndex();
+    parser.children(rule).accept(node);
+  }
+
+  private Consumer<JsonNode> children(YamlGrammar rule) {
+    switch (rule) {
+      case INDENTLESS_SEQUENCE:
+        return this::indentlessSequenceChildren;
+      case BLOCK_SEQUENCE:
+        return this::blockSequenceChildren;
+      case BLOCK_MAPPING:
+        return this::blockMappingChildren;
+      case FLOW_SEQUENCE:
+        return this::flowSequenceChildren;
+      case FLOW_MAPPING:
+        return this::flowMappingChildren;
+      default:
+        throw new IllegalArgumentException("Not a collection: " + rule);
+    }
+  }
+
+  private JsonNode root() {
+    int start = index;
+    JsonNode node = create(ROOT, start);
+    if (isBlockContentStart(peek())) {
+      node.addChild(blockContent());
+    }
+    if (peek() != EOF) {
+      throw MISMATCH;
+    }
+    node.addChild(terminal());
+    return close(node, start);
+  }
+
+  private JsonNode blockOrIndentless() {
+    if (peek() == Tokens.BLOCK_ENTRY) {
+      return indentlessSequence();
+    }
+    return blockContent();
+  }
+
+  private JsonNode blockContent() {
+    TokenType type = peek();
+    if (type == Tokens.BLOCK_SEQUENCE_START) {
+      return blockSequence();
+    } else if (type == Tokens.BLOCK_MAPPING_START) {
+      return blockMapping();
+    }
+    return flowContent();
+  }
+
+  private JsonNode flowContent() {
+    TokenType type = peek();
+    if (type == Tokens.FLOW_SEQUENCE_START) {
+      return flowSequence();
+    } else if (type == Tokens.FLOW_MAPPING_START) {
+      return flowMapping();
+    } else if (isScalar(type)) {
+      return scalar();
+    }
+    throw MISMATCH;
+  }
+
+  private JsonNode flowSequenceEntry() {
+    if (peek() == Tokens.KEY) {
+      return flowProperty();
+    }
+    return flowContent();
+  }
+
+  private JsonNode scalar() {
+    int start = index;
+    JsonNode node = create(SCALAR, start);
+    ++index;
+    return close(node, start);
+  }
+
+  private JsonNode indentlessSequence() {
+    return collection(INDENTLESS_SEQUENCE);
+  }
+
+  private void indentlessSequenceChildren(JsonNode node) {
+    do {
+      node.addChild(terminal());
+      if (isBlockContentStart(peek())) {
+        node.addChild(blockArrayElement());
+      }
+    } while (peek() == Tokens.BLOCK_ENTRY);
+  }
+
+  private JsonNode blockSequence() {
+    return collection(BLOCK_SEQUENCE);
+  }
+
+  private void blockSequenceChildren(JsonNode node) {
+    node.addChild(terminal());
+    while (peek() == Tokens.BLOCK_ENTRY) {
+      node.addChild(terminal());
+      if (isBlockContentStart(peek())) {
+        node.addChild(blockArrayElement());
+      }
+    }
+    node.addChild(expect(Tokens.BLOCK_END));
+  }
+
+  private JsonNode blockArrayElement() {
+    int start = index;
+    JsonNode node = create(BLOCK_ARRAY_ELEMENT, start);
+    node.addChild(blockContent());
+    return close(node, start);
+  }
+
+  private JsonNode blockMapping() {
+    return collection(BLOCK_MAPPING);
+  }
+
+  private void blockMappingChildren(JsonNode node) {
+    node.addChild(terminal());
+    while (peek() == Tokens.KEY) {
+      node.addChild(blockProperty());
+    }
+    node.addChild(expect(Tokens.BLOCK_END));
+  }
+
+  private JsonNode blockProperty() {
+    int start = index;
+    JsonNode node = create(BLOCK_PROPERTY, start);
+    node.addChild(terminal());
+    if (isBlockOrIndentlessStart(peek())) {
+      node.addChild(blockOrIndentless());
+    }
+    if (peek() == Tokens.VALUE) {
+      node.addChild(terminal());
+      if (isBlockOrIndentlessStart(peek())) {
+        node.addChild(blockOrIndentless());
+      }
+    }
+    return close(node, start);
+  }
+
+  private JsonNode flowSequence() {
+    return collection(FLOW_SEQUENCE);
+  }
+
+  private void flowSequenceChildren(JsonNode node) {
+    node.addChild(terminal());
+    while (isFlowSequenceEntryStart(peek())) {
+      node.addChild(flowArrayElement());
+      if (peek() != Tokens.FLOW_ENTRY) {
+        break;
+      }
+      node.addChild(terminal());
+    }
+    node.addChild(expect(Tokens.FLOW_SEQUENCE_END));
+  }
+
+  private JsonNode flowArrayElement() {
+    int start = index;
+    JsonNode node = create(FLOW_ARRAY_ELEMENT, start);
+    node.addChild(flowSequenceEntry());
+    return close(node, start);
+  }
+
+  private JsonNode flowMapping() {
+    return collection(FLOW_MAPPING);
+  }
+
+  private void flowMappingChildren(JsonNode node) {
+    node.addChild(terminal());
+    while (isFlowSequenceEntryStart(peek())) {
+      node.addChild(flowSequenceEntry());
+      if (peek() != Tokens.FLOW_ENTRY) {
+        break;
+      }
+      node.addChild(terminal());
+    }
+    node.addChild(expect(Tokens.FLOW_MAPPING_END));
+  }
+
+  private JsonNode flowProperty() {
+    int start = index;
+    JsonNode node = create(FLOW_PROPERTY, start);
+    node.addChild(terminal());
+    if (isFlowContentStart(peek())) {
+      node.addChild(flowContent());
+    }
+    if (peek() == Tokens.VALUE) {
+      node.addChild(terminal());
+      if (isFlowContentStart(peek())) {
+        node.addChild(flowContent());
+      }
+    }
+    return close(node, start);
+  }
+
+  /**
+   * Parse a collection. In lazy mode, the tokens of the collection are only checked, and its children are built on
+   * first access.
+   */
+  private JsonNode collection(YamlGrammar rule) {
+    int start = index;
+    JsonNode node = create(rule, start);
+    if (lazy && skipping == 0 && node instanceof CollectionNode) {
+      ++skipping;
+      children(rule).accept(discarded);
+      --skipping;
+      close(node, start);
+      List<Token> documentTokens = tokens;
+      JsonNodeFactory factory = nodeFactory;
+      ((CollectionNode) node).defer(() -> buildChildren(documentTokens, factory, rule, node));
+      return node;
+    }
+    children(rule).accept(node);
+    return close(node, start);
+  }
+
+  private JsonNode expect(Tokens type) {
+    if (peek() != type) {
+      throw MISMATCH;
+    }
+    return terminal();
+  }
+
+  private JsonNode create(YamlGrammar rule, int start) {
+    if (skipping > 0) {
+      return discarded;
+    }
+    return nodeFactory.create(rule, rule, rule.toString(), tokens.get(start));
+  }
+
+  private JsonNode terminal() {
+    if (skipping > 0) {
+      ++index;
+      return discarded;
+    }
+    Token token = tokens.get(index);
+    TokenType type = token.getType();
+    JsonNode node = new SyntaxNode(type, type.getName(), token);
+    node.setFromIndex(index);
+    ++index;
+    node.setToIndex(index);
+    return node;
+  }
+
+  private JsonNode close(JsonNode node, int start) {
+    node.setFromIndex(start);
+    node.setToIndex(index);
+    return node;
+  }
+
+  private TokenType peek() {
+    if (index >= tokens.size()) {
+      throw MISMATCH;
+    }
+    return tokens.get(index).getType();
+  }
+
+  private static boolean isScalar(TokenType type) {
+    return type == Tokens.STRING || type == Tokens.INTEGER || type == Tokens.FLOAT || type == Tokens.TRUE
+      || type == Tokens.FALSE || type == Tokens.NULL;
+  }
+
+  private static boolean isFlowContentStart(TokenType type) {
+    return isScalar(type) || type == Tokens.FLOW_SEQUENCE_START || type == Tokens.FLOW_MAPPING_START;
+  }
+
+  private static boolean isFlowSequenceEntryStart(TokenType type) {
+    return type == Tokens.KEY || isFlowContentStart(type);
+  }
+
+  private static boolean isBlockContentStart(TokenType type) {
+    return isFlowContentStart(type) || type == Tokens.BLOCK_SEQUENCE_START || type == Tokens.BLOCK_MAPPING_START;
+  }
+
+  private static boolean isBlockOrIndentlessStart(TokenType type) {
+    return type == Tokens.BLOCK_ENTRY || isBlockContentStart(type);
+  }
+
+  /**
+   * Signals that the tokens do not match the grammar. Being thrown often when parsing invalid documents, it does not
+   * capture the stack trace.
+   */
+  private static final class Mismatch extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    Mismatch() {
+      super(null, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,410 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.AstNode;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static org.sonar.sslr.yaml.grammar.impl.MissingNode.MISSING;
+
+/**
+ * Resolves the {@code $ref} properties of documents parsed from files, be they references to another part of the same
+ * document ({@code #/components/schemas/Pet}) or to another file ({@code common.yaml#/components/schemas/Pet}).
+ * Relative references are resolved against the file that contains them, and references to references are followed
+ * until a node that is not a reference is found.
+ * <p>
+ * The referenced files are parsed once, and kept in a cache bounded to a number of documents. A cached document is
+ * reused as long as the content of its file does not change. The targets of the references of the cached documents are
+ * memoized, until one of the files they were resolved through changes. A resolver is thread-safe, and is meant to be
+ * shared by all the documents that reference the same files.
+ */
+public class ReferenceResolver {
+  public static final int DEFAULT_MAX_DOCUMENTS = 256;
+  private static final String REF = "/$ref";
+
+  private final YamlParser parser;
+  private final Object lock = new Object();
+  /**
+   * The parsed documents, by file and content. Guarded by {@link #lock}.
+   */
+  private final Map<Key, CompletableFuture<Document>> documents;
+  /**
+   * The hash of the last known content of the files, to avoid reading unchanged files. Guarded by {@link #lock}.
+   */
+  private final Map<Path, Stamp> stamps;
+
+  public ReferenceResolver(YamlParser parser) {
+    this(parser, DEFAULT_MAX_DOCUMENTS);
+  }
+
+  /**
+   * @param parser the parser of the referenced files
+   * @param maxDocuments the maximum number of parsed documents kept in the cache
+   */
+  public ReferenceResolver(YamlParser parser, int maxDocuments) {
+    if (maxDocuments < 1) {
+      throw new IllegalArgumentException("The maximum number of documents must be strictly positive, got: " + maxDocuments);
+    }
+    this.parser = parser;
+    this.documents = new LruMap<>(maxDocuments);
+    this.stamps = new LruMap<>(maxDocuments);
+  }
+
+  /**
+   * Get the root node of a file, from the cache if its content did not change since it was parsed.
+   * @param path the file to parse
+   * @return the root node of the file
+   * @throws ParsingException if the file cannot be read
+   */
+  public JsonNode document(Path path) {
+    return load(canonical(path, null), null).root;
+  }
+
+  /**
+   * Resolve a node of a document, following the references until a node that is not a reference is found.
+   * The files that the memoized targets were resolved through are checked for changes once per call.
+   * @param node the node to resolve
+   * @param location the file the document of the node was parsed from, against which relative references are resolved
+   * @return the referenced node, the Missing node if the reference points at nothing, or the node itself if it is not
+   *         a reference
+   * @throws ParsingException if a referenced file cannot be read, or if the references form a cycle
+   */
+  public JsonNode resolve(JsonNode node, Path location) {
+    return follow(node, canonical(location, node), new Pass()).node;
+  }
+
+  private Target follow(JsonNode node, Path file, Pass pass) {
+    if (!node.isRef()) {
+      return new Target(node, Collections.emptyList());
+    }
+    String ref = node.at(REF).getTokenValue();
+    int hash = ref.indexOf('#');
+    String location = hash < 0 ? ref : ref.substring(0, hash);
+    String pointer = hash < 0 ? "" : ref.substring(hash + 1);
+    // The targets are memoized by reference, which gives the same target wherever it appears in the document. A
+    // reference within the document is only memoized if the node belongs to the cached tree, so that the memoized
+    // targets never hold the nodes of the trees of the callers.
+    Document document = cached(file);
+    if (document != null && location.isEmpty() && top(node) != top(document.root)) {
+      document = null;
+    }
+    if (document != null) {
+      Target target = document.targets.get(ref);
+      if (target != null && isCurrent(target, pass)) {
+        return target;
+      }
+    }
+    if (!pass.chain.add(node)) {
+      throw new ParsingException("Cyclic reference: \"" + ref + "\" in " + file, node);
+    }
+
+    Path targetFile = file;
+    JsonNode root;
+    List<Document> dependencies = new ArrayList<>();
+    if (location.isEmpty()) {
+      root = rootOf(node);
+    } else {
+      targetFile = canonical(locate(file, location, node), node);
+      Document target = load(targetFile, node);
+      dependencies.add(target);
+      root = target.root;
+    }
+    JsonNode referenced;
+    try {
+      referenced = pointer.isEmpty() ? root : root.at(pointer);
+    } catch (IllegalArgumentException e) {
+      throw new ParsingException("Invalid reference: \"" + ref + "\" in " + file, node, e);
+    }
+    Target next = referenced.isMissing() ? new Target(MISSING, Collections.emptyList()) : follow(referenced, targetFile, pass);
+    dependencies.addAll(next.dependencies);
+    Target target = new Target(next.node, dependencies);
+    if (document != null) {
+      document.targets.put(ref, target);
+    }
+    return target;
+  }
+
+  private static Path locate(Path file, String location, AstNode node) {
+    try {
+      URI uri = file.toUri().resolve(location);
+      return Paths.get(uri);
+    } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+      throw new ParsingException("Unsupported reference location: \"" + location + "\" in " + file, node, e);
+    }
+  }
+
+  private static Path canonical(Path path, @Nullable AstNode node) {
+    try {
+      return path.toRealPath();
+    } catch (IOException e) {
+      throw new ParsingException("Cannot read the file " + path, node, e);
+    }
+  }
+
+  private static JsonNode rootOf(JsonNode node) {
+    AstNode root = node;
+    while (root.getParent() != null && root.getParent().getParent() != null) {
+      root = root.getParent();
+    }
+    return (JsonNode) root;
+  }
+
+  private static AstNode top(AstNode node) {
+    AstNode top = node;
+    while (top.getParent() != null) {
+      top = top.getParent();
+    }
+    return top;
+  }
+
+  private Document load(Path file, @Nullable AstNode node) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      Stamp stamp;
+      synchronized (lock) {
+        stamp = stamps.get(file);
+      }
+      byte[] content = null;
+      if (stamp == null || !stamp.matches(attributes)) {
+        content = Files.readAllBytes(file);
+        stamp = new Stamp(attributes, hash(content));
+        synchronized (lock) {
+          stamps.put(file, stamp);
+        }
+      }
+      Key key = new Key(file, stamp.hash);
+      CompletableFuture<Document> future;
+      boolean owner = false;
+      synchronized (lock) {
+        future = documents.get(key);
+        if (future == null) {
+          future = new CompletableFuture<>();
+          documents.put(key, future);
+          owner = true;
+        }
+      }
+      if (owner) {
+        // Parse outside of the lock, so that other files can be loaded meanwhile
+        try {
+          byte[] bytes = content != null ? content : Files.readAllBytes(file);
+          future.complete(new Document(key, parser.parseDocument(bytes, parser.getCharset()).getRoot()));
+        } catch (Throwable e) {
+          // Including errors, so that the threads waiting for the document are not blocked forever
+          synchronized (lock) {
+            documents.remove(key);
+          }
+          future.completeExceptionally(e);
+        }
+      }
+      return future.join();
+    } catch (IOException e) {
+      throw new ParsingException("Cannot read the file " + file, node, e);
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw new ParsingException("Cannot read the file " + file, node, e.getCause());
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw (RuntimeException) e.getCause();
+    }
+  }
+
+  /**
+   * Get the cached document of a file, as of the last time the file was loaded.
+   */
+  @CheckForNull
+  private Document cached(Path file) {
+    CompletableFuture<Document> future;
+    synchronized (lock) {
+      Stamp stamp = stamps.get(file);
+      future = stamp == null ? null : documents.get(new Key(file, stamp.hash));
+    }
+    if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+      return null;
+    }
+    return future.join();
+  }
+
+  /**
+   * Check that the files a memoized target was resolved through did not change. Each document is checked once per
+   * resolution, however many of the followed references went through it.
+   */
+  private boolean isCurrent(Target target, Pass pass) {
+    for (Document document : target.dependencies) {
+      Boolean current = pass.current.get(document);
+      if (current == null) {
+        current = isCurrent(document);
+        pass.current.put(document, current);
+      }
+      if (!current) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isCurrent(Document document) {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(document.key.file, BasicFileAttributes.class);
+    } catch (IOException e) {
+      return false;
+    }
+    synchronized (lock) {
+      Stamp stamp = stamps.get(document.key.file);
+      return stamp != null && stamp.matches(attributes) && stamp.hash.equals(document.key.hash);
+    }
+  }
+
+  private static String hash(byte[] content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      StringBuilder b = new StringBuilder(digest.length * 2);
+      for (byte d : digest) {
+        b.append(Character.forDigit((d >> 4) & 0xF, 16)).append(Character.forDigit(d & 0xF, 16));
+      }
+      return b.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * A map that keeps its most recently accessed entries, up to a number of entries.
+   */
+  private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+    private static final long serialVersionUID = 1L;
+    private final int maxEntries;
+
+    LruMap(int maxEntries) {
+      super(16, 0.75f, true);
+      this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > maxEntries;
+    }
+  }
+
+  /**
+   * The state of the resolution of a node: the references followed so far, to detect the cycles, and whether the
+   * documents the memoized targets depend on are current.
+   */
+  private static final class Pass {
+    private final Set<JsonNode> chain = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Document, Boolean> current = new IdentityHashMap<>();
+  }
+
+  private static final class Key {
+    private final Path file;
+    private final String hash;
+
+    Key(Path file, String hash) {
+      this.file = file;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return file.equals(other.file) && hash.equals(other.hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * file.hashCode() + hash.hashCode();
+    }
+  }
+
+  /**
+   * The content hash of a file, along with the attributes of the file when it was computed.
+   */
+  private static final class Stamp {
+    private final FileTime modified;
+    private final long size;
+    private final String hash;
+
+    Stamp(BasicFileAttributes attributes, String hash) {
+      this.modified = attributes.lastModifiedTime();
+      this.size = attributes.size();
+      this.hash = hash;
+    }
+
+    boolean matches(BasicFileAttributes attributes) {
+      return modified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+    }
+  }
+
+  private static final class Document {
+    private final Key key;
+    private final JsonNode root;
+    /**
+     * The memoized targets of the references of the document, by value of the reference.
+     */
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+
+    Document(Key key, JsonNode root) {
+      this.key = key;
+      this.root = root;
+    }
+  }
+
+  /**
+   * A resolved reference, along with the referenced documents its resolution went through.
+   */
+  private static final class Target {
+    private final JsonNode node;
+    private final List<Document> dependencies;
+
+    Target(JsonNode node, List<Document> dependencies) {
+      this.node = node;
+      this.dependencies = dependencies;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.Token;
+
+/**
+ * Receives the structure of a YAML document from a {@link YamlEventParser}, as a sequence of events in document order.
+ * The position of the events is the line and column of their token, and {@link Context#getPointer()} gives the JSON
+ * pointer of the node they relate to. All the methods do nothing by default, so that implementations only override the
+ * events they need.
+ */
+public interface YamlEventHandler {
+  /**
+   * A block or flow mapping starts.
+   * @param token the first token of the mapping
+   * @param context the context of the mapping
+   */
+  default void startMapping(Token token, Context context) {
+    // Ignored by default
+  }
+
+  /**
+   * The current mapping ends.
+   * @param context the context of the mapping
+   */
+  default void endMapping(Context context) {
+    // Ignored by default
+  }
+
+  /**
+   * A block, indentless or flow sequence starts.
+   * @param token the first token of the sequence
+   * @param context the context of the sequence
+   */
+  default void startSequence(Token token, Context context) {
+    // Ignored by default
+  }
+
+  /**
+   * The current sequence ends.
+   * @param context the context of the sequence
+   */
+  default void endSequence(Context context) {
+    // Ignored by default
+  }
+
+  /**
+   * A scalar key of a mapping, or of a single-pair mapping in a flow sequence. A key that is a collection is reported
+   * by the events of the collection, with the JSON pointer of an empty key.
+   * @param token the token of the key, whose value is the text of the key
+   * @param context the context of the key, whose pointer is the pointer of the value of the key
+   */
+  default void key(Token token, Context context) {
+    // Ignored by default
+  }
+
+  /**
+   * A scalar value.
+   * @param token the token of the scalar, whose type tells the type of the scalar
+   * @param context the context of the scalar
+   */
+  default void scalar(Token token, Context context) {
+    // Ignored by default
+  }
+
+  /**
+   * The location of an event in the document. A context is only valid during the call it is given to.
+   */
+  interface Context {
+    /**
+     * Get the JSON pointer of the node of the event. As in {@link JsonNode#getPointer()}, the index of an element of a
+     * sequence only counts the entries that are not empty. The pointer is only built when requested.
+     * @return the JSON pointer, relative to the document root
+     */
+    String getPointer();
+
+    /**
+     * Get the number of segments of the JSON pointer of the node of the event, without building it.
+     * @return the depth of the node in the document
+     */
+    int getDepth();
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.LexerException;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.annotation.Nullable;
+import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+
+/**
+ * Reports the structure of YAML documents to a {@link YamlEventHandler}, in a single pass over the tokens produced by
+ * the lexer, without building any syntax tree. The tokens are lexed as they are consumed (see
+ * {@link Lexer#tokens(Reader, URI)}), so that only the whole text of the document and the current path in the
+ * document are held in memory: this suits checks that only need to look at each node once, on large documents. The
+ * memory used still grows with the size of the text.
+ * <p>
+ * The document must match the {@link YamlGrammar}, which is checked as the events are reported, but the document is
+ * not validated against any other grammar. The tokens are walked by a {@link YamlTokenWalker}, which follows the
+ * {@link RecursiveDescentParser}.
+ */
+public final class YamlEventParser {
+  private static final URI TEXT_URI = URI.create("yaml:text");
+
+  private YamlEventParser() {
+    // Hidden utility class constructor
+  }
+
+  /**
+   * Parse a text.
+   * @param text the document to parse
+   * @param handler the handler of the events of the document
+   * @throws RecognitionException if the document is not valid YAML
+   */
+  public static void parse(String text, YamlEventHandler handler) {
+    parse(() -> Lexer.tokens(text, TEXT_URI), handler);
+  }
+
+  /**
+   * Parse a document from a reader, which is left open. The whole text is read into memory first.
+   * @param reader the reader of the document
+   * @param uri the URI of the document, given to the tokens
+   * @param handler the handler of the events of the document
+   * @throws RecognitionException if the document is not valid YAML
+   */
+  public static void parse(Reader reader, URI uri, YamlEventHandler handler) {
+    parse(() -> Lexer.tokens(reader, uri), handler);
+  }
+
+  /**
+   * Parse a file.
+   * @param file the file to parse
+   * @param charset the encoding of the file
+   * @param handler the handler of the events of the document
+   * @throws RecognitionException if the document is not valid YAML, or cannot be read
+   */
+  public static void parse(Path file, Charset charset, YamlEventHandler handler) {
+    try (Reader reader = Files.newBufferedReader(file, charset)) {
+      parse(reader, file.toUri(), handler);
+    } catch (IOException e) {
+      throw new RecognitionException(new LexerException("Unable to read file: " + file, e));
+    }
+  }
+
+  private static void parse(TokenSource source, YamlEventHandler handler) {
+    try {
+      new YamlTokenWalker(source.open(), new Events(handler)).walk();
+    } catch (LexerException e) {
+      throw new RecognitionException(e);
+    }
+  }
+
+  /**
+   * Reports the structure found by the walker as events, along with the path of each node.
+   */
+  private static final class Events implements YamlTokenWalker.Listener {
+    private final YamlEventHandler handler;
+    private final NodePath path = new NodePath();
+
+    Events(YamlEventHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public void startMapping(Token token) {
+      handler.startMapping(token, path);
+    }
+
+    @Override
+    public void endMapping() {
+      handler.endMapping(path);
+    }
+
+    @Override
+    public void startSequence(Token token) {
+      handler.startSequence(token, path);
+    }
+
+    @Override
+    public void endSequence() {
+      handler.endSequence(path);
+    }
+
+    @Override
+    public void startElement(int index) {
+      path.push(index);
+    }
+
+    @Override
+    public void endElement() {
+      path.pop();
+    }
+
+    @Override
+    public void scalar(Token token) {
+      handler.scalar(token, path);
+    }
+
+    @Override
+    public void key(Token token) {
+      path.push(token.getValue());
+      handler.key(token, path);
+      path.pop();
+    }
+
+    @Override
+    public void startCollectionKey(Token token) {
+      path.push("");
+    }
+
+    @Override
+    public void endCollectionKey() {
+      path.pop();
+    }
+
+    @Override
+    public void startValue(@Nullable Token key, boolean scalarKey, @Nullable Token indicator) {
+      if (key != null) {
+        path.push(scalarKey ? key.getValue() : "");
+      }
+    }
+
+    @Override
+    public void endValue(@Nullable Token key) {
+      if (key != null) {
+        path.pop();
+      }
+    }
+
+    @Override
+    public String location() {
+      return " at " + path.getPointer();
+    }
+  }
+
+  @FunctionalInterface
+  private interface TokenSource {
+    Iterator<Token> open();
+  }
+
+  /**
+   * The path from the root of the document to the current node. The segments are kept unescaped, and the pointer is
+   * only built when requested.
+   */
+  private static final class NodePath implements YamlEventHandler.Context {
+    // The property names, or null for the elements of sequences
+    private String[] keys = new String[16];
+    private int[] indexes = new int[16];
+    private int depth = 0;
+    private String pointer = "";
+
+    void push(String key) {
+      grow();
+      keys[depth] = key;
+      ++depth;
+      pointer = null;
+    }
+
+    void push(int index) {
+      grow();
+      keys[depth] = null;
+      indexes[depth] = index;
+      ++depth;
+      pointer = null;
+    }
+
+    void pop() {
+      keys[--depth] = null;
+      pointer = null;
+    }
+
+    private void grow() {
+      if (depth == keys.length) {
+        keys = Arrays.copyOf(keys, depth * 2);
+        indexes = Arrays.copyOf(indexes, depth * 2);
+      }
+    }
+
+    @Override
+    public String getPointer() {
+      if (pointer == null) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; ++i) {
+          builder.append('/');
+          if (keys[i] == null) {
+            builder.append(indexes[i]);
+          } else {
+            appendEscaped(builder, keys[i]);
+          }
+        }
+        pointer = builder.toString();
+      }
+      return pointer;
+    }
+
+    @Override
+    public int getDepth() {
+      return depth;
+    }
+
+    private static void appendEscaped(StringBuilder builder, String key) {
+      for (int i = 0; i < key.length(); ++i) {
+        char c = key.charAt(i);
+        if (c == '~') {
+          builder.append("~0");
+        } else if (c == '/') {
+          builder.append("~1");
+        } else {
+          builder.append(c);
+        }
+      }
+    }
+  }
+}
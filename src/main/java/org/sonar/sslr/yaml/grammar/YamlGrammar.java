@@ -19,10 +19,16 @@
  */
 package org.sonar.sslr.yaml.grammar;
 
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
 import javax.annotation.Nullable;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerfulGrammarBuilder;
+import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
 import org.sonar.sslr.yaml.grammar.impl.ArrayNode;
+import org.sonar.sslr.yaml.grammar.impl.ElementNode;
 import org.sonar.sslr.yaml.grammar.impl.ObjectNode;
 import org.sonar.sslr.yaml.grammar.impl.PropertyNode;
 import org.sonar.sslr.yaml.grammar.impl.ScalarNode;
@@ -51,38 +57,64 @@ import static org.sonar.sslr.yaml.snakeyaml.parser.Tokens.VALUE;
  * The generic YAML Grammar. Can be used as-is with the SSLR toolkit to generate an AST from a YAML document.
  */
 public enum YamlGrammar implements GrammarRuleKey {
-  ROOT(null),
+  ROOT(null, SyntaxNode::new),
   // Invisible in the AST
-  BLOCK_OR_INDENTLESS(null),
-  BLOCK_CONTENT(null),
-  FLOW_CONTENT(null),
-  BLOCK_COLLECTION(null),
-  FLOW_COLLECTION(null),
-  FLOW_SEQUENCE_ENTRY(null),
+  BLOCK_OR_INDENTLESS(null, SyntaxNode::new),
+  BLOCK_CONTENT(null, SyntaxNode::new),
+  FLOW_CONTENT(null, SyntaxNode::new),
+  BLOCK_COLLECTION(null, SyntaxNode::new),
+  FLOW_COLLECTION(null, SyntaxNode::new),
+  FLOW_SEQUENCE_ENTRY(null, SyntaxNode::new),
   // Visible in the AST
-  INDENTLESS_SEQUENCE(ArrayNode.class),
-  BLOCK_SEQUENCE(ArrayNode.class),
-  BLOCK_MAPPING(ObjectNode.class),
-  BLOCK_PROPERTY(PropertyNode.class),
-  FLOW_SEQUENCE(ArrayNode.class),
-  FLOW_MAPPING(ObjectNode.class),
-  FLOW_PROPERTY(PropertyNode.class),
-  FLOW_ARRAY_ELEMENT(SyntaxNode.class),
-  BLOCK_ARRAY_ELEMENT(SyntaxNode.class),
-  SCALAR(ScalarNode.class),
+  INDENTLESS_SEQUENCE(ArrayNode.class, ArrayNode::new),
+  BLOCK_SEQUENCE(ArrayNode.class, ArrayNode::new),
+  BLOCK_MAPPING(ObjectNode.class, ObjectNode::new),
+  BLOCK_PROPERTY(PropertyNode.class, PropertyNode::new),
+  FLOW_SEQUENCE(ArrayNode.class, ArrayNode::new),
+  FLOW_MAPPING(ObjectNode.class, ObjectNode::new),
+  FLOW_PROPERTY(PropertyNode.class, PropertyNode::new),
+  FLOW_ARRAY_ELEMENT(ElementNode.class, ElementNode::new),
+  BLOCK_ARRAY_ELEMENT(ElementNode.class, ElementNode::new),
+  SCALAR(ScalarNode.class, ScalarNode::new),
   // Generated by second pass parsing
-  MISSING(SyntaxNode.class);
+  MISSING(SyntaxNode.class, SyntaxNode::new);
 
   private final Class<? extends JsonNode> nodeClass;
+  private final NodeConstructor nodeConstructor;
 
-  YamlGrammar(@Nullable Class<? extends JsonNode> nodeClass) {
+  YamlGrammar(@Nullable Class<? extends JsonNode> nodeClass, NodeConstructor nodeConstructor) {
     this.nodeClass = nodeClass;
+    this.nodeConstructor = nodeConstructor;
   }
 
   public Class<? extends JsonNode> getNodeClass() {
     return this.nodeClass;
   }
 
+  /**
+   * Create a node for this rule, of the class returned by {@link #getNodeClass()}. Rules that are invisible in the AST
+   * get a {@link SyntaxNode}.
+   *
+   * @param type the type of the node
+   * @param name the name of the node
+   * @param token the first token of the node
+   * @return the new node
+   */
+  public JsonNode createNode(AstNodeType type, String name, @Nullable Token token) {
+    return nodeConstructor.create(type, name, token);
+  }
+
+  /**
+   * Get the compiled form of the YAML grammar. The grammar is built and compiled only once, on first access, and the
+   * result is shared by all the parsers. A compiled grammar is immutable, so it can safely be used by concurrent
+   * parsing threads.
+   *
+   * @return the compiled YAML grammar
+   */
+  public static CompiledGrammar compiled() {
+    return CompiledGrammarHolder.INSTANCE;
+  }
+
   /**
    * Builds an SSLR-compatible grammar descriptor for YAML. It is designed to be used in conjunction with the
    * {@link org.sonar.sslr.yaml.snakeyaml.parser.Lexer}.
@@ -124,4 +156,21 @@ public enum YamlGrammar implements GrammarRuleKey {
     b.rule(SCALAR).is(b.firstOf(NULL, TRUE, FALSE, INTEGER, FLOAT, STRING));
     return b;
   }
+
+  @FunctionalInterface
+  private interface NodeConstructor {
+    JsonNode create(AstNodeType type, String name, @Nullable Token token);
+  }
+
+  /**
+   * Lazy holder for the compiled grammar: the JVM guarantees that the initialization is performed once, on first
+   * access, and is visible to all threads.
+   */
+  private static final class CompiledGrammarHolder {
+    private static final CompiledGrammar INSTANCE = MutableGrammarCompiler.compile((CompilableGrammarRule) create().build().getRootRule());
+
+    private CompiledGrammarHolder() {
+      // Hidden holder class constructor
+    }
+  }
 }
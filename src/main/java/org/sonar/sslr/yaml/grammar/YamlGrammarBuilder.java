@@ -20,7 +20,9 @@
 package org.sonar.sslr.yaml.grammar;
 
 import com.sonar.sslr.api.TokenType;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import org.sonar.sslr.grammar.GrammarException;
@@ -54,6 +56,7 @@ import static org.sonar.sslr.yaml.grammar.YamlGrammar.SCALAR;
  */
 public class YamlGrammarBuilder {
   private final Map<GrammarRuleKey, RuleDefinition> definitions = new HashMap<>();
+  private final List<FirstOfValidation> alternatives = new ArrayList<>();
   private GrammarRuleKey rootRuleKey;
 
   /**
@@ -194,7 +197,7 @@ public class YamlGrammarBuilder {
    * @return the built rule
    */
   public ValidationRule firstOf(Object first, Object second) {
-    return new FirstOfValidation(convertToRule(first), convertToRule(second));
+    return addAlternatives(new FirstOfValidation(convertToRule(first), convertToRule(second)));
   }
 
   /**
@@ -208,7 +211,12 @@ public class YamlGrammarBuilder {
    * @return the built rule
    */
   public ValidationRule firstOf(Object first, Object second, Object... rest) {
-    return new FirstOfValidation(convertToRules(first, second, rest));
+    return addAlternatives(new FirstOfValidation(convertToRules(first, second, rest)));
+  }
+
+  private FirstOfValidation addAlternatives(FirstOfValidation validation) {
+    alternatives.add(validation);
+    return validation;
   }
 
   /**
@@ -280,7 +288,16 @@ public class YamlGrammarBuilder {
     return new FloatValidation();
   }
 
+  /**
+   * Complete the grammar. The "first of" expressions compute which of their sub-expressions can match a node from the
+   * type of the node and the values of its discriminant properties, so that the validation skips the sub-expressions
+   * that are bound to fail.
+   * @return the root rule of the grammar
+   */
   public RuleDefinition build() {
+    for (FirstOfValidation validation : alternatives) {
+      validation.compile();
+    }
     return definitions.get(rootRuleKey);
   }
 
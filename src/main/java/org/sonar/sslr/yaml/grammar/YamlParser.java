@@ -20,32 +20,47 @@
 package org.sonar.sslr.yaml.grammar;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.RecognitionException;
-import com.sonar.sslr.api.Rule;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.LexerException;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
-import org.sonar.sslr.internal.vm.CompilableGrammarRule;
-import org.sonar.sslr.internal.vm.CompiledGrammar;
 import org.sonar.sslr.internal.vm.Machine;
-import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
 import org.sonar.sslr.yaml.grammar.impl.RuleDefinition;
 import org.sonar.sslr.yaml.grammar.impl.SyntaxNode;
 import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+import org.sonar.sslr.yaml.snakeyaml.parser.OriginalValues;
 
+/**
+ * Parses YAML documents and validates them against a grammar. A parser holds no state related to the documents it
+ * parses, so a single instance can be shared by any number of threads.
+ */
 public class YamlParser {
   public static final GrammarValidator NULL_VALIDATOR = node -> Collections.emptyList();
   private final Charset charset;
   private final boolean strict;
   private final GrammarValidator validator;
-  private final List<ValidationIssue> issues = new ArrayList<>();
+  private final Engine engine;
+  private final JsonNodeFactory nodeFactory;
+  private final Executor executor;
+  private final int maxConcurrency;
+  private final boolean lazyOriginalValues;
+  private final boolean lazySubtrees;
 
   public YamlParser(Charset charset) {
     this(charset, null, false);
@@ -56,59 +71,300 @@ public class YamlParser {
   }
 
   public YamlParser(Charset charset, @Nullable RuleDefinition rootRule, boolean strict) {
-    this.charset = charset;
-    this.strict = strict;
-    if (rootRule != null) {
-      this.validator = new ASTValidator(rootRule);
+    this(builder().withCharset(charset).withGrammar(rootRule).withStrictValidation(strict));
+  }
+
+  private YamlParser(Builder builder) {
+    this.charset = builder.charset;
+    this.strict = builder.strict;
+    if (builder.rootRule != null) {
+      this.validator = new ASTValidator(builder.rootRule);
     } else {
       this.validator = NULL_VALIDATOR;
     }
+    this.engine = builder.engine;
+    this.nodeFactory = builder.nodeFactory;
+    this.executor = builder.executor;
+    this.maxConcurrency = builder.maxConcurrency;
+    this.lazyOriginalValues = builder.lazyOriginalValues;
+    this.lazySubtrees = builder.lazySubtrees;
   }
 
   public static Builder builder() {
     return new Builder();
   }
 
+  /**
+   * Parse and validate a file.
+   * @param file the file to parse
+   * @return the root node of the document
+   * @see #parseDocument(File) to also get the validation issues of the document
+   */
   public JsonNode parse(File file) {
+    return rootOf(parseAndValidate(lexer -> lexer.lex(file), null));
+  }
+
+  /**
+   * Parse and validate a text.
+   * @param text the document to parse
+   * @return the root node of the document
+   * @see #parseDocument(String) to also get the validation issues of the document
+   */
+  public JsonNode parse(String text) {
+    return rootOf(parseAndValidate(lexer -> lexer.lex(text), text));
+  }
+
+  /**
+   * Parse and validate a file. The file is mapped in memory and decoded by the lexer as it reads it, so that the
+   * document is not copied on the heap before being lexed.
+   * @param path the file to parse
+   * @return the root node of the document
+   * @see #parseDocument(Path) to also get the validation issues of the document
+   */
+  public JsonNode parse(Path path) {
+    return rootOf(parseAndValidate(charset, lexer -> lexer.lex(BufferInput.url(path.toUri(), BufferInput.map(path))), null));
+  }
+
+  /**
+   * Parse and validate a document from a buffer. The bytes are decoded by the lexer as it reads them, without any
+   * intermediate copy of the document. The position of the buffer is left untouched.
+   * @param buffer the bytes of the document, from the position to the limit of the buffer
+   * @param charset the encoding of the document
+   * @return the root node of the document
+   * @see #parseDocument(ByteBuffer, Charset) to also get the validation issues of the document
+   */
+  public JsonNode parse(ByteBuffer buffer, Charset charset) {
+    return rootOf(parseAndValidate(charset, lexer -> lexer.lex(BufferInput.url(BufferInput.BUFFER_URI, buffer)), null));
+  }
+
+  /**
+   * Parse and validate a document from an array of bytes.
+   * @param bytes the bytes of the document
+   * @param charset the encoding of the document
+   * @return the root node of the document
+   * @see #parse(ByteBuffer, Charset)
+   */
+  public JsonNode parse(byte[] bytes, Charset charset) {
+    return parse(ByteBuffer.wrap(bytes), charset);
+  }
+
+  /**
+   * Parse and validate a file.
+   * @param file the file to parse
+   * @return the root node of the document, along with the validation issues of this document
+   * @throws ValidationException in strict mode, if the validation raised issues
+   */
+  public ParseResult parseDocument(File file) {
+    return checkStrictness(parseAndValidate(lexer -> lexer.lex(file), null));
+  }
+
+  /**
+   * Parse and validate a file, mapped in memory.
+   * @param path the file to parse
+   * @return the root node of the document, along with the validation issues of this document
+   * @throws ValidationException in strict mode, if the validation raised issues
+   * @see #parse(Path)
+   */
+  public ParseResult parseDocument(Path path) {
+    return checkStrictness(parseAndValidate(charset, lexer -> lexer.lex(BufferInput.url(path.toUri(), BufferInput.map(path))), null));
+  }
+
+  /**
+   * Parse and validate a document from a buffer.
+   * @param buffer the bytes of the document, from the position to the limit of the buffer
+   * @param charset the encoding of the document
+   * @return the root node of the document, along with the validation issues of this document
+   * @throws ValidationException in strict mode, if the validation raised issues
+   * @see #parse(ByteBuffer, Charset)
+   */
+  public ParseResult parseDocument(ByteBuffer buffer, Charset charset) {
+    return checkStrictness(parseAndValidate(charset, lexer -> lexer.lex(BufferInput.url(BufferInput.BUFFER_URI, buffer)), null));
+  }
+
+  /**
+   * Parse and validate a document from an array of bytes.
+   * @param bytes the bytes of the document
+   * @param charset the encoding of the document
+   * @return the root node of the document, along with the validation issues of this document
+   * @throws ValidationException in strict mode, if the validation raised issues
+   * @see #parse(ByteBuffer, Charset)
+   */
+  public ParseResult parseDocument(byte[] bytes, Charset charset) {
+    return parseDocument(ByteBuffer.wrap(bytes), charset);
+  }
+
+  /**
+   * Parse and validate a text.
+   * @param text the document to parse
+   * @return the root node of the document, along with the validation issues of this document
+   * @throws ValidationException in strict mode, if the validation raised issues
+   */
+  public ParseResult parseDocument(String text) {
+    return checkStrictness(parseAndValidate(lexer -> lexer.lex(text), text));
+  }
+
+  /**
+   * Parse and validate a text that is going to be edited, such as a document opened in an editor. The returned document
+   * can then be {@linkplain IncrementalDocument#edit(int, int, String) edited}, which only lexes and parses again the
+   * part of the text affected by the edit. The original values of the scalars are never lazy in such a document.
+   * @param text the document to parse
+   * @return the parsed document, along with the validation issues of this document
+   * @throws ValidationException in strict mode, if the validation raised issues
+   */
+  public IncrementalDocument parseIncrementally(String text) {
+    return IncrementalDocument.parse(this, text);
+  }
+
+  /**
+   * Parse and validate a batch of files concurrently, using the executor and the concurrency limit configured with
+   * {@link Builder#withExecutor(Executor)} and {@link Builder#withMaxConcurrency(int)}. This method blocks until all
+   * files are parsed.
+   * <p>
+   * Parsing errors do not interrupt the batch: they are reported in the {@link BatchResult} of the offending file.
+   * @param paths the files to parse
+   * @return the results of the parsing, in the order of the submitted files
+   */
+  public List<BatchResult> parseAll(Collection<Path> paths) {
+    List<BatchResult> results = new ArrayList<>(paths.size());
+    new BatchParsing(paths.iterator(), this::parseDocument, executor, maxConcurrency, true).forEachRemaining(results::add);
+    return results;
+  }
+
+  /**
+   * Parse and validate a stream of files concurrently, using the executor and the concurrency limit configured with
+   * {@link Builder#withExecutor(Executor)} and {@link Builder#withMaxConcurrency(int)}.
+   * <p>
+   * The files are pulled from the source stream and submitted to the executor as the results are consumed, so that at
+   * most {@code maxConcurrency} documents are held in memory at any given time. Parsing errors do not interrupt the
+   * batch: they are reported in the {@link BatchResult} of the offending file.
+   * @param paths the files to parse
+   * @return the results of the parsing, in their order of completion
+   */
+  public Stream<BatchResult> parseAll(Stream<Path> paths) {
+    BatchParsing parsing = new BatchParsing(paths.iterator(), this::parseDocument, executor, maxConcurrency, false);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(parsing, Spliterator.NONNULL), false).onClose(paths::close);
+  }
+
+  /**
+   * Formerly the issues raised by the documents parsed with this parser. A parser no longer keeps any state related to
+   * the documents it parses, so this list is always empty.
+   * @return an empty list
+   * @deprecated use {@link #parseDocument(File)} or {@link #parseDocument(String)} and {@link ParseResult#getIssues()}
+   *             to get the issues of each document.
+   */
+  @Deprecated
+  public List<ValidationIssue> getIssues() {
+    return Collections.emptyList();
+  }
+
+  private JsonNode rootOf(ParseResult result) {
+    return checkStrictness(result).getRoot();
+  }
+
+  ParseResult checkStrictness(ParseResult result) {
+    List<ValidationIssue> issues = result.getIssues();
+    if (strict && !issues.isEmpty()) {
+      throw new ValidationException(result.getRoot(), "Validation errors", issues.stream().map(ValidationException::toException).collect(Collectors.toList()));
+    }
+    return result;
+  }
+
+  /**
+   * @param text the text of the document, if available: the lazy original values refer to it rather than to a copy
+   */
+  private ParseResult parseAndValidate(Function<com.sonar.sslr.impl.Lexer, List<Token>> lexing, @Nullable String text) {
+    return parseAndValidate(charset, lexing, text);
+  }
+
+  private ParseResult parseAndValidate(Charset documentCharset, Function<com.sonar.sslr.impl.Lexer, List<Token>> lexing, @Nullable String text) {
+    long start = System.nanoTime();
+    List<Token> tokens;
+    OriginalValues originalValues = null;
+    if (lazyOriginalValues) {
+      originalValues = text == null ? new OriginalValues() : new OriginalValues(text);
+    }
     try {
-      com.sonar.sslr.impl.Lexer lexer = Lexer.create(charset);
-      return parseAndValidate(lexer.lex(file));
+      tokens = lexing.apply(Lexer.create(documentCharset, originalValues));
     } catch (LexerException e) {
       throw new RecognitionException(e);
     }
+    long lexed = System.nanoTime();
+    JsonNode rootNode = parseAst(tokens, lazySubtrees);
+    long parsed = System.nanoTime();
+    return validate(rootNode, tokens.size(), lexed - start, parsed - lexed, originalValues);
   }
 
-  public JsonNode parse(String text) {
+  List<Token> lex(String text) {
     try {
-      com.sonar.sslr.impl.Lexer lexer = Lexer.create(charset);
-      return parseAndValidate(lexer.lex(text));
+      return Lexer.create(charset, null).lex(text);
     } catch (LexerException e) {
       throw new RecognitionException(e);
     }
   }
 
-  public List<ValidationIssue> getIssues() {
-    return Collections.unmodifiableList(issues);
-  }
-
-  private JsonNode parseAndValidate(List<Token> tokens) {
-    JsonNode rootNode = parseAst(tokens);
-    issues.addAll(validator.validate(rootNode));
+  /**
+   * Validate the syntax tree of a document, then complete it with its EOF node.
+   * @param rootNode the root node of the document, as returned by {@link #parseAst(List)}
+   */
+  ParseResult validate(JsonNode rootNode, int tokenCount, long lexingNanos, long parsingNanos, @Nullable OriginalValues originalValues) {
+    long start = System.nanoTime();
+    List<ValidationIssue> issues = validator.validate(rootNode);
+    long validated = System.nanoTime();
     if (!strict || issues.isEmpty()) {
       // Add the EOF node to preserve comments on last line
       AstNode eof = rootNode.getNextSibling();
       rootNode.addChild(new SyntaxNode(eof.getType(), eof.getName(), eof.getToken()));
-      return rootNode;
-    } else {
-      throw new ValidationException(rootNode, "Validation errors", issues.stream().map(ValidationException::toException).collect(Collectors.toList()));
     }
+    return new ParseResult(rootNode, issues, tokenCount, lexingNanos, parsingNanos, validated - start, originalValues);
+  }
+
+  Charset getCharset() {
+    return charset;
+  }
+
+  JsonNodeFactory getNodeFactory() {
+    return nodeFactory;
+  }
+
+  boolean isStrict() {
+    return strict;
+  }
+
+  JsonNode parseAst(List<Token> tokens) {
+    return parseAst(tokens, false);
+  }
+
+  /**
+   * @param lazy whether to build the children of the collections on first access, which requires the recursive-descent
+   *             engine: the tree is then built by this engine whatever the configured engine, since they all build the
+   *             same tree
+   */
+  private JsonNode parseAst(List<Token> tokens, boolean lazy) {
+    JsonNode root = null;
+    if (lazy || engine == Engine.RECURSIVE_DESCENT) {
+      root = RecursiveDescentParser.parse(tokens, nodeFactory, lazy);
+    }
+    if (root == null) {
+      // Also used by the recursive-descent engine to report syntax errors
+      root = JsonAstCreator.create(Machine.parse(tokens, YamlGrammar.compiled()), tokens, nodeFactory);
+    }
+    return (JsonNode) root.getFirstChild();
   }
 
-  private JsonNode parseAst(List<Token> tokens) {
-    Grammar grammar = YamlGrammar.create().build();
-    Rule rootRule = grammar.getRootRule();
-    CompiledGrammar g = MutableGrammarCompiler.compile((CompilableGrammarRule) rootRule);
-    return (JsonNode) JsonAstCreator.create(Machine.parse(tokens, g), tokens).getFirstChild();
+  /**
+   * The algorithms available to build the syntax tree of a document from its tokens. All of them produce the same
+   * syntax tree and report the same syntax errors.
+   */
+  public enum Engine {
+    /**
+     * Run the generic SSLR parsing machine with the {@link YamlGrammar}, then convert its parse tree into a syntax tree.
+     */
+    SSLR,
+    /**
+     * Build the syntax tree in a single pass over the tokens with a parser dedicated to the {@link YamlGrammar}. The
+     * SSLR parsing machine is only used to report errors on documents that do not match the grammar.
+     */
+    RECURSIVE_DESCENT
   }
 
   public static final class Builder {
@@ -116,6 +372,12 @@ public class YamlParser {
     private Charset charset = Charset.defaultCharset();
     private RuleDefinition rootRule;
     private boolean strict = false;
+    private Engine engine = Engine.SSLR;
+    private JsonNodeFactory nodeFactory = JsonNodeFactory.DEFAULT;
+    private Executor executor = ForkJoinPool.commonPool();
+    private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+    private boolean lazyOriginalValues = false;
+    private boolean lazySubtrees = false;
 
     public Builder withCharset(Charset charset) {
       this.charset = charset;
@@ -132,13 +394,76 @@ public class YamlParser {
       return this;
     }
 
-    public Builder withGrammar(RuleDefinition rule) {
+    public Builder withGrammar(@Nullable RuleDefinition rule) {
       this.rootRule = rule;
       return this;
     }
 
+    /**
+     * Set the algorithm used to build the syntax tree of the documents. Defaults to {@link Engine#SSLR}.
+     */
+    public Builder withEngine(Engine engine) {
+      this.engine = engine;
+      return this;
+    }
+
+    /**
+     * Set the factory of the nodes of the syntax tree. Defaults to {@link JsonNodeFactory#DEFAULT}.
+     */
+    public Builder withNodeFactory(JsonNodeFactory nodeFactory) {
+      this.nodeFactory = nodeFactory;
+      return this;
+    }
+
+    /**
+     * Set the executor used by {@link YamlParser#parseAll} to parse files concurrently. Defaults to the common
+     * {@link ForkJoinPool}.
+     */
+    public Builder withExecutor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of files that {@link YamlParser#parseAll} parses concurrently or holds while they wait to
+     * be consumed. Defaults to the number of available processors.
+     */
+    public Builder withMaxConcurrency(int maxConcurrency) {
+      if (maxConcurrency < 1) {
+        throw new IllegalArgumentException("The maximum concurrency must be strictly positive, got: " + maxConcurrency);
+      }
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+
+    /**
+     * Keep the original value of the scalars as slices of the text of the document, instead of a copy in each token.
+     * This reduces the memory retained by documents with long scalars, but the original value of a scalar must then be
+     * retrieved with {@link ParseResult#getOriginalValue(Token)}: {@link Token#getOriginalValue()} returns the
+     * value of the scalar. Defaults to {@code false}.
+     */
+    public Builder withLazyOriginalValues(boolean lazy) {
+      this.lazyOriginalValues = lazy;
+      return this;
+    }
+
+    /**
+     * Build the children of the mappings and sequences of the syntax tree only when they are first accessed, for
+     * instance by {@link JsonNode#at(String)} or {@link JsonNode#getChildren()}. The documents are still checked
+     * against the YAML grammar while parsing, and the validation of the tree gives the same results, but it builds the
+     * parts of the tree that the grammar visits. This saves time and memory when only a few sections of each document
+     * are looked at. The documents are parsed with the {@link Engine#RECURSIVE_DESCENT} engine, and the tokens of each
+     * document are retained with its tree. Only the collections that the node factory creates as
+     * {@link CollectionNode}, such as the default {@link org.sonar.sslr.yaml.grammar.impl.ObjectNode} and
+     * {@link org.sonar.sslr.yaml.grammar.impl.ArrayNode}, are built lazily. Defaults to {@code false}.
+     */
+    public Builder withLazySubtrees(boolean lazy) {
+      this.lazySubtrees = lazy;
+      return this;
+    }
+
     public YamlParser build() {
-      return new YamlParser(this.charset, rootRule, strict);
+      return new YamlParser(this);
     }
 
   }
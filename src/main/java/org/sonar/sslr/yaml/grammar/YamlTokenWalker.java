@@ -0,0 +1,377 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import java.util.Iterator;
+import javax.annotation.Nullable;
+import org.sonar.sslr.yaml.snakeyaml.parser.Tokens;
+
+import static com.sonar.sslr.api.GenericTokenType.EOF;
+
+/**
+ * Walks the tokens of a YAML document in a single pass, following the {@link YamlGrammar} as the
+ * {@link RecursiveDescentParser} does, and reports its structure to a {@link Listener}. The syntax tokens such as
+ * {@code KEY} or {@code BLOCK_END} are consumed by the walker, and only reported when they carry some structure.
+ * <p>
+ * This is the common ground of the {@link YamlEventParser} and of the {@link CompactDocument}.
+ */
+final class YamlTokenWalker {
+  private final Iterator<Token> tokens;
+  private final Listener listener;
+  private Token next;
+
+  YamlTokenWalker(Iterator<Token> tokens, Listener listener) {
+    this.tokens = tokens;
+    this.listener = listener;
+  }
+
+  /**
+   * Walk the whole document.
+   * @throws RecognitionException if the document does not match the YAML grammar
+   */
+  void walk() {
+    if (isBlockContentStart(peek())) {
+      blockContent();
+    }
+    expect(EOF);
+  }
+
+  private void blockOrIndentless() {
+    if (peek() == Tokens.BLOCK_ENTRY) {
+      indentlessSequence();
+    } else {
+      blockContent();
+    }
+  }
+
+  private void blockContent() {
+    TokenType type = peek();
+    if (type == Tokens.BLOCK_SEQUENCE_START) {
+      blockSequence();
+    } else if (type == Tokens.BLOCK_MAPPING_START) {
+      blockMapping();
+    } else {
+      flowContent();
+    }
+  }
+
+  private void flowContent() {
+    TokenType type = peek();
+    if (type == Tokens.FLOW_SEQUENCE_START) {
+      flowSequence();
+    } else if (type == Tokens.FLOW_MAPPING_START) {
+      flowMapping();
+    } else if (isScalar(type)) {
+      listener.scalar(consume());
+    } else {
+      throw mismatch();
+    }
+  }
+
+  private void indentlessSequence() {
+    listener.startSequence(next);
+    int index = 0;
+    do {
+      consume();
+      if (isBlockContentStart(peek())) {
+        listener.startElement(index++);
+        blockContent();
+        listener.endElement();
+      }
+    } while (peek() == Tokens.BLOCK_ENTRY);
+    listener.endSequence();
+  }
+
+  private void blockSequence() {
+    listener.startSequence(consume());
+    int index = 0;
+    while (peek() == Tokens.BLOCK_ENTRY) {
+      consume();
+      if (isBlockContentStart(peek())) {
+        listener.startElement(index++);
+        blockContent();
+        listener.endElement();
+      }
+    }
+    expect(Tokens.BLOCK_END);
+    listener.endSequence();
+  }
+
+  private void blockMapping() {
+    listener.startMapping(consume());
+    while (peek() == Tokens.KEY) {
+      property(true);
+    }
+    expect(Tokens.BLOCK_END);
+    listener.endMapping();
+  }
+
+  private void flowSequence() {
+    listener.startSequence(consume());
+    int index = 0;
+    while (isFlowSequenceEntryStart(peek())) {
+      listener.startElement(index++);
+      if (peek() == Tokens.KEY) {
+        listener.startPair(next);
+        property(false);
+        listener.endPair();
+      } else {
+        flowContent();
+      }
+      listener.endElement();
+      if (peek() != Tokens.FLOW_ENTRY) {
+        break;
+      }
+      consume();
+    }
+    expect(Tokens.FLOW_SEQUENCE_END);
+    listener.endSequence();
+  }
+
+  private void flowMapping() {
+    listener.startMapping(consume());
+    while (isFlowSequenceEntryStart(peek())) {
+      if (peek() == Tokens.KEY) {
+        property(false);
+      } else {
+        listener.startLoneKey();
+        key(false);
+        listener.endLoneKey();
+      }
+      if (peek() != Tokens.FLOW_ENTRY) {
+        break;
+      }
+      consume();
+    }
+    expect(Tokens.FLOW_MAPPING_END);
+    listener.endMapping();
+  }
+
+  /**
+   * A KEY token, followed by an optional key and an optional VALUE token with an optional value.
+   */
+  private void property(boolean block) {
+    consume();
+    Token key = null;
+    boolean scalarKey = false;
+    if (block ? isBlockOrIndentlessStart(peek()) : isFlowContentStart(peek())) {
+      key = next;
+      scalarKey = key(block);
+    }
+    Token indicator = peek() == Tokens.VALUE ? consume() : null;
+    listener.startValue(key, scalarKey, indicator);
+    if (indicator != null && (block ? isBlockOrIndentlessStart(peek()) : isFlowContentStart(peek()))) {
+      if (block) {
+        blockOrIndentless();
+      } else {
+        flowContent();
+      }
+    }
+    listener.endValue(key);
+  }
+
+  /**
+   * A key, which is either a scalar or a collection.
+   * @return whether the key is a scalar
+   */
+  private boolean key(boolean block) {
+    if (isScalar(peek())) {
+      listener.key(consume());
+      return true;
+    }
+    listener.startCollectionKey(next);
+    if (block) {
+      blockOrIndentless();
+    } else {
+      flowContent();
+    }
+    listener.endCollectionKey();
+    return false;
+  }
+
+  private void expect(TokenType type) {
+    if (peek() != type) {
+      throw mismatch();
+    }
+    consume();
+  }
+
+  private TokenType peek() {
+    if (next == null) {
+      next = tokens.next();
+    }
+    return next.getType();
+  }
+
+  private Token consume() {
+    peek();
+    Token token = next;
+    next = null;
+    return token;
+  }
+
+  private RecognitionException mismatch() {
+    return new RecognitionException(next.getLine(), "Parse error at line " + next.getLine() + " column " + next.getColumn()
+      + ": unexpected " + next.getType().getName() + listener.location());
+  }
+
+  private static boolean isScalar(TokenType type) {
+    return type == Tokens.STRING || type == Tokens.INTEGER || type == Tokens.FLOAT || type == Tokens.TRUE
+      || type == Tokens.FALSE || type == Tokens.NULL;
+  }
+
+  private static boolean isFlowContentStart(TokenType type) {
+    return isScalar(type) || type == Tokens.FLOW_SEQUENCE_START || type == Tokens.FLOW_MAPPING_START;
+  }
+
+  private static boolean isFlowSequenceEntryStart(TokenType type) {
+    return type == Tokens.KEY || isFlowContentStart(type);
+  }
+
+  private static boolean isBlockContentStart(TokenType type) {
+    return isFlowContentStart(type) || type == Tokens.BLOCK_SEQUENCE_START || type == Tokens.BLOCK_MAPPING_START;
+  }
+
+  private static boolean isBlockOrIndentlessStart(TokenType type) {
+    return type == Tokens.BLOCK_ENTRY || isBlockContentStart(type);
+  }
+
+  /**
+   * Receives the structure of a document, in document order. All the methods do nothing by default.
+   */
+  interface Listener {
+    /**
+     * A block or flow mapping starts.
+     * @param token the first token of the mapping
+     */
+    default void startMapping(Token token) {
+      // Ignored by default
+    }
+
+    default void endMapping() {
+      // Ignored by default
+    }
+
+    /**
+     * A block, indentless or flow sequence starts.
+     * @param token the first token of the sequence, which is a {@code BLOCK_ENTRY} for indentless sequences
+     */
+    default void startSequence(Token token) {
+      // Ignored by default
+    }
+
+    default void endSequence() {
+      // Ignored by default
+    }
+
+    /**
+     * An entry of a sequence starts. The empty entries of block sequences are skipped, and not counted.
+     * @param index the index of the entry
+     */
+    default void startElement(int index) {
+      // Ignored by default
+    }
+
+    default void endElement() {
+      // Ignored by default
+    }
+
+    /**
+     * A single-pair mapping of a flow sequence starts, such as {@code [a: 1]}. Its property follows.
+     * @param token the {@code KEY} token of the pair
+     */
+    default void startPair(Token token) {
+      // Ignored by default
+    }
+
+    default void endPair() {
+      // Ignored by default
+    }
+
+    /**
+     * A scalar value.
+     * @param token the token of the scalar
+     */
+    default void scalar(Token token) {
+      // Ignored by default
+    }
+
+    /**
+     * A scalar key, of a property or of a lone key.
+     * @param token the token of the key
+     */
+    default void key(Token token) {
+      // Ignored by default
+    }
+
+    /**
+     * A key that is a collection starts, which is then walked as any other collection.
+     * @param token the first token of the collection
+     */
+    default void startCollectionKey(Token token) {
+      // Ignored by default
+    }
+
+    default void endCollectionKey() {
+      // Ignored by default
+    }
+
+    /**
+     * The key of a property has been walked, and its value follows if it has any.
+     * @param key the scalar token of the key, the first token of a collection key, or {@code null} if there is no key
+     * @param scalarKey whether the key is a scalar
+     * @param indicator the {@code VALUE} token, or {@code null} if the property has neither this token nor a value
+     */
+    default void startValue(@Nullable Token key, boolean scalarKey, @Nullable Token indicator) {
+      // Ignored by default
+    }
+
+    /**
+     * The value of a property has been walked.
+     * @param key the same key as in {@link #startValue(Token, boolean, Token)}
+     */
+    default void endValue(@Nullable Token key) {
+      // Ignored by default
+    }
+
+    /**
+     * An entry of a flow mapping without {@code KEY} nor value starts, such as {@code a} in {@code {a, b: 1}}. Its key
+     * follows.
+     */
+    default void startLoneKey() {
+      // Ignored by default
+    }
+
+    default void endLoneKey() {
+      // Ignored by default
+    }
+
+    /**
+     * Describe the current location in the document, for the error messages.
+     * @return the description, appended to the message, or an empty string
+     */
+    default String location() {
+      return "";
+    }
+  }
+}
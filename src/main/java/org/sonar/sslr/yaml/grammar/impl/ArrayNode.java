@@ -19,42 +19,103 @@
  */
 package org.sonar.sslr.yaml.grammar.impl;
 
-import com.fasterxml.jackson.core.JsonPointer;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import org.sonar.sslr.yaml.grammar.CollectionNode;
 import org.sonar.sslr.yaml.grammar.JsonNode;
 
 import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_ARRAY_ELEMENT;
 import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_ARRAY_ELEMENT;
 
-public class ArrayNode extends JsonNode {
+public class ArrayNode extends CollectionNode {
+  /**
+   * The element wrappers ({@code BLOCK_ARRAY_ELEMENT} or {@code FLOW_ARRAY_ELEMENT} children), in document order. Built
+   * on first access, along with the position of each {@link ElementNode}, and reset when a child is added. Changes made
+   * directly to the list returned by {@link #getChildren()} are not detected.
+   */
+  private volatile AstNode[] index;
+
   public ArrayNode(AstNodeType type, String name, @Nullable Token token) {
     super(type, name, token);
   }
 
+  @Override
+  public void addChild(AstNode child) {
+    super.addChild(child);
+    index = null;
+  }
+
   @Override
   public boolean isArray() {
     return true;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The returned list is unmodifiable.
+   */
   @Override
   public List<JsonNode> elements() {
-    return getChildren(BLOCK_ARRAY_ELEMENT, FLOW_ARRAY_ELEMENT).stream().map(n -> (JsonNode)n.getFirstChild()).collect(Collectors.toList());
+    AstNode[] wrappers = index();
+    JsonNode[] result = new JsonNode[wrappers.length];
+    for (int i = 0; i < wrappers.length; ++i) {
+      result[i] = (JsonNode) wrappers[i].getFirstChild();
+    }
+    return Collections.unmodifiableList(Arrays.asList(result));
   }
 
   @Override
-  protected JsonNode internalAt(JsonPointer ptr) {
-    int index = ptr.getMatchingIndex();
-    int i=0;
-    for (AstNode child: getChildren(FLOW_ARRAY_ELEMENT, BLOCK_ARRAY_ELEMENT)) {
-      if (i++ == index) {
-        return (JsonNode)child.getFirstChild();
+  protected JsonNode internalAt(String property, int i) {
+    AstNode[] wrappers = index();
+    if (i < 0 || i >= wrappers.length) {
+      return MissingNode.MISSING;
+    }
+    return (JsonNode) wrappers[i].getFirstChild();
+  }
+
+  /**
+   * Get the position of an element wrapper among the elements of this array.
+   * <p>
+   * An {@link ElementNode} knows its position once the elements are indexed. Other wrappers, as created by custom node
+   * factories, are searched linearly.
+   *
+   * @param wrapper a {@code BLOCK_ARRAY_ELEMENT} or {@code FLOW_ARRAY_ELEMENT} child of this node
+   * @return the position of the element, or -1 if the node is not an element of this array
+   */
+  public int indexOf(AstNode wrapper) {
+    AstNode[] wrappers = index();
+    if (wrapper instanceof ElementNode) {
+      int position = ((ElementNode) wrapper).getPosition();
+      // The position is stale if the wrapper was since added to another array
+      if (position >= 0 && position < wrappers.length && wrappers[position] == wrapper) {
+        return position;
+      }
+    }
+    for (int i = 0; i < wrappers.length; ++i) {
+      if (wrappers[i] == wrapper) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private AstNode[] index() {
+    AstNode[] result = index;
+    if (result == null) {
+      result = getChildren(BLOCK_ARRAY_ELEMENT, FLOW_ARRAY_ELEMENT).toArray(new AstNode[0]);
+      for (int i = 0; i < result.length; ++i) {
+        if (result[i] instanceof ElementNode) {
+          ((ElementNode) result[i]).setPosition(i);
+        }
       }
+      index = result;
     }
-    return MissingNode.MISSING;
+    return result;
   }
 }
@@ -0,0 +1,48 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar.impl;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import javax.annotation.Nullable;
+
+/**
+ * The wrapper of an element of an array ({@code BLOCK_ARRAY_ELEMENT} or {@code FLOW_ARRAY_ELEMENT}), which knows its
+ * position among the elements once its {@link ArrayNode} has indexed them.
+ */
+public class ElementNode extends SyntaxNode {
+  private int position = -1;
+
+  public ElementNode(AstNodeType type, String name, @Nullable Token token) {
+    super(type, name, token);
+  }
+
+  /**
+   * Get the position of this element in its array, as of the last time the array indexed its elements.
+   * @return the position, or -1 if the array did not index its elements yet
+   */
+  int getPosition() {
+    return position;
+  }
+
+  void setPosition(int position) {
+    this.position = position;
+  }
+}
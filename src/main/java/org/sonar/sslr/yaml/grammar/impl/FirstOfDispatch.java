@@ -0,0 +1,244 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar.impl;
+
+import com.sonar.sslr.api.AstNodeType;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.PropertyDescription;
+import org.sonar.sslr.yaml.grammar.ValidationRule;
+import org.sonar.sslr.yaml.grammar.YamlGrammar;
+
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_MAPPING;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_SEQUENCE;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_MAPPING;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_SEQUENCE;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.INDENTLESS_SEQUENCE;
+import static org.sonar.sslr.yaml.grammar.YamlGrammar.SCALAR;
+
+/**
+ * Lookup tables telling which alternatives of a {@link FirstOfValidation} can match a node, from the type of the node
+ * (scalar, array or object) and the values of the discriminant properties of objects. An alternative is ruled out only
+ * when it is certain to fail: alternatives that cannot be analyzed remain candidates for every node.
+ * <p>
+ * The candidates are returned as a bit mask of the indexes of the alternatives, so grammars with more than 64
+ * alternatives in a single {@code firstOf()} are not dispatched.
+ */
+final class FirstOfDispatch {
+  private static final int MAX_ALTERNATIVES = Long.SIZE;
+  private static final Set<AstNodeType> OBJECT_TYPES = Collections.unmodifiableSet(EnumSet.of(FLOW_MAPPING, BLOCK_MAPPING));
+  private static final Set<AstNodeType> ARRAY_TYPES = Collections.unmodifiableSet(EnumSet.of(FLOW_SEQUENCE, BLOCK_SEQUENCE, INDENTLESS_SEQUENCE));
+  private static final Set<AstNodeType> SCALAR_TYPES = Collections.singleton(SCALAR);
+
+  private final long all;
+  private final Map<AstNodeType, Long> byType = new HashMap<>();
+  private final Map<String, DiscriminantTable> byDiscriminant = new HashMap<>();
+
+  private FirstOfDispatch(ValidationRule[] alternatives) {
+    all = alternatives.length == MAX_ALTERNATIVES ? -1L : (1L << alternatives.length) - 1;
+    for (YamlGrammar type : YamlGrammar.values()) {
+      byType.put(type, 0L);
+    }
+    Map<String, Map<Integer, Set<String>>> discriminants = new HashMap<>();
+    for (int i = 0; i < alternatives.length; ++i) {
+      long bit = 1L << i;
+      Set<AstNodeType> types = acceptedTypes(alternatives[i], new HashSet<>());
+      for (Map.Entry<AstNodeType, Long> entry : byType.entrySet()) {
+        if (types == null || types.contains(entry.getKey())) {
+          entry.setValue(entry.getValue() | bit);
+        }
+      }
+      ObjectValidation object = asObject(alternatives[i], new HashSet<>());
+      if (object != null) {
+        for (PropertyDescription discriminant : object.getDiscriminants()) {
+          Set<String> values = discriminant instanceof PropertyDescriptionImpl
+            ? acceptedValues(((PropertyDescriptionImpl) discriminant).getDelegate(), new HashSet<>())
+            : null;
+          if (values != null) {
+            discriminants.computeIfAbsent(discriminant.getKey(), k -> new HashMap<>()).put(i, values);
+          }
+        }
+      }
+    }
+    for (Map.Entry<String, Map<Integer, Set<String>>> entry : discriminants.entrySet()) {
+      byDiscriminant.put(entry.getKey(), new DiscriminantTable(all, entry.getValue()));
+    }
+  }
+
+  /**
+   * Build the dispatch tables of a set of alternatives. The alternatives must be completely defined, i.e. all the rules
+   * they refer to must have been given their validation.
+   *
+   * @param alternatives the alternatives of a {@link FirstOfValidation}, in order
+   * @return the dispatch tables, or {@code null} if there are too many alternatives to dispatch
+   */
+  @CheckForNull
+  static FirstOfDispatch create(ValidationRule[] alternatives) {
+    if (alternatives.length > MAX_ALTERNATIVES) {
+      return null;
+    }
+    return new FirstOfDispatch(alternatives);
+  }
+
+  /**
+   * @return the mask of all the alternatives
+   */
+  long all() {
+    return all;
+  }
+
+  /**
+   * Find the alternatives that may match a node.
+   *
+   * @param node the node to validate
+   * @return the bit mask of the alternatives that may match the node; all the alternatives if the node is unknown to
+   *         the tables (e.g. a node that has already been decorated by a rule)
+   */
+  long candidates(JsonNode node) {
+    Long byNodeType = byType.get(node.getType());
+    if (byNodeType == null) {
+      return all;
+    }
+    long candidates = byNodeType;
+    if (!byDiscriminant.isEmpty() && node instanceof ObjectNode) {
+      Map<String, JsonNode> properties = node.propertyMap();
+      for (Map.Entry<String, DiscriminantTable> entry : byDiscriminant.entrySet()) {
+        candidates &= entry.getValue().candidates(properties.get(entry.getKey()));
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Compute the node types a rule can match.
+   *
+   * @return the node types, or {@code null} if the rule might match any node
+   */
+  @CheckForNull
+  private static Set<AstNodeType> acceptedTypes(ValidationRule rule, Set<ValidationRule> visited) {
+    if (!visited.add(rule)) {
+      return null; // recursive rule
+    } else if (rule instanceof ObjectValidation) {
+      return OBJECT_TYPES;
+    } else if (rule instanceof ArrayValidation) {
+      return ARRAY_TYPES;
+    } else if (rule instanceof TokenTypeValidation || rule instanceof TokenValueValidation) {
+      return SCALAR_TYPES;
+    } else if (rule instanceof NodeTypeValidation) {
+      return ((NodeTypeValidation) rule).getTypes();
+    } else if (rule instanceof RuleDefinition) {
+      ValidationRule validation = ((RuleDefinition) rule).getValidation();
+      return validation == null ? null : acceptedTypes(validation, visited);
+    } else if (rule instanceof FirstOfValidation) {
+      Set<AstNodeType> union = new HashSet<>();
+      for (ValidationRule alternative : ((FirstOfValidation) rule).getDelegates()) {
+        Set<AstNodeType> types = acceptedTypes(alternative, new HashSet<>(visited));
+        if (types == null) {
+          return null;
+        }
+        union.addAll(types);
+      }
+      return union;
+    }
+    return null;
+  }
+
+  /**
+   * Find the object validation behind a rule.
+   *
+   * @return the object validation, or {@code null} if the rule doesn't validate an object
+   */
+  @CheckForNull
+  private static ObjectValidation asObject(ValidationRule rule, Set<ValidationRule> visited) {
+    if (rule instanceof ObjectValidation) {
+      return (ObjectValidation) rule;
+    } else if (rule instanceof RuleDefinition && visited.add(rule)) {
+      ValidationRule validation = ((RuleDefinition) rule).getValidation();
+      return validation == null ? null : asObject(validation, visited);
+    }
+    return null;
+  }
+
+  /**
+   * Compute the scalar values a rule can match, if it only matches fixed strings.
+   *
+   * @return the values, or {@code null} if the rule matches other values
+   */
+  @CheckForNull
+  private static Set<String> acceptedValues(ValidationRule rule, Set<ValidationRule> visited) {
+    if (!visited.add(rule)) {
+      return null;
+    } else if (rule instanceof TokenValueValidation) {
+      return Collections.singleton(((TokenValueValidation) rule).getContent());
+    } else if (rule instanceof RuleDefinition) {
+      ValidationRule validation = ((RuleDefinition) rule).getValidation();
+      return validation == null ? null : acceptedValues(validation, visited);
+    } else if (rule instanceof FirstOfValidation) {
+      Set<String> union = new HashSet<>();
+      for (ValidationRule alternative : ((FirstOfValidation) rule).getDelegates()) {
+        Set<String> values = acceptedValues(alternative, new HashSet<>(visited));
+        if (values == null) {
+          return null;
+        }
+        union.addAll(values);
+      }
+      return union;
+    }
+    return null;
+  }
+
+  /**
+   * The candidate alternatives for each value of a discriminant property.
+   */
+  private static class DiscriminantTable {
+    private final long unconstrained;
+    private final Map<String, Long> byValue = new HashMap<>();
+
+    private DiscriminantTable(long all, Map<Integer, Set<String>> valuesByAlternative) {
+      long constrained = 0;
+      for (Integer alternative : valuesByAlternative.keySet()) {
+        constrained |= 1L << alternative;
+      }
+      unconstrained = all & ~constrained;
+      for (Map.Entry<Integer, Set<String>> entry : valuesByAlternative.entrySet()) {
+        for (String value : entry.getValue()) {
+          byValue.merge(value, unconstrained | (1L << entry.getKey()), (a, b) -> a | b);
+        }
+      }
+    }
+
+    /**
+     * The alternatives constrained by the discriminant fail when the property is missing or when its value is not one
+     * of their fixed values.
+     */
+    private long candidates(@CheckForNull JsonNode value) {
+      if (value == null || value.getType() != SCALAR) {
+        return unconstrained;
+      }
+      return byValue.getOrDefault(value.getTokenValue(), unconstrained);
+    }
+  }
+}
@@ -26,37 +26,88 @@ import org.sonar.sslr.yaml.grammar.JsonNode;
 import org.sonar.sslr.yaml.grammar.ValidationIssue;
 import org.sonar.sslr.yaml.grammar.ValidationRule;
 
+/**
+ * Validates a node against a list of alternatives, and succeeds with the first alternative that matches. The
+ * alternatives that cannot match a node, given its type and the values of its discriminant properties, are not
+ * evaluated unless none of the other alternatives match (see {@link FirstOfDispatch}).
+ */
 public class FirstOfValidation implements ValidationRule {
   private final ValidationRule[] delegates;
+  private volatile FirstOfDispatch dispatch;
+  private volatile boolean compiled;
 
   public FirstOfValidation(ValidationRule... delegates) {
     this.delegates = delegates;
   }
 
+  ValidationRule[] getDelegates() {
+    return delegates;
+  }
+
+  /**
+   * Build the dispatch tables of the alternatives. This is done when the grammar is built, or on the first validation.
+   */
+  public void compile() {
+    dispatch = FirstOfDispatch.create(delegates);
+    compiled = true;
+  }
+
   @Override
   public boolean visit(JsonNode node, Context context) {
+    if (!compiled) {
+      compile();
+    }
+    FirstOfDispatch table = dispatch;
+    long candidates = table == null ? 0 : table.candidates(node);
+    List<ValidationIssue>[] failures = newFailures();
+    if (candidates != 0 && candidates != table.all()) {
+      // Try the likely alternatives first, and the others only to report why the node doesn't match any of them
+      if (visitAlternatives(node, context, candidates, failures) || visitAlternatives(node, context, ~candidates, failures)) {
+        return true;
+      }
+    } else if (visitAlternatives(node, context, -1L, failures)) {
+      return true;
+    }
     List<ValidationIssue> errorMessages = new ArrayList<>();
-    for (ValidationRule delegate : delegates) {
+    for (int i = 0; i < delegates.length; ++i) {
+      errorMessages.add(new ValidationIssue(node, "Not " + delegates[i], ValidationIssue.Severity.WARNING, failures[i]));
+    }
+    String pointer = node.key().stringValue();
+    if (!pointer.isEmpty()) {
+      pointer = pointer + ": ";
+    }
+    context.recordFailure(node, pointer + "Expected " + this.toString(), errorMessages.toArray(new ValidationIssue[0]));
+    return false;
+  }
+
+  /**
+   * Visit the alternatives selected by a mask, in order, until one of them matches. Alternatives beyond the 64th are
+   * always selected.
+   */
+  private boolean visitAlternatives(JsonNode node, Context context, long mask, List<ValidationIssue>[] failures) {
+    for (int i = 0; i < delegates.length; ++i) {
+      if (i < Long.SIZE && (mask & (1L << i)) == 0) {
+        continue;
+      }
       context.capture();
-      boolean valid = delegate.visit(node, context);
+      boolean valid = delegates[i].visit(node, context);
       List<ValidationIssue> issues = context.captured();
       if (valid) {
         for (ValidationIssue issue : issues) {
           context.recordWarning(issue.getNode(), issue.getMessage());
         }
         return true;
-      } else {
-        errorMessages.add(new ValidationIssue(node, "Not " + delegate, ValidationIssue.Severity.WARNING, issues));
       }
+      failures[i] = issues;
     }
-    String pointer = node.key().stringValue();
-    if (!pointer.isEmpty()) {
-      pointer = pointer + ": ";
-    }
-    context.recordFailure(node, pointer + "Expected " + this.toString(), errorMessages.toArray(new ValidationIssue[0]));
     return false;
   }
 
+  @SuppressWarnings("unchecked")
+  private List<ValidationIssue>[] newFailures() {
+    return new List[delegates.length];
+  }
+
   @Override
   public String toString() {
     return "one of " + Arrays.toString(delegates);
@@ -0,0 +1,131 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar.impl;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matches property keys against the regular expression of a pattern property, with the semantics of
+ * {@link Pattern#matches(String, CharSequence)}. The expression is compiled once, and the most common shapes of
+ * expressions ({@code ".*"}, {@code "^x-.*"} or a plain literal) are matched without running the regular expression
+ * engine.
+ */
+abstract class KeyMatcher {
+  private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+  private final String regex;
+
+  private KeyMatcher(String regex) {
+    this.regex = regex;
+  }
+
+  abstract boolean matches(String key);
+
+  @Override
+  public String toString() {
+    return regex;
+  }
+
+  /**
+   * Compile a regular expression into a matcher.
+   *
+   * @param regex the regular expression to match the whole keys against
+   * @return the matcher
+   * @throws java.util.regex.PatternSyntaxException if the expression is not valid
+   */
+  static KeyMatcher compile(String regex) {
+    Pattern pattern = Pattern.compile(regex);
+    int start = regex.startsWith("^") ? 1 : 0;
+    int end = regex.endsWith("$") && !regex.endsWith("\\$") ? regex.length() - 1 : regex.length();
+    String body = regex.substring(start, end);
+    if (body.endsWith(".*") && isLiteral(body, body.length() - 2)) {
+      return new PrefixMatcher(regex, body.substring(0, body.length() - 2));
+    } else if (isLiteral(body, body.length())) {
+      return new LiteralMatcher(regex, body);
+    }
+    return new RegexMatcher(regex, pattern);
+  }
+
+  private static boolean isLiteral(String text, int end) {
+    for (int i = 0; i < end; ++i) {
+      if (METACHARACTERS.indexOf(text.charAt(i)) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Tells if a character is matched by {@code .}, i.e. if it is not a line terminator.
+   */
+  private static boolean isDotMatch(char c) {
+    return c != '\n' && c != '\r' && c != '\u0085' && c != '\u2028' && c != '\u2029';
+  }
+
+  private static final class PrefixMatcher extends KeyMatcher {
+    private final String prefix;
+
+    private PrefixMatcher(String regex, String prefix) {
+      super(regex);
+      this.prefix = prefix;
+    }
+
+    @Override
+    boolean matches(String key) {
+      if (!key.startsWith(prefix)) {
+        return false;
+      }
+      for (int i = prefix.length(); i < key.length(); ++i) {
+        if (!isDotMatch(key.charAt(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class LiteralMatcher extends KeyMatcher {
+    private final String literal;
+
+    private LiteralMatcher(String regex, String literal) {
+      super(regex);
+      this.literal = literal;
+    }
+
+    @Override
+    boolean matches(String key) {
+      return literal.equals(key);
+    }
+  }
+
+  private static final class RegexMatcher extends KeyMatcher {
+    private final Pattern pattern;
+
+    private RegexMatcher(String regex, Pattern pattern) {
+      super(regex);
+      this.pattern = pattern;
+    }
+
+    @Override
+    boolean matches(String key) {
+      return pattern.matcher(key).matches();
+    }
+  }
+}
@@ -33,6 +33,10 @@ public class NodeTypeValidation extends ValidationBase {
     Collections.addAll(this.types, types);
   }
 
+  Set<AstNodeType> getTypes() {
+    return Collections.unmodifiableSet(types);
+  }
+
   @Override
   public boolean validate(JsonNode node, Context context) {
     if(!types.contains(node.getType())) {
@@ -19,43 +19,62 @@
  */
 package org.sonar.sslr.yaml.grammar.impl;
 
-import com.fasterxml.jackson.core.JsonPointer;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import org.sonar.sslr.yaml.grammar.CollectionNode;
 import org.sonar.sslr.yaml.grammar.JsonNode;
-import org.sonar.sslr.yaml.grammar.Utils;
 
 import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_PROPERTY;
 import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_PROPERTY;
 import static org.sonar.sslr.yaml.grammar.YamlGrammar.ROOT;
-import static org.sonar.sslr.yaml.grammar.YamlGrammar.SCALAR;
 import static org.sonar.sslr.yaml.snakeyaml.parser.Tokens.STRING;
 
-public class ObjectNode extends JsonNode {
+public class ObjectNode extends CollectionNode {
+  /**
+   * Index of the property values by key, in document order. Built on first access, and reset when a child is added.
+   * Changes made directly to the list returned by {@link #getChildren()} are not detected.
+   */
+  private volatile Map<String, JsonNode> index;
+  /**
+   * Target of this reference in the current document, resolved on first access.
+   */
+  private volatile JsonNode resolved;
+
   public ObjectNode(AstNodeType type, String name, @Nullable Token token) {
     super(type, name, token);
   }
 
   @Override
-  protected JsonNode internalAt(JsonPointer ptr) {
-    String propertyName = ptr.getMatchingProperty().replace("~1", "/").replace("~0", "~");
-    JsonNode property = getJsonChildren(FLOW_PROPERTY, BLOCK_PROPERTY).stream().filter(n -> n.getFirstChild(SCALAR).getTokenValue().equals(propertyName)).findFirst().orElse(MissingNode.MISSING);
-    return property.value();
+  public void addChild(AstNode child) {
+    super.addChild(child);
+    index = null;
+    resolved = null;
+  }
+
+  @Override
+  protected void invalidate() {
+    resolved = null;
+  }
+
+  @Override
+  protected JsonNode internalAt(String property, int index) {
+    return index().getOrDefault(property, MissingNode.MISSING);
   }
 
   @Override
   public JsonNode get(String fieldName) {
-    String pointer = Utils.escapeJsonPointer(fieldName);
-    return this.at("/" + pointer);
+    return index().getOrDefault(fieldName, MissingNode.MISSING);
   }
 
   @Override
@@ -79,24 +98,36 @@ public class ObjectNode extends JsonNode {
     return result;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The returned map is unmodifiable, and iterates over the properties in document order. If a key appears several
+   * times, the first property wins, as in {@link #get(String)}.
+   */
   @Override
   public Map<String, JsonNode> propertyMap() {
-    Map<String, JsonNode> result = new HashMap<>();
-    for (JsonNode child : getJsonChildren(BLOCK_PROPERTY, FLOW_PROPERTY)) {
-      JsonNode keyNode = child.key(); // TODO - if the key is not a scalar, this will give inconsistent results
-      JsonNode valueNode = child.value();
-      result.put(keyNode.getTokenValue(), valueNode);
-    }
-    return result;
+    return index();
   }
 
   @Override
   public <T> Map<String, T> propertyMap(Function<JsonNode, T> mapper) {
     Map<String, T> result = new HashMap<>();
-    for (JsonNode child : getJsonChildren(BLOCK_PROPERTY, FLOW_PROPERTY)) {
-      JsonNode keyNode = child.key(); // TODO - if the key is not a scalar, this will give inconsistent results
-      JsonNode valueNode = child.value();
-      result.put(keyNode.getTokenValue(), mapper.apply(valueNode));
+    for (Map.Entry<String, JsonNode> entry : index().entrySet()) {
+      result.put(entry.getKey(), mapper.apply(entry.getValue()));
+    }
+    return result;
+  }
+
+  private Map<String, JsonNode> index() {
+    Map<String, JsonNode> result = index;
+    if (result == null) {
+      Map<String, JsonNode> values = new LinkedHashMap<>();
+      for (JsonNode child : getJsonChildren(BLOCK_PROPERTY, FLOW_PROPERTY)) {
+        JsonNode keyNode = child.key(); // TODO - if the key is not a scalar, this will give inconsistent results
+        values.putIfAbsent(keyNode.getTokenValue(), child.value());
+      }
+      result = Collections.unmodifiableMap(values);
+      index = result;
     }
     return result;
   }
@@ -108,8 +139,9 @@ public class ObjectNode extends JsonNode {
   }
 
   /**
-   * Resolve this reference to the actual node. This only supports references to the current document.
-   * If this node is not a reference, returns {@code this}.
+   * Resolve this reference to the actual node. This only supports references to the current document, use a
+   * {@link org.sonar.sslr.yaml.grammar.ReferenceResolver} to resolve references to other documents. The target is
+   * memoized. If this node is not a reference, returns {@code this}.
    *
    * @return the resolved node
    */
@@ -118,15 +150,20 @@ public class ObjectNode extends JsonNode {
     if (!isRef()) {
       return this;
     }
-    String p = at("/$ref").getTokenValue();
-    if (!p.startsWith("#")) {
-      throw new IllegalArgumentException("Cannot resolve references to other documents: \"" + p + "\"");
+    JsonNode result = resolved;
+    if (result == null) {
+      String p = at("/$ref").getTokenValue();
+      if (!p.startsWith("#")) {
+        throw new IllegalArgumentException("Cannot resolve references to other documents: \"" + p + "\"");
+      }
+      AstNode root = this;
+      while (root.getParent() != null && root.getParent().getType() != ROOT) {
+        root = root.getParent();
+      }
+      result = ((JsonNode) root).at(p.substring(1));
+      resolved = result;
     }
-    AstNode root = this;
-    while (root.getParent() != null && root.getParent().getType() != ROOT) {
-      root = root.getParent();
-    }
-    return ((JsonNode)root).at(p.substring(1));
+    return result;
   }
 
 }
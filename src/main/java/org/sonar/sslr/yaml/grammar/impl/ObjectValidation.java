@@ -21,12 +21,13 @@ package org.sonar.sslr.yaml.grammar.impl;
 
 import com.google.common.collect.Sets;
 import com.sonar.sslr.api.AstNode;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import org.sonar.sslr.yaml.grammar.JsonNode;
 import org.sonar.sslr.yaml.grammar.ParsingException;
 import org.sonar.sslr.yaml.grammar.PropertyDescription;
@@ -48,11 +49,11 @@ import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_MAPPING;
 public class ObjectValidation extends ValidationBase {
   private Set<String> mandatoryProperties = new HashSet<>();
   private Map<String, PropertyDescription> namedRules = new HashMap<>();
-  private Map<String, ValidationRule> patternRules = new LinkedHashMap<>();
+  private Map<String, PatternProperty> patternRules = new LinkedHashMap<>();
 
   public void addProperty(PropertyDescription rule) {
     if (rule.isPattern()) {
-      patternRules.put(rule.getKey(), rule);
+      patternRules.put(rule.getKey(), new PatternProperty(rule));
     } else {
       boolean isNew = namedRules.put(rule.getKey(), rule) == null;
       if (!isNew) {
@@ -64,6 +65,13 @@ public class ObjectValidation extends ValidationBase {
     }
   }
 
+  /**
+   * @return the discriminant properties of the object, which must be present and valid for the object to match
+   */
+  Collection<PropertyDescription> getDiscriminants() {
+    return namedRules.values().stream().filter(PropertyDescription::isDiscriminant).collect(Collectors.toList());
+  }
+
   @Override
   public String toString() {
     return "OBJECT";
@@ -116,9 +124,9 @@ public class ObjectValidation extends ValidationBase {
       boolean valid = rule.visit(value, context);
       return valid || !rule.isDiscriminant();
     } else  {
-      for (Map.Entry<String, ValidationRule> entry : patternRules.entrySet()) {
-        if (Pattern.matches(entry.getKey(), key)) {
-          entry.getValue().visit(value, context);
+      for (PatternProperty patternRule : patternRules.values()) {
+        if (patternRule.matcher.matches(key)) {
+          patternRule.rule.visit(value, context);
           return true;
         }
       }
@@ -126,4 +134,18 @@ public class ObjectValidation extends ValidationBase {
       return true; // non-blocking: the object still has the correct expected structure
     }
   }
+
+  /**
+   * A pattern property, along with the matcher compiled from its regular expression when the grammar is built.
+   */
+  private static class PatternProperty {
+    private final KeyMatcher matcher;
+    private final ValidationRule rule;
+
+    private PatternProperty(PropertyDescription rule) {
+      KeyMatcher compiled = rule instanceof PropertyDescriptionImpl ? ((PropertyDescriptionImpl) rule).getMatcher() : null;
+      this.matcher = compiled == null ? KeyMatcher.compile(rule.getKey()) : compiled;
+      this.rule = rule;
+    }
+  }
 }
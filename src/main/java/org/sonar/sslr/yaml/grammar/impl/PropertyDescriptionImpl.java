@@ -19,6 +19,7 @@
  */
 package org.sonar.sslr.yaml.grammar.impl;
 
+import javax.annotation.Nullable;
 import org.sonar.sslr.yaml.grammar.JsonNode;
 import org.sonar.sslr.yaml.grammar.PropertyDescription;
 import org.sonar.sslr.yaml.grammar.ValidationRule;
@@ -29,6 +30,8 @@ public class PropertyDescriptionImpl implements PropertyDescription {
   private final boolean mandatory;
   private final ValidationRule delegate;
   private final boolean discriminant;
+  @Nullable
+  private final KeyMatcher matcher;
 
   public PropertyDescriptionImpl(String key, boolean pattern, boolean mandatory, boolean discriminant, ValidationRule delegate) {
     this.key = key;
@@ -36,6 +39,27 @@ public class PropertyDescriptionImpl implements PropertyDescription {
     this.mandatory = mandatory;
     this.discriminant = discriminant;
     this.delegate = delegate;
+    this.matcher = pattern ? KeyMatcher.compile(key) : null;
+  }
+
+  /**
+   * Tells if a property key is matched by this description: the key must match the regular expression of a pattern
+   * property, or be equal to the key of a named property.
+   *
+   * @param key the property key
+   * @return {@code true} if the key is matched
+   */
+  public boolean matches(String key) {
+    return matcher == null ? this.key.equals(key) : matcher.matches(key);
+  }
+
+  ValidationRule getDelegate() {
+    return delegate;
+  }
+
+  @Nullable
+  KeyMatcher getMatcher() {
+    return matcher;
   }
 
   @Override
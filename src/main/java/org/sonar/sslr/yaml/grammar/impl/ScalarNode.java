@@ -19,15 +19,39 @@
  */
 package org.sonar.sslr.yaml.grammar.impl;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import org.sonar.sslr.yaml.grammar.JsonNode;
 import org.sonar.sslr.yaml.snakeyaml.parser.Tokens;
 
 import static org.sonar.sslr.yaml.snakeyaml.parser.Tokens.NULL;
 
+/**
+ * A scalar value. The numeric conversions decode the YAML 1.1 forms of integers (decimal, {@code 0x} hexadecimal,
+ * {@code 0} or {@code 0o} octal, {@code 0b} binary, with optional {@code _} separators) and floats (including
+ * {@code .inf} and {@code .nan}). The value is decoded once, on first access, and then kept with the node. Values that
+ * are not numbers make the conversions throw a {@link NumberFormatException}, and so do floats with a fractional part
+ * for the integer conversions.
+ */
 public class ScalarNode extends JsonNode {
+  private static final Object NOT_A_NUMBER = new Object();
+  // digits that can be parsed as a long whatever the radix (up to 16)
+  private static final int MAX_LONG_DIGITS = 15;
+  private static final Set<String> INFINITY = ImmutableSet.of("inf", "Inf", "INF");
+  private static final Set<String> NAN = ImmutableSet.of("nan", "NaN", "NAN");
+  private static final Pattern PATTERN_FLOAT = Pattern.compile("[-+]?([0-9][0-9_]*(\\.[0-9_]*)?|\\.[0-9][0-9_]*)([eE][-+]?[0-9]+)?");
+
+  /** A {@link Long}, a {@link BigInteger} too large for a long, a {@link Double}, or {@link #NOT_A_NUMBER}. */
+  private volatile Object number;
+  private volatile BigDecimal decimal;
+
   public ScalarNode(AstNodeType type, String name, @Nullable Token token) {
     super(type, name, token);
   }
@@ -39,12 +63,73 @@ public class ScalarNode extends JsonNode {
 
   @Override
   public double floatValue() {
-    return Float.parseFloat(getTokenValue());
+    return doubleValue();
+  }
+
+  @Override
+  public double doubleValue() {
+    return number().doubleValue();
   }
 
   @Override
   public int intValue() {
-    return Integer.parseInt(getTokenValue());
+    long value = longValue();
+    if ((int) value != value) {
+      throw new NumberFormatException("Out of int range: " + getTokenValue());
+    }
+    return (int) value;
+  }
+
+  @Override
+  public long longValue() {
+    Number value = number();
+    if (value instanceof Long) {
+      return value.longValue();
+    }
+    BigInteger integer = bigIntegerValue();
+    if (integer.bitLength() > 63) {
+      throw new NumberFormatException("Out of long range: " + getTokenValue());
+    }
+    return integer.longValue();
+  }
+
+  /**
+   * {@inheritDoc}
+   * Floats are accepted if they have no fractional part, such as {@code 1.0} or {@code 1e3}.
+   */
+  @Override
+  public BigInteger bigIntegerValue() {
+    Number value = number();
+    if (value instanceof BigInteger) {
+      return (BigInteger) value;
+    } else if (value instanceof Long) {
+      return BigInteger.valueOf(value.longValue());
+    }
+    try {
+      return decimalValue().toBigIntegerExact();
+    } catch (ArithmeticException e) {
+      throw new NumberFormatException("Not an integer: " + getTokenValue());
+    }
+  }
+
+  @Override
+  public BigDecimal decimalValue() {
+    BigDecimal value = decimal;
+    if (value == null) {
+      Number n = number();
+      if (n instanceof Long) {
+        value = BigDecimal.valueOf(n.longValue());
+      } else if (n instanceof BigInteger) {
+        value = new BigDecimal((BigInteger) n);
+      } else if (Double.isNaN(n.doubleValue()) || Double.isInfinite(n.doubleValue())) {
+        throw new NumberFormatException("Not a finite number: " + getTokenValue());
+      } else {
+        // not from the double, to keep all the written digits
+        value = new BigDecimal(getTokenValue().replace("_", ""));
+      }
+      decimal = value;
+    }
+    return value;
   }
 
   @Override
@@ -61,4 +146,105 @@ public class ScalarNode extends JsonNode {
   public boolean isNull() {
     return getToken().getType() == NULL;
   }
+
+  private Number number() {
+    Object value = number;
+    if (value == null) {
+      value = decodeNumber(getTokenValue());
+      if (value == null) {
+        value = NOT_A_NUMBER;
+      }
+      number = value;
+    }
+    if (value == NOT_A_NUMBER) {
+      throw new NumberFormatException("Not a number: " + getTokenValue());
+    }
+    return (Number) value;
+  }
+
+  /**
+   * Decode a scalar as a YAML 1.1 number. All the scalars that the lexer tags as {@link Tokens#INTEGER} decode to an
+   * integer, and those it tags as {@link Tokens#FLOAT} decode to a double, except {@code .}, {@code -.} and {@code +.}
+   * which have no digit and are not numbers. A leading {@code 0} denotes an octal number,
+   * unless the digits are not octal, in which case the number is read as a decimal like the lexer does.
+   *
+   * @param value the scalar value
+   * @return a Long, a BigInteger if the value does not fit in a long, a Double, or {@code null} if not a number
+   */
+  @VisibleForTesting
+  @Nullable
+  static Number decodeNumber(String value) {
+    int len = value.length();
+    if (len == 0) {
+      return null;
+    }
+    int start = 0;
+    boolean negative = false;
+    char first = value.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      start = 1;
+      if (len == 1) {
+        return null;
+      }
+    }
+    char c = value.charAt(start);
+    if (c == '.') {
+      String special = value.substring(start + 1);
+      if (INFINITY.contains(special)) {
+        return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+      } else if (start == 0 && NAN.contains(special)) {
+        return Double.NaN;
+      }
+    } else if (c == '0' && len > start + 1) {
+      switch (value.charAt(start + 1)) {
+        case 'x':
+          return decodeInteger(value, start + 2, negative, 16);
+        case 'o':
+          return decodeInteger(value, start + 2, negative, 8);
+        case 'b':
+          return decodeInteger(value, start + 2, negative, 2);
+        default:
+          Number octal = decodeInteger(value, start + 1, negative, 8);
+          if (octal != null) {
+            return octal;
+          }
+      }
+    }
+    Number integer = decodeInteger(value, start, negative, 10);
+    if (integer != null) {
+      return integer;
+    }
+    if (PATTERN_FLOAT.matcher(value).matches()) {
+      return Double.parseDouble(value.replace("_", ""));
+    }
+    return null;
+  }
+
+  @Nullable
+  private static Number decodeInteger(String value, int start, boolean negative, int radix) {
+    StringBuilder digits = new StringBuilder(value.length() - start + 1);
+    if (negative) {
+      digits.append('-');
+    }
+    int count = 0;
+    for (int i = start; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (c == '_') {
+        continue;
+      }
+      if (c > 'z' || Character.digit(c, radix) < 0) {
+        return null;
+      }
+      digits.append(c);
+      ++count;
+    }
+    if (count == 0) {
+      return null;
+    } else if (count <= MAX_LONG_DIGITS) {
+      return Long.parseLong(digits.toString(), radix);
+    }
+    BigInteger integer = new BigInteger(digits.toString(), radix);
+    return integer.bitLength() < 64 ? (Number) integer.longValue() : integer;
+  }
 }
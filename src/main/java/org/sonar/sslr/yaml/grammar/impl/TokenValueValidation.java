@@ -29,6 +29,10 @@ public class TokenValueValidation extends ValueValidation {
     this.content = content;
   }
 
+  String getContent() {
+    return content;
+  }
+
   @Override
   public boolean isValueValid(AstNode node, Context context) {
     return node.getType() == YamlGrammar.SCALAR && content.equals(node.getTokenValue());
@@ -20,16 +20,12 @@
 package org.sonar.sslr.yaml.snakeyaml.parser;
 
 import com.sonar.sslr.api.Token;
-import com.sonar.sslr.impl.Lexer;
 import org.sonar.sslr.channel.Channel;
 import org.sonar.sslr.channel.CodeReader;
 
-class BlockEntryChannel extends Channel<Lexer> {
-    private static final String LINEBR_S = "\n\u0085\u2028\u2029";
-    private static final String FULL_LINEBR_S = "\r" + LINEBR_S;
-    private static final String NULL_OR_LINEBR_S = "\0" + FULL_LINEBR_S;
-    private static final String NULL_BL_LINEBR_S = " " + NULL_OR_LINEBR_S;
-    private static final String NULL_BL_T_LINEBR_S = "\t" + NULL_BL_LINEBR_S;
+class BlockEntryChannel extends Channel<LexerOutput> {
+    // Unlike the other indicators, a block entry indicator is not recognized at the end of the stream
+    private static final int ENTRY_SEPARATOR = CharClass.NULL_BL_T_LINEBR & ~CharClass.END;
 
     private final LexerState state;
     private Token.Builder tokenBuilder = Token.builder();
@@ -39,8 +35,8 @@ class BlockEntryChannel extends Channel<Lexer> {
     }
 
     @Override
-    public boolean consume(CodeReader code, Lexer output) {
-        if (code.peek() == '-' && NULL_BL_T_LINEBR_S.indexOf(code.charAt(1)) != -1) {
+    public boolean consume(CodeReader code, LexerOutput output) {
+        if (code.peek() == '-' && CharClass.is(code.charAt(1), ENTRY_SEPARATOR)) {
             fetchBlockEntry(code, output);
             return true;
         }
@@ -52,7 +48,7 @@ class BlockEntryChannel extends Channel<Lexer> {
      *
      * @see http://www.yaml.org/spec/1.1/#id863975
      */
-    private void fetchBlockEntry(CodeReader code, Lexer output) {
+    private void fetchBlockEntry(CodeReader code, LexerOutput output) {
         // Block context needs additional checks.
         if (state.flowLevel() == 0) {
             // Are we allowed to start a new entry?
@@ -0,0 +1,106 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+/**
+ * Precomputed classification of the characters that are significant to the lexer channels. Each character maps to a
+ * bit mask of the classes it belongs to, so that testing a character against any combination of classes costs a single
+ * table lookup. Only four characters beyond Latin-1 are significant (the Unicode line and paragraph separators, and the
+ * end-of-stream marker of the {@link org.sonar.sslr.channel.CodeReader}): they are classified without a table.
+ */
+final class CharClass {
+    /** The NUL character. */
+    static final int NUL = 1;
+    /** The carriage return. */
+    static final int CR = 1 << 1;
+    /** The line breaks other than carriage return: line feed, next line, line and paragraph separators. */
+    static final int LINEBR = 1 << 2;
+    /** The end-of-stream marker, returned by the code reader when reading past the end of the stream. */
+    static final int END = 1 << 3;
+    /** The space character. */
+    static final int SPACE = 1 << 4;
+    /** The tabulation character. */
+    static final int TAB = 1 << 5;
+    /** The indicators that cannot start a plain scalar: {@code -?:,[]{}#&*!|>'"%@`}. */
+    static final int INDICATOR = 1 << 6;
+    /** The flow collection indicators: {@code ,[]{}}. */
+    static final int FLOW_INDICATOR = 1 << 7;
+    /** The characters with a special meaning in quoted scalars: {@code '"\}. */
+    static final int QUOTE = 1 << 8;
+    /** The characters that can start a number: {@code +-.0123456789}. */
+    static final int NUMBER_START = 1 << 9;
+
+    static final int BLANK = SPACE | TAB;
+    static final int ANY_LINEBR = LINEBR | END;
+    static final int NULL_OR_LINEBR = NUL | CR | LINEBR | END;
+    static final int NULL_BL_LINEBR = NULL_OR_LINEBR | SPACE;
+    static final int NULL_BL_T_LINEBR = NULL_BL_LINEBR | TAB;
+
+    private static final int[] LATIN1 = new int[256];
+
+    static {
+        LATIN1['\0'] = NUL;
+        LATIN1['\r'] = CR;
+        LATIN1['\n'] = LINEBR;
+        LATIN1['\u0085'] = LINEBR;
+        LATIN1[' '] = SPACE;
+        LATIN1['\t'] = TAB;
+        set("-?:,[]{}#&*!|>'\"%@`", INDICATOR);
+        set(",[]{}", FLOW_INDICATOR);
+        set("'\"\\", QUOTE);
+        set("+-.0123456789", NUMBER_START);
+    }
+
+    private CharClass() {
+        // hidden utility class constructor
+    }
+
+    private static void set(String chars, int mask) {
+        for (int i = 0; i < chars.length(); ++i) {
+            LATIN1[chars.charAt(i)] |= mask;
+        }
+    }
+
+    /**
+     * Tell if a character belongs to any of the given classes.
+     *
+     * @param c the character
+     * @param mask the classes, combined with {@code |}
+     * @return {@code true} if the character belongs to at least one of the classes
+     */
+    static boolean is(char c, int mask) {
+        return (classesOf(c) & mask) != 0;
+    }
+
+    static int classesOf(char c) {
+        if (c < LATIN1.length) {
+            return LATIN1[c];
+        }
+        switch (c) {
+            case '\u2028':
+            case '\u2029':
+                return LINEBR;
+            case '\uFFFF':
+                return END;
+            default:
+                return 0;
+        }
+    }
+}
@@ -21,19 +21,14 @@ package org.sonar.sslr.yaml.snakeyaml.parser;
 
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.Trivia;
-import java.util.List;
+import javax.annotation.Nullable;
 import org.sonar.sslr.channel.Channel;
 import org.sonar.sslr.channel.CodeReader;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import static com.sonar.sslr.api.GenericTokenType.COMMENT;
 import static org.sonar.sslr.yaml.snakeyaml.parser.LineBreakChannel.scanLineBreak;
 
-public class CommentChannel extends Channel<com.sonar.sslr.impl.Lexer> {
-    private static final Matcher MATCHER = Pattern.compile("[^" + Lexer.NULL_OR_LINEBR_S + "]*+").matcher("");
-
+public class CommentChannel extends Channel<LexerOutput> {
     private final StringBuilder tmpBuilder = new StringBuilder();
     private final Token.Builder tokenBuilder = Token.builder();
     private final boolean ignoreLineEndings;
@@ -43,7 +38,7 @@ public class CommentChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     }
 
     @Override
-    public boolean consume(CodeReader code, com.sonar.sslr.impl.Lexer lexer) {
+    public boolean consume(CodeReader code, LexerOutput lexer) {
         // If the character we have skipped forward to is a comment (#),
         // then peek ahead until we find the next end of line. YAML
         // comments are from a # to the next new-line. We then forward
@@ -52,15 +47,14 @@ public class CommentChannel extends Channel<com.sonar.sslr.impl.Lexer> {
             return false;
         }
         code.pop();
-        String value = "";
         int line = code.getLinePosition();
         int column = code.getColumnPosition() - 1;
-        if (Lexer.NULL_OR_LINEBR_S.indexOf(code.charAt(0)) == -1 && code.popTo(MATCHER, tmpBuilder) > 0) {
-            value = tmpBuilder.toString();
-            tmpBuilder.delete(0, tmpBuilder.length());
-            line = code.getPreviousCursor().getLine();
-            column = code.getPreviousCursor().getColumn() - 1;
+        // The comment runs up to the end of the line or of the stream
+        while (!CharClass.is(code.charAt(0), CharClass.NULL_OR_LINEBR)) {
+            code.pop(tmpBuilder);
         }
+        String value = tmpBuilder.toString();
+        tmpBuilder.setLength(0);
 
         Token token = tokenBuilder
                 .setType(COMMENT)
@@ -72,8 +66,7 @@ public class CommentChannel extends Channel<com.sonar.sslr.impl.Lexer> {
 
         lexer.addTrivia(Trivia.createComment(token));
 
-        List<Token> tokens = lexer.getTokens();
-        if (!ignoreLineEndings && hasNoPrecedingTokenOnLine(tokens, line)) {
+        if (!ignoreLineEndings && hasNoPrecedingTokenOnLine(lexer.lastToken(), line)) {
             // If we are the first token of the line (so this is a full comment line),
             // need to consume the line breaks to not confuse the IndentUnwinder
             scanLineBreak(code);
@@ -82,7 +75,7 @@ public class CommentChannel extends Channel<com.sonar.sslr.impl.Lexer> {
         return true;
     }
 
-    private static boolean hasNoPrecedingTokenOnLine(List<Token> tokens, int line) {
-        return tokens.isEmpty() || tokens.get(tokens.size() - 1).getLine() < line;
+    private static boolean hasNoPrecedingTokenOnLine(@Nullable Token lastToken, int line) {
+        return lastToken == null || lastToken.getLine() < line;
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.impl.channel.UnknownCharacterChannel;
+import org.sonar.sslr.channel.Channel;
+import org.sonar.sslr.channel.CodeReader;
+
+import javax.annotation.Nullable;
+
+/**
+ * Routes the current character to the channels that can consume it. This produces the same tokens as registering the
+ * channels in the lexer in the following order, but spares trying the channels that cannot consume the character:
+ * <ol>
+ *     <li>spaces, which are skipped</li>
+ *     <li>{@link CommentChannel}</li>
+ *     <li>{@link UnwindIndentChannel}, which never consumes characters</li>
+ *     <li>{@link LineBreakChannel}</li>
+ *     <li>{@link BlockEntryChannel}</li>
+ *     <li>{@link FlowCollectionChannel}</li>
+ *     <li>{@link KeyChannel}</li>
+ *     <li>{@link ValueChannel}</li>
+ *     <li>{@link ScalarChannel}</li>
+ *     <li>{@link UnknownCharacterChannel}</li>
+ * </ol>
+ * The channels write to a {@link LexerOutput}: registered in an SSLR lexer, this channel adapts the lexer into one,
+ * while a {@link TokenIterator} calls {@link #dispatch(CodeReader, LexerOutput)} with its own output.
+ */
+class DispatchChannel extends Channel<Lexer> {
+    private final CommentChannel comment = new CommentChannel(false);
+    private final UnwindIndentChannel unwindIndent;
+    private final LineBreakChannel lineBreak;
+    private final BlockEntryChannel blockEntry;
+    private final FlowCollectionChannel flowCollection;
+    private final KeyChannel key;
+    private final ValueChannel value;
+    private final ScalarChannel scalar;
+    private final Token.Builder tokenBuilder = Token.builder();
+    private SslrLexerOutput lexerOutput;
+
+    DispatchChannel(LexerState state, @Nullable OriginalValues originalValues) {
+        this.unwindIndent = new UnwindIndentChannel(state);
+        this.lineBreak = new LineBreakChannel(state);
+        this.blockEntry = new BlockEntryChannel(state);
+        this.flowCollection = new FlowCollectionChannel(state);
+        this.key = new KeyChannel(state);
+        this.value = new ValueChannel(state);
+        this.scalar = new ScalarChannel(state, originalValues);
+    }
+
+    @Override
+    public boolean consume(CodeReader code, Lexer lexer) {
+        if (lexerOutput == null || !lexerOutput.writesTo(lexer)) {
+            lexerOutput = new SslrLexerOutput(lexer);
+        }
+        return dispatch(code, lexerOutput);
+    }
+
+    boolean dispatch(CodeReader code, LexerOutput output) {
+        char c = code.charAt(0);
+        if (c == ' ') {
+            do {
+                code.pop();
+            } while (code.charAt(0) == ' ');
+            return true;
+        }
+        if (c == '#') {
+            return comment.consume(code, output);
+        }
+        unwindIndent.consume(code, output);
+        switch (c) {
+            case '\r':
+            case '\n':
+            case '\u0085':
+            case '\u2028':
+            case '\u2029':
+                return lineBreak.consume(code, output);
+            case '[':
+            case ']':
+            case '{':
+            case '}':
+            case ',':
+                return flowCollection.consume(code, output);
+            case '-':
+                return blockEntry.consume(code, output) || consumeScalar(code, output);
+            case '?':
+                return key.consume(code, output) || consumeScalar(code, output);
+            case ':':
+                return value.consume(code, output) || consumeScalar(code, output);
+            default:
+                return consumeScalar(code, output);
+        }
+    }
+
+    private boolean consumeScalar(CodeReader code, LexerOutput output) {
+        return scalar.consume(code, output) || consumeUnknown(code, output);
+    }
+
+    /**
+     * Same as {@link UnknownCharacterChannel}, which only writes to an SSLR lexer.
+     */
+    private boolean consumeUnknown(CodeReader code, LexerOutput output) {
+        if (code.peek() == -1) {
+            return false;
+        }
+        char unknownChar = (char) code.pop();
+        Token token = tokenBuilder
+                .setType(GenericTokenType.UNKNOWN_CHAR)
+                .setValueAndOriginalValue(String.valueOf(unknownChar))
+                .setURI(output.getURI())
+                .setLine(code.getLinePosition())
+                .setColumn(code.getColumnPosition() - 1)
+                .build();
+        output.addToken(token);
+        return true;
+    }
+}
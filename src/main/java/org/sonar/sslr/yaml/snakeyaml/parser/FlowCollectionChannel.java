@@ -21,12 +21,11 @@ package org.sonar.sslr.yaml.snakeyaml.parser;
 
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.TokenType;
-import com.sonar.sslr.impl.Lexer;
 import org.sonar.sslr.channel.Channel;
 import org.sonar.sslr.channel.CodeBuffer;
 import org.sonar.sslr.channel.CodeReader;
 
-public class FlowCollectionChannel extends Channel<Lexer> {
+public class FlowCollectionChannel extends Channel<LexerOutput> {
     private final LexerState state;
     private final Token.Builder tokenBuilder = Token.builder();
 
@@ -35,7 +34,7 @@ public class FlowCollectionChannel extends Channel<Lexer> {
     }
 
     @Override
-    public boolean consume(CodeReader code, Lexer output) {
+    public boolean consume(CodeReader code, LexerOutput output) {
         int c = code.peek();
         switch(c) {
         case '[':
@@ -74,7 +73,7 @@ public class FlowCollectionChannel extends Channel<Lexer> {
      *
      * @see http://www.yaml.org/spec/1.1/#id863975
      */
-    private void fetchFlowCollectionStart(CodeReader reader, Lexer output, boolean isMappingStart) {
+    private void fetchFlowCollectionStart(CodeReader reader, LexerOutput output, boolean isMappingStart) {
         // '[' and '{' may start a simple key.
         state.savePossibleSimpleKey(reader, output);
 
@@ -116,7 +115,7 @@ public class FlowCollectionChannel extends Channel<Lexer> {
      *
      * @see http://www.yaml.org/spec/1.1/#id863975
      */
-    private void fetchFlowCollectionEnd(CodeReader reader, Lexer output, boolean isMappingEnd) {
+    private void fetchFlowCollectionEnd(CodeReader reader, LexerOutput output, boolean isMappingEnd) {
         // Reset possible simple key on the current level.
         state.removePossibleSimpleKey(reader);
 
@@ -154,7 +153,7 @@ public class FlowCollectionChannel extends Channel<Lexer> {
      *
      * @see http://www.yaml.org/spec/1.1/#id863975
      */
-    private void fetchFlowEntry(CodeReader reader, Lexer output) {
+    private void fetchFlowEntry(CodeReader reader, LexerOutput output) {
         // Simple keys are allowed after ','.
         state.allowSimpleKey(true);
 
@@ -19,38 +19,59 @@
  */
 package org.sonar.sslr.yaml.snakeyaml.parser;
 
-import com.sonar.sslr.impl.channel.BlackHoleChannel;
-import com.sonar.sslr.impl.channel.UnknownCharacterChannel;
-
+import java.io.Reader;
+import java.net.URI;
 import java.nio.charset.Charset;
+import javax.annotation.Nullable;
+import org.sonar.sslr.channel.CodeReader;
 
 public abstract class Lexer {
-    protected static final String LINEBR_S = "\n\u0085\u2028\u2029\uFFFF";
-    private static final String FULL_LINEBR_S = "\r" + LINEBR_S;
-    protected static final String NULL_OR_LINEBR_S = "\0" + FULL_LINEBR_S;
-    protected static final String NULL_BL_LINEBR_S = " " + NULL_OR_LINEBR_S;
-    protected static final String NULL_BL_T_LINEBR_S = "\t" + NULL_BL_LINEBR_S;
-
     private Lexer() {
         // hidden utility class constructor
     }
 
     public static com.sonar.sslr.impl.Lexer create(Charset charset) {
+        return create(charset, null);
+    }
+
+    /**
+     * Create a lexer that records the original values of the scalar tokens as slices of the document's text instead of
+     * copying them into the tokens.
+     * @param charset the charset of the documents
+     * @param originalValues where to record the original values of the scalars, or {@code null} to store them in the
+     *                       tokens
+     * @return the lexer
+     */
+    public static com.sonar.sslr.impl.Lexer create(Charset charset, @Nullable OriginalValues originalValues) {
         LexerState state = new LexerState();
         return com.sonar.sslr.impl.Lexer.builder()
                 .withCharset(charset)
                 .withFailIfNoChannelToConsumeOneCharacter(true)
                 .withPreprocessor(new FinalIndentUnwinder(state))
-                .withChannel(new BlackHoleChannel(" ++"))
-                .withChannel(new CommentChannel(false))
-                .withChannel(new UnwindIndentChannel(state))
-                .withChannel(new LineBreakChannel(state))
-                .withChannel(new BlockEntryChannel(state))
-                .withChannel(new FlowCollectionChannel(state))
-                .withChannel(new KeyChannel(state))
-                .withChannel(new ValueChannel(state))
-                .withChannel(new ScalarChannel(state))
-                .withChannel(new UnknownCharacterChannel())
+                .withChannel(new DispatchChannel(state, originalValues))
                 .build();
     }
+
+    /**
+     * Lex a document as its tokens are consumed, rather than building the list of all its tokens.
+     * @param text the text of the document
+     * @param uri the URI of the document, given to its tokens
+     * @return the tokens of the document, ending with an EOF token
+     */
+    public static TokenIterator tokens(CharSequence text, URI uri) {
+        return new TokenIterator(new CodeReader(text.toString()), uri);
+    }
+
+    /**
+     * Lex a document as its tokens are consumed, rather than building the list of all its tokens. The whole text of
+     * the document is read from the reader into memory before the first token is lexed, so the memory used is
+     * proportional to the size of the document, even though only a few tokens are held at a time. The reader is left
+     * open.
+     * @param reader the reader of the document
+     * @param uri the URI of the document, given to its tokens
+     * @return the tokens of the document, ending with an EOF token
+     */
+    public static TokenIterator tokens(Reader reader, URI uri) {
+        return new TokenIterator(new CodeReader(reader), uri);
+    }
 }
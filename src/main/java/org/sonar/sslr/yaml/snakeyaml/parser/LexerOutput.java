@@ -0,0 +1,76 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Lexer;
+import java.net.URI;
+import javax.annotation.CheckForNull;
+
+/**
+ * Receives the tokens and comments produced by the channels of the YAML lexer. The channels only ever append to the
+ * output, so that it is either an SSLR lexer keeping all the tokens of a document (see {@link SslrLexerOutput}), or a
+ * {@link TokenIterator} handing them out as they are produced.
+ * <p>
+ * The public channels of the lexer consume their input into a {@code LexerOutput}; use {@link #of(Lexer)} to run them
+ * against an SSLR lexer of your own.
+ */
+public interface LexerOutput {
+  /**
+   * Write to an SSLR lexer.
+   * @param lexer the lexer receiving the tokens and comments
+   * @return an output appending to the lexer
+   */
+  static LexerOutput of(Lexer lexer) {
+    return new SslrLexerOutput(lexer);
+  }
+
+  /**
+   * The URI of the document being lexed.
+   * @return the URI to give to the tokens
+   */
+  URI getURI();
+
+  /**
+   * Append tokens. The pending trivia are attached to the first token.
+   * @param tokens the tokens to append
+   */
+  void addToken(Token... tokens);
+
+  /**
+   * Add a trivia, which is attached to the next appended token.
+   * @param trivia the trivia
+   */
+  void addTrivia(Trivia trivia);
+
+  /**
+   * The number of tokens appended since the start of the document.
+   * @return the number of tokens
+   */
+  int tokenCount();
+
+  /**
+   * The last appended token.
+   * @return the last token, or {@code null} if no token was appended yet
+   */
+  @CheckForNull
+  Token lastToken();
+}
@@ -19,21 +19,26 @@
  */
 package org.sonar.sslr.yaml.snakeyaml.parser;
 
-import com.sonar.sslr.impl.Lexer;
 import com.sonar.sslr.impl.LexerException;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.CheckForNull;
 import org.sonar.sslr.channel.CodeReader;
 
 public class LexerState {
   private int flowLevel = 0;
   private boolean allowSimpleKey = true;
   private int indent = -1;
-  private Deque<Integer> indents;
-  private Map<Integer, SimpleKey> possibleSimpleKeys;
+  // The past indentation levels, as a stack of size indentCount
+  private int[] indents = new int[16];
+  private int indentCount = 0;
+  // Keep track of possible simple keys. There can be no more that one possible simple key for each flow level, so they
+  // are indexed by flow level (see #slot(int)). A simple key may start with ALIAS, ANCHOR, TAG, SCALAR(flow), '[', or '{'
+  // tokens. The SimpleKey instances are reused from one key to the next, and only the possible ones are flagged as such.
+  private SimpleKey[] possibleSimpleKeys = new SimpleKey[8];
+  private int possibleSimpleKeyCount = 0;
 
   /**
    * The number of unclosed '{' and '['. `flow_level == 0` means block context.
@@ -64,7 +69,7 @@ public class LexerState {
    * @return the new indentation level
    */
   public int popIndent() {
-    indent = indents.pop();
+    indent = indents[--indentCount];
     return indent;
   }
 
@@ -99,21 +104,54 @@ public class LexerState {
     this.allowSimpleKey = allowSimpleKey;
   }
 
-  /*
-   * Keep track of possible simple keys. This is a dictionary. The key is
-   * `flow_level`; there can be no more that one possible simple key for each
-   * level. The value is a SimpleKey record: (token_number, required, index,
-   * line, column, mark) A simple key may start with ALIAS, ANCHOR, TAG,
-   * SCALAR(flow), '[', or '{' tokens.
+  /**
+   * The possible simple keys, indexed by flow level. There can be no more that one possible simple key for each flow
+   * level. A simple key may start with ALIAS, ANCHOR, TAG, SCALAR(flow), '[', or '{' tokens.
+   * <p>
+   * The lexer reuses the SimpleKey instances from one key to the next, so this is an unmodifiable snapshot of copies of
+   * the keys, built on each call and sorted by flow level.
+   * @return the possible simple keys of each flow level
    */
   public Map<Integer, SimpleKey> possibleSimpleKeys() {
-    return possibleSimpleKeys;
+    Map<Integer, SimpleKey> keys = new TreeMap<>();
+    for (int slot = 0; slot < possibleSimpleKeys.length; ++slot) {
+      SimpleKey key = possibleSimpleKeys[slot];
+      if (key != null && key.isPossible()) {
+        keys.put(flowLevel(slot), key.copy());
+      }
+    }
+    return Collections.unmodifiableMap(keys);
   }
 
-  public LexerState() {
-    this.indents = new ArrayDeque<>();
-    // The order in possibleSimpleKeys is kept for nextPossibleSimpleKey()
-    this.possibleSimpleKeys = new LinkedHashMap<>();
+  /**
+   * Remove the possible simple key of the current flow level, if any.
+   * @return the removed key, which is only valid until a new possible simple key is saved at the same flow level
+   */
+  @CheckForNull
+  SimpleKey takePossibleSimpleKey() {
+    int slot = slot(flowLevel);
+    if (slot >= possibleSimpleKeys.length) {
+      return null;
+    }
+    SimpleKey key = possibleSimpleKeys[slot];
+    if (key == null || !key.isPossible()) {
+      return null;
+    }
+    key.discard();
+    --possibleSimpleKeyCount;
+    return key;
+  }
+
+  /**
+   * The index of the possible simple key of a flow level. The flow level is negative when the document closes more
+   * collections than it opens, so the levels are interleaved: 0, -1, 1, -2, 2...
+   */
+  private static int slot(int flowLevel) {
+    return flowLevel >= 0 ? flowLevel << 1 : ((-flowLevel) << 1) - 1;
+  }
+
+  private static int flowLevel(int slot) {
+    return (slot & 1) == 0 ? slot >> 1 : -((slot + 1) >> 1);
   }
 
   /**
@@ -121,7 +159,10 @@ public class LexerState {
    */
   boolean addIndent(int column) {
     if (this.indent < column) {
-      this.indents.push(this.indent);
+      if (indentCount == indents.length) {
+        indents = Arrays.copyOf(indents, indentCount * 2);
+      }
+      indents[indentCount++] = this.indent;
       this.indent = column;
       return true;
     }
@@ -133,7 +174,7 @@ public class LexerState {
    * its position. This function is called for ALIAS, ANCHOR, TAG,
    * SCALAR(flow), '[', and '{'.
    */
-  void savePossibleSimpleKey(CodeReader reader, Lexer output) {
+  void savePossibleSimpleKey(CodeReader reader, LexerOutput output) {
     // The next token may start a simple key. We check if it's possible
     // and save its position. This function is called for
     // ALIAS, ANCHOR, TAG, SCALAR(flow), '[', and '{'.
@@ -155,10 +196,18 @@ public class LexerState {
     // position.
     if (this.allowSimpleKey) {
       removePossibleSimpleKey(reader);
-      int tokenNumber = output.getTokens().size();
-      SimpleKey key = new SimpleKey(tokenNumber, required,
-        reader.getLinePosition(), reader.getColumnPosition());
-      this.possibleSimpleKeys.put(this.flowLevel, key);
+      int tokenNumber = output.tokenCount();
+      int slot = slot(flowLevel);
+      if (slot >= possibleSimpleKeys.length) {
+        possibleSimpleKeys = Arrays.copyOf(possibleSimpleKeys, Math.max(slot + 1, possibleSimpleKeys.length * 2));
+      }
+      SimpleKey key = possibleSimpleKeys[slot];
+      if (key == null) {
+        key = new SimpleKey();
+        possibleSimpleKeys[slot] = key;
+      }
+      key.set(tokenNumber, required, reader.getLinePosition(), reader.getColumnPosition());
+      ++possibleSimpleKeyCount;
     }
   }
 
@@ -166,7 +215,7 @@ public class LexerState {
    * Remove the saved possible key position at the current flow level.
    */
   void removePossibleSimpleKey(CodeReader code) {
-    SimpleKey key = possibleSimpleKeys.remove(flowLevel);
+    SimpleKey key = takePossibleSimpleKey();
     if (key != null && key.isRequired()) {
       throw new YamlLexerException("while scanning a simple key", null,
         "could not find expected ':'", code.getCursor());
@@ -184,24 +233,27 @@ public class LexerState {
    * </pre>
    */
   void stalePossibleSimpleKeys(CodeReader code) {
-    if (!possibleSimpleKeys.isEmpty()) {
-      for (Iterator<SimpleKey> iterator = possibleSimpleKeys.values().iterator(); iterator
-        .hasNext();) {
-        SimpleKey key = iterator.next();
-        if (key.getLine() != code.getLinePosition()) {
-          // TODO - we should check that we have not moved more than 1024 characters forward
-          // If the key is not on the same line as the current
-          // position OR the difference in column between the token
-          // start and the current position is more than the maximum
-          // simple key length, then this cannot be a simple key.
-          if (key.isRequired()) {
-            // If the key was required, this implies an error
-            // condition.
-            throw new YamlLexerException("While scanning a simple key", code.getCursor(),
-              "could not find expected ':'", code.getCursor());
-          }
-          iterator.remove();
+    int remaining = possibleSimpleKeyCount;
+    for (int slot = 0; remaining > 0; ++slot) {
+      SimpleKey key = possibleSimpleKeys[slot];
+      if (key == null || !key.isPossible()) {
+        continue;
+      }
+      --remaining;
+      if (key.getLine() != code.getLinePosition()) {
+        // TODO - we should check that we have not moved more than 1024 characters forward
+        // If the key is not on the same line as the current
+        // position OR the difference in column between the token
+        // start and the current position is more than the maximum
+        // simple key length, then this cannot be a simple key.
+        if (key.isRequired()) {
+          // If the key was required, this implies an error
+          // condition.
+          throw new YamlLexerException("While scanning a simple key", code.getCursor(),
+            "could not find expected ':'", code.getCursor());
         }
+        key.discard();
+        --possibleSimpleKeyCount;
       }
     }
   }
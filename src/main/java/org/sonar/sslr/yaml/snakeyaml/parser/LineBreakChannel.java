@@ -19,11 +19,10 @@
  */
 package org.sonar.sslr.yaml.snakeyaml.parser;
 
-import com.sonar.sslr.impl.Lexer;
 import org.sonar.sslr.channel.Channel;
 import org.sonar.sslr.channel.CodeReader;
 
-class LineBreakChannel extends Channel<Lexer> {
+class LineBreakChannel extends Channel<LexerOutput> {
     private final LexerState state;
 
     LineBreakChannel(LexerState state) {
@@ -31,7 +30,7 @@ class LineBreakChannel extends Channel<Lexer> {
     }
 
     @Override
-    public boolean consume(CodeReader code, Lexer output) {
+    public boolean consume(CodeReader code, LexerOutput output) {
         // If we scanned a line break, then (depending on flow level),
         // simple keys may be allowed.
         if (scanLineBreak(code).length() != 0) {// found a line-break
@@ -0,0 +1,187 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.api.Token;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.sonar.sslr.channel.CodeReader;
+
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.NULL_OR_LINEBR;
+
+/**
+ * The original values of the scalar tokens of a document, kept as slices of the document's text and only built as
+ * strings on demand.
+ * <p>
+ * When a lexer is created with an instance of this class (see {@link Lexer#create(java.nio.charset.Charset, OriginalValues)}),
+ * the scalar tokens it produces share their value with their original value, and the actual original value must be
+ * retrieved with {@link #get(Token)}. This avoids holding a copy of the text of every scalar in the tokens, which
+ * matters for documents dominated by long block scalars. An instance records the tokens of a single document.
+ * <p>
+ * The slices refer to the text given to {@link #OriginalValues(CharSequence)}, which must be the text passed to the
+ * lexer. Otherwise, the lexer keeps a copy of the text of the document from its first scalar.
+ */
+public final class OriginalValues {
+  private static final int INITIAL_CAPACITY = 64;
+
+  // The text of the document, or its end from the first scalar when captured by the lexer
+  @Nullable
+  private CharSequence text;
+  // The scalar tokens in document order, with the bounds of their original value in the text. The bounds are first
+  // recorded as the number of characters left to read, which does not depend on where the text starts.
+  private Token[] tokens = new Token[INITIAL_CAPACITY];
+  private int[] starts = new int[INITIAL_CAPACITY];
+  private int[] ends = new int[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Create an instance that keeps a copy of the text of the document.
+   */
+  public OriginalValues() {
+    this.text = null;
+  }
+
+  /**
+   * Create an instance that refers to the text of the document rather than copying it.
+   * @param text the text that the lexer reads
+   */
+  public OriginalValues(CharSequence text) {
+    this.text = text;
+  }
+
+  /**
+   * Keep the text left to read, if not done yet. Called by the lexer at the start of each scalar.
+   */
+  void capture(CodeReader code) {
+    if (text == null) {
+      text = CharBuffer.wrap(code.peek(code.length()));
+    }
+  }
+
+  /**
+   * Record the bounds of the original value of a scalar token.
+   * @param token the scalar token
+   * @param start the number of characters left to read at the start of the scalar
+   * @param end the number of characters left to read at the end of the scalar
+   */
+  void add(Token token, int start, int end) {
+    if (size == tokens.length) {
+      int capacity = size * 2;
+      tokens = Arrays.copyOf(tokens, capacity);
+      starts = Arrays.copyOf(starts, capacity);
+      ends = Arrays.copyOf(ends, capacity);
+    }
+    tokens[size] = token;
+    starts[size] = text.length() - start;
+    ends[size] = text.length() - end;
+    ++size;
+  }
+
+  /**
+   * Get the original value of a token.
+   * @param token a token produced by the lexer that recorded the original values
+   * @return the original value of the token, exactly as built by a lexer that does not use this class
+   */
+  public String get(Token token) {
+    int index = indexOf(token);
+    if (index < 0) {
+      return token.getOriginalValue();
+    }
+    return materialize(starts[index], ends[index]);
+  }
+
+  private int indexOf(Token token) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      Token candidate = tokens[mid];
+      int cmp = candidate.getLine() != token.getLine()
+        ? Integer.compare(candidate.getLine(), token.getLine())
+        : Integer.compare(candidate.getColumn(), token.getColumn());
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        // The lexer copies the tokens to attach their trivia: compare the type, as the tokens generated for a
+        // simple key have the same position as the key
+        return candidate.getType() == token.getType() ? mid : -1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Rebuild an original value the way the scalar channel does: line breaks are normalized as in
+   * {@link LineBreakChannel#scanLineBreak(CodeReader)} (escaped line breaks of double-quoted scalars always become
+   * {@code \n}), and the comment that may follow the header of a block scalar is left out.
+   */
+  private String materialize(int start, int end) {
+    char first = text.charAt(start);
+    if (!needsRewriting(start, end, first)) {
+      return text.subSequence(start, end).toString();
+    }
+    StringBuilder builder = new StringBuilder(end - start);
+    int i = start;
+    if (first == '|' || first == '>') {
+      while (i < end && text.charAt(i) != '#' && !CharClass.is(text.charAt(i), NULL_OR_LINEBR)) {
+        builder.append(text.charAt(i++));
+      }
+      while (i < end && !CharClass.is(text.charAt(i), NULL_OR_LINEBR)) {
+        ++i;
+      }
+    }
+    boolean doubleQuoted = first == '"';
+    while (i < end) {
+      char c = text.charAt(i++);
+      if (doubleQuoted && c == '\\' && i < end) {
+        builder.append(c);
+        c = text.charAt(i++);
+        if (c == '\u2028' || c == '\u2029') {
+          c = '\n';
+        }
+      }
+      if (c == '\r') {
+        if (i < end && text.charAt(i) == '\n') {
+          ++i;
+        }
+        c = '\n';
+      } else if (c == '\u0085') {
+        c = '\n';
+      }
+      builder.append(c);
+    }
+    return builder.toString();
+  }
+
+  private boolean needsRewriting(int start, int end, char first) {
+    boolean block = first == '|' || first == '>';
+    boolean doubleQuoted = first == '"';
+    for (int i = start; i < end; ++i) {
+      char c = text.charAt(i);
+      if (c == '\r' || c == '\u0085' || (block && c == '#') || (doubleQuoted && (c == '\u2028' || c == '\u2029'))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
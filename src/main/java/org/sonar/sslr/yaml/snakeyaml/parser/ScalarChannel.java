@@ -31,11 +31,23 @@ import org.sonar.sslr.channel.CodeBuffer;
 import org.sonar.sslr.channel.CodeReader;
 
 import static org.sonar.sslr.yaml.snakeyaml.parser.LineBreakChannel.scanLineBreak;
-import static org.sonar.sslr.yaml.snakeyaml.parser.Lexer.NULL_BL_T_LINEBR_S;
-
-class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
-
-  private static final String SPECIAL = NULL_BL_T_LINEBR_S + "-?:,[]{}#&*!|>\'\"%@`";
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.BLANK;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.CR;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.END;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.FLOW_INDICATOR;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.INDICATOR;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.LINEBR;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.NUL;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.NULL_BL_LINEBR;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.NULL_BL_T_LINEBR;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.NULL_OR_LINEBR;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.NUMBER_START;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.QUOTE;
+import static org.sonar.sslr.yaml.snakeyaml.parser.CharClass.SPACE;
+
+class ScalarChannel extends Channel<LexerOutput> {
+
+  private static final int SPECIAL = NULL_BL_T_LINEBR | INDICATOR;
   private static final Pattern PATTERN_FLOAT = Pattern.compile("[-+]?([0-9][0-9_]*)?\\.[0-9]*([eE][-+][0-9]+)?");
 
   /**
@@ -115,23 +127,37 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
   }
 
   private final LexerState state;
+  @Nullable
+  private final OriginalValues originalValues;
   private final Token.Builder tokenBuilder = Token.builder();
-
-  ScalarChannel(LexerState state) {
+  private final CommentChannel trailingComment = new CommentChannel(true);
+  // Buffers reused from one scalar to the next: the value and original value of the scalar being scanned, the spaces
+  // that separate the chunks of a plain scalar, and the line breaks of a block scalar
+  private final StringBuilder value = new StringBuilder();
+  private final StringBuilder original = new StringBuilder();
+  private final StringBuilder spaces = new StringBuilder();
+  private final StringBuilder originalSpaces = new StringBuilder();
+  private final StringBuilder breaks = new StringBuilder();
+
+  ScalarChannel(LexerState state, @Nullable OriginalValues originalValues) {
     this.state = state;
+    this.originalValues = originalValues;
   }
 
   @Override
-  public boolean consume(CodeReader code, com.sonar.sslr.impl.Lexer output) {
+  public boolean consume(CodeReader code, LexerOutput output) {
     tokenBuilder.setURI(output.getURI());
     char c = code.charAt(0);
     if (state.flowLevel() == 0 && (c == '|' || c == '>')) {
+      captureText(code);
       fetchBlockScalar(c, code, output);
       return true;
     } else if (c == '\'' || c == '"') {
+      captureText(code);
       fetchFlowScalar(c, code, output);
       return true;
     } else if (checkPlain(code)) {
+      captureText(code);
       fetchPlain(code, output);
       return true;
     } else {
@@ -139,12 +165,57 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     }
   }
 
+  private void captureText(CodeReader code) {
+    if (originalValues != null) {
+      originalValues.capture(code);
+    }
+  }
+
+  /**
+   * Build a scalar token and add it to the output. The original value is either the content of {@link #original}, or
+   * a slice of the text recorded in {@link #originalValues}.
+   *
+   * @param start the number of characters left to read at the start of the scalar
+   * @param end the number of characters left to read at the end of the scalar
+   */
+  private void addScalar(LexerOutput output, TokenType type, String scalarValue, CodeReader.Cursor startMark,
+    int start, int end) {
+    String originalValue;
+    if (originalValues != null || contentEquals(original, scalarValue)) {
+      originalValue = scalarValue;
+    } else {
+      originalValue = original.toString();
+    }
+    Token token = tokenBuilder
+      .setType(type)
+      .setValueAndOriginalValue(scalarValue, originalValue)
+      .setLine(startMark.getLine())
+      .setColumn(startMark.getColumn())
+      .build();
+    if (originalValues != null) {
+      originalValues.add(token, start, end);
+    }
+    output.addToken(token);
+  }
+
+  private static boolean contentEquals(StringBuilder builder, String s) {
+    if (builder.length() != s.length()) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); ++i) {
+      if (builder.charAt(i) != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Fetch a flow scalar (single- or double-quoted).
    *
    * @see http://www.yaml.org/spec/1.1/#id863975
    */
-  private void fetchFlowScalar(char style, CodeReader code, com.sonar.sslr.impl.Lexer output) {
+  private void fetchFlowScalar(char style, CodeReader code, LexerOutput output) {
     // A flow scalar could be a simple key.
     state.savePossibleSimpleKey(code, output);
 
@@ -156,63 +227,53 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     // The style will be either single- or double-quoted; we determine this
     // by the first character in the entry (supplied)
     isDoubleQuote = style == '"';
-    StringBuilder chunks = new StringBuilder();
-    StringBuilder originalChunks = new StringBuilder();
+    value.setLength(0);
+    original.setLength(0);
     CodeBuffer.Cursor startMark = code.getCursor().clone();
+    int start = code.length();
     char quote = code.charAt(0);
-    code.pop(originalChunks);
-    chunks.append(scanFlowScalarNonSpaces(code, isDoubleQuote, startMark, originalChunks));
+    code.pop(original);
+    scanFlowScalarNonSpaces(code, isDoubleQuote, startMark);
     while (code.charAt(0) != quote) {
-      chunks.append(scanFlowScalarSpaces(code, startMark, originalChunks));
-      chunks.append(scanFlowScalarNonSpaces(code, isDoubleQuote, startMark, originalChunks));
+      scanFlowScalarSpaces(code, startMark);
+      scanFlowScalarNonSpaces(code, isDoubleQuote, startMark);
     }
-    code.pop(originalChunks);
-    Token token = tokenBuilder
-      .setType(Tokens.STRING)
-      .setValueAndOriginalValue(chunks.toString(), originalChunks.toString())
-      .setLine(startMark.getLine())
-      .setColumn(startMark.getColumn())
-      .build();
-    output.addToken(token);
+    code.pop(original);
+    addScalar(output, Tokens.STRING, value.toString(), startMark, start, code.length());
   }
 
   /**
    * Scan some number of flow-scalar non-space characters.
    */
-  private String scanFlowScalarNonSpaces(CodeReader reader, boolean doubleQuoted, CodeReader.Cursor startMark, StringBuilder originalChunks) {
+  private void scanFlowScalarNonSpaces(CodeReader reader, boolean doubleQuoted, CodeReader.Cursor startMark) {
     // See the specification for details.
-    StringBuilder chunks = new StringBuilder();
     while (true) {
       // Scan through any number of characters which are not: NUL, blank,
       // tabs, line breaks, single-quotes, double-quotes, or backslashes.
-      String forbidden = NULL_BL_T_LINEBR_S + "\'\"\\";
-      StringBuilder chunk = new StringBuilder();
-      while (forbidden.indexOf(reader.charAt(0)) == -1) {
-        reader.pop(chunk);
+      while (!CharClass.is(reader.charAt(0), NULL_BL_T_LINEBR | QUOTE)) {
+        popToBoth(reader);
       }
-      chunks.append(chunk.toString());
-      originalChunks.append(chunk.toString());
       // Depending on our quoting-type, the characters ', " and \ have
       // differing meanings.
       char ch = reader.charAt(0);
       if (isEscapedSingleQuote(reader, doubleQuoted, ch)) {
-        chunks.append("'");
-        reader.pop(originalChunks);
-        reader.pop(originalChunks);
+        value.append('\'');
+        reader.pop(original);
+        reader.pop(original);
       } else if (isRegularQuote(doubleQuoted, ch)) {
-        chunks.append(ch);
-        reader.pop(originalChunks);
+        value.append(ch);
+        reader.pop(original);
       } else if (isEscapeChar(doubleQuoted, ch)) {
-        reader.pop(originalChunks);
-        chunks.append(scanFlowScalarEscapeChar(reader, startMark, originalChunks));
+        reader.pop(original);
+        scanFlowScalarEscapeChar(reader, startMark);
       } else {
-        return chunks.toString();
+        return;
       }
     }
   }
 
   private static boolean isRegularQuote(boolean doubleQuoted, char ch) {
-    return (doubleQuoted && ch == '\'') || (!doubleQuoted && "\"\\".indexOf(ch) != -1);
+    return (doubleQuoted && ch == '\'') || (!doubleQuoted && (ch == '"' || ch == '\\'));
   }
 
   private static boolean isEscapeChar(boolean doubleQuoted, char ch) {
@@ -223,20 +284,20 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     return !doubleQuoted && ch == '\'' && reader.charAt(1) == '\'';
   }
 
-  private String scanFlowScalarEscapeChar(CodeReader reader, CodeBuffer.Cursor startMark, StringBuilder originalChunks) {
+  private void scanFlowScalarEscapeChar(CodeReader reader, CodeBuffer.Cursor startMark) {
     char ch = reader.charAt(0);
-    int length;
-    if (ESCAPE_REPLACEMENTS.containsKey(ch)) {
+    String replacement = ESCAPE_REPLACEMENTS.get(ch);
+    Integer length = ESCAPE_CODES.get(ch);
+    if (replacement != null) {
       // The character is one of the single-replacement
       // types; these are replaced with a literal character
       // from the mapping.
-      reader.pop(originalChunks);
-      return ESCAPE_REPLACEMENTS.get(ch);
-    } else if (ESCAPE_CODES.containsKey(ch)) {
+      reader.pop(original);
+      value.append(replacement);
+    } else if (length != null) {
       // The character is a multi-digit escape sequence, with
       // length defined by the value in the ESCAPE_CODES map.
-      length = ESCAPE_CODES.get(ch);
-      reader.pop(originalChunks);
+      reader.pop(original);
       String hex = new String(reader.peek(length));
       if (NOT_HEXA.matcher(hex).find()) {
         throw new YamlLexerException("while scanning a double-quoted scalar",
@@ -245,12 +306,13 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
           reader.getCursor());
       }
       int decimal = Integer.parseInt(hex, 16);
-      String unicode = new String(Character.toChars(decimal));
-      originalChunks.append(forward(reader, length));
-      return unicode;
+      value.append(Character.toChars(decimal));
+      for (int i = 0; i < length; ++i) {
+        reader.pop(original);
+      }
     } else if (scanLineBreak(reader).length() != 0) {
-      originalChunks.append('\n');
-      return scanFlowScalarBreaks(reader, startMark, originalChunks);
+      original.append('\n');
+      scanFlowScalarBreaks(reader, startMark);
     } else {
       throw new YamlLexerException("while scanning a double-quoted scalar", startMark,
         "found unknown escape character " + ch + "(" + ((int) ch) + ")",
@@ -258,80 +320,82 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     }
   }
 
-  private String scanFlowScalarSpaces(CodeReader reader, CodeReader.Cursor startMark, StringBuilder originalChunks) {
+  private void scanFlowScalarSpaces(CodeReader reader, CodeReader.Cursor startMark) {
     // See the specification for details.
-    StringBuilder chunks = new StringBuilder();
     // Scan through any number of whitespace (space, tab) characters,
     // consuming them.
-    StringBuilder b = new StringBuilder();
-    while (" \t".indexOf(reader.charAt(0)) != -1) {
-      reader.pop(b);
+    int whitespaces = original.length();
+    while (CharClass.is(reader.charAt(0), BLANK)) {
+      reader.pop(original);
     }
-    String whitespaces = b.toString();
-    originalChunks.append(whitespaces);
-    char ch = reader.charAt(0);
-    if (ch == '\0') {
+    int whitespacesEnd = original.length();
+    if (CharClass.is(reader.charAt(0), NUL | END)) {
       // A flow scalar cannot end with an end-of-stream
       throw new YamlLexerException("while scanning a quoted scalar", startMark,
         "found unexpected end of stream", reader.getCursor());
     }
     // If we encounter a line break, scan it into our assembled string...
     String lineBreak = scanLineBreak(reader);
-    originalChunks.append(lineBreak);
+    original.append(lineBreak);
     if (lineBreak.length() != 0) {
-      String breaks = scanFlowScalarBreaks(reader, startMark, originalChunks);
+      int breaks = value.length();
+      scanFlowScalarBreaks(reader, startMark);
       if (!"\n".equals(lineBreak)) {
-        chunks.append(lineBreak);
-      } else if (breaks.length() == 0) {
-        chunks.append(" ");
+        value.insert(breaks, lineBreak);
+      } else if (value.length() == breaks) {
+        value.append(' ');
       }
-      chunks.append(breaks);
     } else {
-      chunks.append(whitespaces);
+      value.append(original, whitespaces, whitespacesEnd);
     }
-    return chunks.toString();
   }
 
-  private String scanFlowScalarBreaks(CodeReader reader, CodeReader.Cursor startMark, StringBuilder originalChunks) {
+  private void scanFlowScalarBreaks(CodeReader reader, CodeReader.Cursor startMark) {
     // See the specification for details.
-    StringBuilder chunks = new StringBuilder();
     while (true) {
       // Instead of checking indentation, we check for document
       // separators.
-      String prefix = new String(reader.peek(3));
-      if (("---".equals(prefix) || "...".equals(prefix))
-        && NULL_BL_T_LINEBR_S.indexOf(reader.charAt(3)) != -1) {
+      if ((startsWith(reader, '-') || startsWith(reader, '.'))
+        && CharClass.is(reader.charAt(3), NULL_BL_T_LINEBR)) {
         throw new YamlLexerException("while scanning a quoted scalar", startMark,
           "found unexpected document separator", reader.getCursor());
       }
       // Scan past any number of spaces and tabs, ignoring them
-      while (" \t".indexOf(reader.charAt(0)) != -1) {
-        reader.pop(originalChunks);
+      while (CharClass.is(reader.charAt(0), BLANK)) {
+        reader.pop(original);
       }
       // If we stopped at a line break, add that; otherwise, return the
       // assembled set of scalar breaks.
       String lineBreak = scanLineBreak(reader);
       if (lineBreak.length() != 0) {
-        chunks.append(lineBreak);
-        originalChunks.append(lineBreak);
+        value.append(lineBreak);
+        original.append(lineBreak);
       } else {
-        return chunks.toString();
+        return;
       }
     }
   }
 
-  private static String forward(CodeReader reader, int count) {
-    StringBuilder b = new StringBuilder();
-    for (int i = 0; i < count; ++i) {
-      reader.pop(b);
-    }
-    return b.toString();
+  /**
+   * Tells if the next three characters are a document marker character ({@code ---} or {@code ...}).
+   */
+  private static boolean startsWith(CodeReader reader, char marker) {
+    return reader.charAt(0) == marker && reader.charAt(1) == marker && reader.charAt(2) == marker;
+  }
+
+  /**
+   * Consume a character that belongs to both the value and the original value of the scalar.
+   */
+  private void popToBoth(CodeReader reader) {
+    char c = (char) reader.pop();
+    value.append(c);
+    original.append(c);
   }
 
   /**
    * Fetch a plain scalar.
    */
-  private void fetchPlain(CodeReader code, com.sonar.sslr.impl.Lexer output) {
+  private void fetchPlain(CodeReader code, LexerOutput output) {
     // A plain scalar could be a simple key.
     state.savePossibleSimpleKey(code, output);
 
@@ -341,11 +405,14 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     state.allowSimpleKey(false);
 
     // Scan and add SCALAR. May change `allow_simple_key`.
-    StringBuilder chunks = new StringBuilder();
-    StringBuilder originalChunks = new StringBuilder();
+    value.setLength(0);
+    original.setLength(0);
+    spaces.setLength(0);
+    originalSpaces.setLength(0);
     CodeBuffer.Cursor startMark = code.getCursor().clone();
+    int start = code.length();
+    int end = start;
     int indent = state.indent() + 1;
-    String[] spaces = {"", ""};
     while (true) {
       // A comment indicates the end of the scalar.
       if (code.charAt(0) == '#') {
@@ -354,7 +421,9 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
       int length = skipPlainChars(code);
       // It's not clear what we should do with ':' in the flow context.
       if (state.flowLevel() != 0 && hasUnexpectedColonAt(code, length)) {
-        originalChunks.append(forward(code, length));
+        for (int i = 0; i < length; ++i) {
+          code.pop();
+        }
         throw new YamlLexerException("while scanning a plain scalar", startMark,
           "found unexpected ':'", code.getCursor());
       }
@@ -362,41 +431,34 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
         break;
       }
       state.allowSimpleKey(false);
-      chunks.append(spaces[0]);
-      originalChunks.append(spaces[1]);
-      String chunk = forward(code, length);
-      chunks.append(chunk);
-      originalChunks.append(chunk);
-      spaces = scanPlainSpaces(code);
-      if (spaces[0].length() == 0 || code.charAt(0) == '#'
+      value.append(spaces);
+      original.append(originalSpaces);
+      for (int i = 0; i < length; ++i) {
+        popToBoth(code);
+      }
+      end = code.length();
+      scanPlainSpaces(code);
+      if (spaces.length() == 0 || code.charAt(0) == '#'
         || (state.flowLevel() == 0 && code.getColumnPosition() < indent)) {
         break;
       }
     }
-    String value = chunks.toString();
-    TokenType type = decodePlainScalar(value);
-    Token token = tokenBuilder
-      .setType(type)
-      .setValueAndOriginalValue(value, originalChunks.toString())
-      .setLine(startMark.getLine())
-      .setColumn(startMark.getColumn())
-      .build();
-    output.addToken(token);
+    String plainValue = value.toString();
+    addScalar(output, decodePlainScalar(plainValue), plainValue, startMark, start, end);
   }
 
   private static boolean hasUnexpectedColonAt(CodeReader code, int length) {
     return code.charAt(length) == ':'
-      && (",[]{}" + NULL_BL_T_LINEBR_S).indexOf(code.charAt(length + 1)) == -1;
+      && !CharClass.is(code.charAt(length + 1), FLOW_INDICATOR | NULL_BL_T_LINEBR);
   }
 
   private int skipPlainChars(CodeReader code) {
     int length = 0;
     while (true) {
       char ch2 = code.charAt(length);
-      if (NULL_BL_T_LINEBR_S.indexOf(ch2) != -1
-        || (state.flowLevel() == 0 && ch2 == ':' && NULL_BL_T_LINEBR_S
-          .indexOf(code.charAt(length + 1)) != -1)
-        || (state.flowLevel() != 0 && ",:?[]{}".indexOf(ch2) != -1)) {
+      if (CharClass.is(ch2, NULL_BL_T_LINEBR)
+        || (state.flowLevel() == 0 && ch2 == ':' && CharClass.is(code.charAt(length + 1), NULL_BL_T_LINEBR))
+        || (state.flowLevel() != 0 && (ch2 == ':' || ch2 == '?' || CharClass.is(ch2, FLOW_INDICATOR)))) {
         break;
       }
       length++;
@@ -406,55 +468,52 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
 
   /**
    * See the specification for details. SnakeYAML and libyaml allow tabs
-   * inside plain scalar
+   * inside plain scalar. The spaces are scanned into {@link #spaces} and
+   * {@link #originalSpaces}, and belong to the scalar only if it goes on.
    */
-  private String[] scanPlainSpaces(CodeReader reader) {
-    StringBuilder b = new StringBuilder();
-    StringBuilder original = new StringBuilder();
+  private void scanPlainSpaces(CodeReader reader) {
+    spaces.setLength(0);
+    originalSpaces.setLength(0);
     while (reader.charAt(0) == ' ' || reader.charAt(0) == '\t') {
-      reader.pop(b);
+      reader.pop(originalSpaces);
     }
-    String whitespaces = b.toString();
-    original.append(whitespaces);
     String lineBreak = scanLineBreak(reader);
-    original.append(lineBreak);
-    if (lineBreak.length() != 0) {
-      state.allowSimpleKey(true);
-      String prefix = new String(reader.peek(3));
-      if (isStreamDelimiter(reader, prefix)) {
-        return new String[] {"", original.toString()};
-      }
-      StringBuilder breaks = new StringBuilder();
-      while (true) {
-        if (reader.charAt(0) == ' ') {
-          reader.pop(original);
-        } else {
-          String lb = scanLineBreak(reader);
-          if (lb.length() != 0) {
-            breaks.append(lb);
-            original.append(lb);
-            prefix = new String(reader.peek(3));
-            if (isStreamDelimiter(reader, prefix)) {
-              return new String[] {"", original.toString()};
-            }
-          } else {
-            break;
+    if (lineBreak.length() == 0) {
+      spaces.append(originalSpaces);
+      return;
+    }
+    originalSpaces.append(lineBreak);
+    state.allowSimpleKey(true);
+    if (isStreamDelimiter(reader)) {
+      return;
+    }
+    while (true) {
+      if (reader.charAt(0) == ' ') {
+        reader.pop(originalSpaces);
+      } else {
+        String lb = scanLineBreak(reader);
+        if (lb.length() != 0) {
+          spaces.append(lb);
+          originalSpaces.append(lb);
+          if (isStreamDelimiter(reader)) {
+            spaces.setLength(0);
+            return;
           }
+        } else {
+          break;
         }
       }
-      if (!"\n".equals(lineBreak)) {
-        return new String[] {lineBreak + breaks, original.toString()};
-      } else if (breaks.length() == 0) {
-        return new String[] {" ", original.toString()};
-      }
-      return new String[] {breaks.toString(), original.toString()};
     }
-    return new String[] {whitespaces, original.toString()};
+    if (!"\n".equals(lineBreak)) {
+      spaces.insert(0, lineBreak);
+    } else if (spaces.length() == 0) {
+      spaces.append(' ');
+    }
   }
 
-  private static boolean isStreamDelimiter(CodeReader reader, String prefix) {
-    return "---".equals(prefix) || "...".equals(prefix)
-      && NULL_BL_T_LINEBR_S.indexOf(reader.charAt(3)) != -1;
+  private static boolean isStreamDelimiter(CodeReader reader) {
+    return startsWith(reader, '-') || startsWith(reader, '.')
+      && CharClass.is(reader.charAt(3), NULL_BL_T_LINEBR);
   }
 
   /**
@@ -481,8 +540,8 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     char next = reader.charAt(1);
     // If the next char is NOT one of the forbidden chars above or
     // whitespace, then this is the start of a plain scalar.
-    return SPECIAL.indexOf(ch) == -1
-      || (NULL_BL_T_LINEBR_S.indexOf(next) == -1 && (ch == '-' || (state.flowLevel() == 0 && "?:".indexOf(ch) != -1)));
+    return !CharClass.is(ch, SPECIAL)
+      || (!CharClass.is(next, NULL_BL_T_LINEBR) && (ch == '-' || (state.flowLevel() == 0 && (ch == '?' || ch == ':'))));
   }
 
 
@@ -493,7 +552,7 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
       return Tokens.STRING;
     }
     char c = value.charAt(0);
-    if ("+-.0123456789".indexOf(c) != -1) {
+    if (CharClass.is(c, NUMBER_START)) {
       TokenType t = decodeNumberScalar(value, len);
       if (t != null) {
         return t;
@@ -594,7 +653,7 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
    *
    * @see http://www.yaml.org/spec/1.1/#id863975
    */
-  private void fetchBlockScalar(char style, CodeReader code, com.sonar.sslr.impl.Lexer output) {
+  private void fetchBlockScalar(char style, CodeReader code, LexerOutput output) {
     // A simple key may follow a block scalar.
     state.allowSimpleKey(true);
 
@@ -605,62 +664,54 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     // Depending on the given style, we determine whether the scalar is
     // folded ('>') or literal ('|')
     boolean folded = style == '>';
-    StringBuilder chunks = new StringBuilder();
-    StringBuilder originalChunks = new StringBuilder();
+    value.setLength(0);
+    original.setLength(0);
     CodeReader.Cursor startMark = code.getCursor().clone();
+    int start = code.length();
     // Scan the header
-    code.pop(originalChunks);
-    Chomping chompi = scanBlockScalarIndicators(code, startMark, originalChunks);
+    code.pop(original);
+    Chomping chompi = scanBlockScalarIndicators(code, startMark);
     int increment = chompi.getIncrement();
-    scanBlockScalarIgnoredLine(code, output, startMark, originalChunks);
+    scanBlockScalarIgnoredLine(code, output, startMark);
 
     // Determine the indentation level and go to the first non-empty line.
     int minIndent = state.indent() + 1;
     if (minIndent < 1) {
       minIndent = 1;
     }
-    String breaks;
-    int maxIndent;
     int indent;
     if (increment == -1) {
-      Object[] brme = scanBlockScalarIndentation(code, originalChunks);
-      breaks = (String) brme[0];
-      maxIndent = (Integer) brme[1];
+      int maxIndent = scanBlockScalarIndentation(code);
       indent = Math.max(minIndent, maxIndent);
     } else {
       indent = minIndent + increment - 1;
-      Object[] brme = scanBlockScalarBreaks(code, indent, originalChunks);
-      breaks = (String) brme[0];
+      scanBlockScalarBreaks(code, indent);
     }
 
     String lineBreak = "";
 
     // Scan the inner part of the block scalar.
     while (code.getColumnPosition() == indent && code.charAt(0) != '\0') {
-      chunks.append(breaks);
-      boolean leadingNonSpace = " \t".indexOf(code.charAt(0)) == -1;
-      StringBuilder innerChunk = new StringBuilder();
-      while (Lexer.NULL_OR_LINEBR_S.indexOf(code.charAt(0)) == -1) {
-        code.pop(innerChunk);
+      value.append(breaks);
+      boolean leadingNonSpace = !CharClass.is(code.charAt(0), BLANK);
+      while (!CharClass.is(code.charAt(0), NULL_OR_LINEBR)) {
+        popToBoth(code);
       }
-      chunks.append(innerChunk.toString());
-      originalChunks.append(innerChunk.toString());
       lineBreak = scanLineBreak(code);
-      originalChunks.append(lineBreak);
-      Object[] brme = scanBlockScalarBreaks(code, indent, originalChunks);
-      breaks = (String) brme[0];
+      original.append(lineBreak);
+      scanBlockScalarBreaks(code, indent);
       if (code.getColumnPosition() == indent && code.charAt(0) != '\0') {
 
         // Unfortunately, folding rules are ambiguous.
         //
         // This is the folding according to the specification:
         if (folded && "\n".equals(lineBreak) && leadingNonSpace
-          && " \t".indexOf(code.charAt(0)) == -1) {
+          && !CharClass.is(code.charAt(0), BLANK)) {
           if (breaks.length() == 0) {
-            chunks.append(" ");
+            value.append(" ");
           }
         } else {
-          chunks.append(lineBreak);
+          value.append(lineBreak);
         }
         // Clark Evans's interpretation (also in the spec examples) not
         // imported from PyYAML
@@ -670,19 +721,13 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     }
     // Chomp the tail.
     if (chompi.chompTailIsNotFalse()) {
-      chunks.append(lineBreak);
+      value.append(lineBreak);
     }
     if (chompi.chompTailIsTrue()) {
-      chunks.append(breaks);
+      value.append(breaks);
     }
     // We are done.
-    Token token = tokenBuilder
-      .setType(Tokens.STRING)
-      .setValueAndOriginalValue(chunks.toString(), originalChunks.toString())
-      .setLine(startMark.getLine())
-      .setColumn(startMark.getColumn())
-      .build();
-    output.addToken(token);
+    addScalar(output, Tokens.STRING, value.toString(), startMark, start, code.length());
   }
 
   /**
@@ -700,7 +745,7 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
    * @see http://www.yaml.org/spec/1.1/#id927035
    * @see http://www.yaml.org/spec/1.1/#id927557
    */
-  private Chomping scanBlockScalarIndicators(CodeReader reader, CodeReader.Cursor startMark, StringBuilder originalChunks) {
+  private Chomping scanBlockScalarIndicators(CodeReader reader, CodeReader.Cursor startMark) {
     // See the specification for details.
     Boolean chomping = null;
     int increment = -1;
@@ -711,21 +756,21 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
       } else {
         chomping = Boolean.FALSE;
       }
-      reader.pop(originalChunks);
+      reader.pop(original);
       ch = reader.charAt(0);
       if (Character.isDigit(ch)) {
         increment = Integer.parseInt(String.valueOf(ch));
         if (increment == 0) {
           throw makeScalarIndentException(reader, startMark);
         }
-        reader.pop(originalChunks);
+        reader.pop(original);
       }
     } else if (Character.isDigit(ch)) {
       increment = Integer.parseInt(String.valueOf(ch));
       if (increment == 0) {
         throw makeScalarIndentException(reader, startMark);
       }
-      reader.pop(originalChunks);
+      reader.pop(original);
       ch = reader.charAt(0);
       if (ch == '-' || ch == '+') {
         if (ch == '+') {
@@ -733,15 +778,15 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
         } else {
           chomping = Boolean.FALSE;
         }
-        reader.pop(originalChunks);
+        reader.pop(original);
       }
     }
     ch = reader.charAt(0);
-    if (Lexer.NULL_BL_LINEBR_S.indexOf(ch) == -1) {
+    if (!CharClass.is(ch, NULL_BL_LINEBR)) {
       throw new YamlLexerException(WHILE_SCANNING_BLOCK_SCALAR, startMark, "expected chomping or indentation indicator but found " + ch,
         reader.getCursor());
     }
-    return new Chomping(chomping, increment);
+    return Chomping.of(chomping, increment);
   }
 
   private static YamlLexerException makeScalarIndentException(CodeReader reader, CodeBuffer.Cursor startMark) {
@@ -754,17 +799,17 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
    * Scan to the end of the line after a block scalar has been scanned; the
    * only things that are permitted at this time are comments and spaces.
    */
-  private void scanBlockScalarIgnoredLine(CodeReader reader, com.sonar.sslr.impl.Lexer output, CodeReader.Cursor startMark, StringBuilder originalChunks) {
+  private void scanBlockScalarIgnoredLine(CodeReader reader, LexerOutput output, CodeReader.Cursor startMark) {
     // Forward past any number of trailing spaces
     while (reader.charAt(0) == ' ') {
-      reader.pop(originalChunks);
+      reader.pop(original);
     }
-    new CommentChannel(true).consume(reader, output);
+    trailingComment.consume(reader, output);
     // If the next character is not a null or line break, an error has
     // occurred.
     char ch = reader.charAt(0);
     String lineBreak = scanLineBreak(reader);
-    originalChunks.append(lineBreak);
+    original.append(lineBreak);
     if (lineBreak.length() == 0 && ch != '\0') {
       throw new YamlLexerException(WHILE_SCANNING_BLOCK_SCALAR, startMark,
         "expected a comment or a line break, but found " + ch, reader.getCursor());
@@ -774,78 +819,96 @@ class ScalarChannel extends Channel<com.sonar.sslr.impl.Lexer> {
   /**
    * Scans for the indentation of a block scalar implicitly. This mechanism is
    * used only if the block did not explicitly state an indentation to be
-   * used.
+   * used. The line breaks are scanned into {@link #breaks}.
    *
+   * @return the maximum number of leading spaces on the scanned lines
    * @see http://www.yaml.org/spec/1.1/#id927035
    */
-  private Object[] scanBlockScalarIndentation(CodeReader reader, StringBuilder originalChunks) {
+  private int scanBlockScalarIndentation(CodeReader reader) {
     // See the specification for details.
-    StringBuilder chunks = new StringBuilder();
+    breaks.setLength(0);
     int maxIndent = 0;
     // Look ahead some number of lines until the first non-blank character
     // occurs; the determined indentation will be the maximum number of
-    // leading spaces on any of these lines.
-    while ((Lexer.LINEBR_S + " \r").indexOf(reader.charAt(0)) != -1) {
+    // leading spaces on any of these lines. The end of the stream stops the scan, as no line break can be scanned there.
+    while (CharClass.is(reader.charAt(0), LINEBR | SPACE | CR)) {
       if (reader.charAt(0) != ' ') {
         // If the character isn't a space, it must be some kind of
         // line-break; scan the line break and track it.
-        String breaks = scanLineBreak(reader);
-        chunks.append(breaks);
-        originalChunks.append(breaks);
+        String lineBreak = scanLineBreak(reader);
+        breaks.append(lineBreak);
+        original.append(lineBreak);
       } else {
         // If the character is a space, move forward to the next
         // character; if we surpass our previous maximum for indent
         // level, update that too.
-        reader.pop(originalChunks);
+        reader.pop(original);
         if (reader.getColumnPosition() > maxIndent) {
           maxIndent = reader.getColumnPosition();
         }
       }
     }
-    // Pass several results back together.
-    return new Object[] {chunks.toString(), maxIndent};
+    return maxIndent;
   }
 
-  private Object[] scanBlockScalarBreaks(CodeReader reader, int indent, StringBuilder originalChunks) {
+  /**
+   * Scan the empty lines of a block scalar into {@link #breaks}.
+   */
+  private void scanBlockScalarBreaks(CodeReader reader, int indent) {
     // See the specification for details.
-    StringBuilder chunks = new StringBuilder();
+    breaks.setLength(0);
     int col = reader.getColumnPosition();
     // Scan for up to the expected indentation-level of spaces, then move
     // forward past that amount.
     while (col < indent && reader.charAt(0) == ' ') {
-      reader.pop(originalChunks);
+      reader.pop(original);
       col++;
     }
     // Consume one or more line breaks followed by any amount of spaces,
     // until we find something that isn't a line-break.
     String lineBreak;
     while ((lineBreak = scanLineBreak(reader)).length() != 0) {
-      chunks.append(lineBreak);
-      originalChunks.append(lineBreak);
+      breaks.append(lineBreak);
+      original.append(lineBreak);
       // Scan past up to (indent) spaces on the next line, then forward
       // past them.
       col = reader.getColumnPosition();
       while (col < indent && reader.charAt(0) == ' ') {
-        reader.pop(originalChunks);
+        reader.pop(original);
         col++;
       }
     }
-    // Return both the assembled intervening string and the end-mark.
-    return new Object[] {chunks.toString()};
   }
 
   /**
    * Chomping the tail may have 3 values - yes, no, not defined.
    */
-  private static class Chomping {
+  private static final class Chomping {
+    // The indentation indicator is a single digit: all the possible indicators are shared
+    private static final Chomping[][] INDICATORS = new Chomping[3][11];
+
+    static {
+      Boolean[] values = {null, Boolean.FALSE, Boolean.TRUE};
+      for (int i = 0; i < values.length; ++i) {
+        for (int increment = -1; increment <= 9; ++increment) {
+          INDICATORS[i][increment + 1] = new Chomping(values[i], increment);
+        }
+      }
+    }
+
     private final Boolean value;
     private final int increment;
 
-    Chomping(@Nullable Boolean value, int increment) {
+    private Chomping(@Nullable Boolean value, int increment) {
       this.value = value;
       this.increment = increment;
     }
 
+    static Chomping of(@Nullable Boolean value, int increment) {
+      int index = value == null ? 0 : (value ? 2 : 1);
+      return INDICATORS[index][increment + 1];
+    }
+
     boolean chompTailIsNotFalse() {
       return value == null || value;
     }
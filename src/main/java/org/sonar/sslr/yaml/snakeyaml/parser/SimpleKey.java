@@ -32,12 +32,38 @@ final class SimpleKey {
     private boolean required;
     private int line;
     private int column;
+    private boolean possible;
 
-    public SimpleKey(int tokenNumber, boolean required, int line, int column) {
+    /**
+     * Make this instance the possible simple key of its flow level.
+     */
+    void set(int tokenNumber, boolean required, int line, int column) {
         this.tokenNumber = tokenNumber;
         this.required = required;
         this.line = line;
         this.column = column;
+        this.possible = true;
+    }
+
+    /**
+     * Flag this instance as no longer being a possible simple key.
+     */
+    void discard() {
+        this.possible = false;
+    }
+
+    boolean isPossible() {
+        return possible;
+    }
+
+    /**
+     * A copy of this instance, which is not changed when this one is reused for the next key.
+     */
+    SimpleKey copy() {
+        SimpleKey copy = new SimpleKey();
+        copy.set(tokenNumber, required, line, column);
+        copy.possible = possible;
+        return copy;
     }
 
     public int getColumn() {
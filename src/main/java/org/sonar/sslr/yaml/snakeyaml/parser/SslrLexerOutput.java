@@ -0,0 +1,69 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Lexer;
+import java.net.URI;
+import java.util.List;
+import javax.annotation.CheckForNull;
+
+/**
+ * Writes the output of the channels to an SSLR lexer.
+ */
+final class SslrLexerOutput implements LexerOutput {
+  private final Lexer lexer;
+
+  SslrLexerOutput(Lexer lexer) {
+    this.lexer = lexer;
+  }
+
+  boolean writesTo(Lexer lexer) {
+    return this.lexer == lexer;
+  }
+
+  @Override
+  public URI getURI() {
+    return lexer.getURI();
+  }
+
+  @Override
+  public void addToken(Token... tokens) {
+    lexer.addToken(tokens);
+  }
+
+  @Override
+  public void addTrivia(Trivia trivia) {
+    lexer.addTrivia(trivia);
+  }
+
+  @Override
+  public int tokenCount() {
+    return lexer.getTokens().size();
+  }
+
+  @CheckForNull
+  @Override
+  public Token lastToken() {
+    List<Token> tokens = lexer.getTokens();
+    return tokens.isEmpty() ? null : tokens.get(tokens.size() - 1);
+  }
+}
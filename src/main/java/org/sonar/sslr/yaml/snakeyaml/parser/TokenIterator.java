@@ -0,0 +1,206 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.LexerException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.CheckForNull;
+import org.sonar.sslr.channel.CodeReader;
+
+/**
+ * Lexes a document as its tokens are consumed. This produces the same tokens, with the same comments, as the lexer
+ * returned by {@link Lexer#create(java.nio.charset.Charset)}, but only holds the few tokens that have been lexed and not
+ * consumed yet: tools that only look at the tokens, without building a syntax tree, do not pay for the list of all the
+ * tokens. The whole text of the document is still held in memory, as the channels read it from a {@link CodeReader}:
+ * the memory used grows with the size of the document, not with its number of tokens.
+ * <p>
+ * The channels are driven one step at a time, and their output goes through the same preprocessing as in the SSLR
+ * lexer (see {@link FinalIndentUnwinder}), which needs to look at most {@value #LOOKAHEAD} tokens ahead.
+ * <p>
+ * Lexing errors are thrown as {@link LexerException} by {@link #hasNext()} and {@link #next()}.
+ */
+public final class TokenIterator implements Iterator<Token> {
+  private static final int LOOKAHEAD = 4;
+
+  private final CodeReader code;
+  private final URI uri;
+  private final DispatchChannel channel;
+  private final FinalIndentUnwinder preprocessor;
+  private final Output output = new Output();
+  // The tokens produced by the channels, not preprocessed yet
+  private final Deque<Token> lexed = new ArrayDeque<>();
+  // The preprocessed tokens, ready to be consumed
+  private final Deque<Token> ready = new ArrayDeque<>();
+  private final List<Token> window = new ArrayList<>(LOOKAHEAD);
+  private List<Trivia> preprocessedTrivia = new ArrayList<>();
+  private boolean ended = false;
+
+  TokenIterator(CodeReader code, URI uri) {
+    this.code = code;
+    this.uri = uri;
+    LexerState state = new LexerState();
+    this.channel = new DispatchChannel(state, null);
+    this.preprocessor = new FinalIndentUnwinder(state);
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (ready.isEmpty() && !(ended && lexed.isEmpty())) {
+      lex();
+      preprocess();
+    }
+    return !ready.isEmpty();
+  }
+
+  @Override
+  public Token next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return ready.poll();
+  }
+
+  /**
+   * Get the remaining tokens as a sequential stream.
+   * @return the stream of the tokens
+   */
+  public Stream<Token> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  /**
+   * Run the channels until there are enough tokens for the preprocessor, or until the end of the document.
+   */
+  private void lex() {
+    try {
+      while (!ended && lexed.size() < LOOKAHEAD) {
+        if (code.peek() == -1) {
+          output.addToken(Token.builder()
+            .setType(GenericTokenType.EOF)
+            .setValueAndOriginalValue("EOF")
+            .setURI(uri)
+            .setLine(code.getLinePosition())
+            .setColumn(code.getColumnPosition())
+            .build());
+          ended = true;
+        } else if (!channel.dispatch(code, output)) {
+          throw new IllegalStateException("None of the channels has been able to handle character '" + (char) code.peek()
+            + "' (decimal value " + code.peek() + ") at line " + code.getLinePosition() + ", column " + code.getColumnPosition());
+        }
+      }
+    } catch (RuntimeException e) {
+      throw new LexerException("Unable to lex source code at line : " + code.getLinePosition() + " and column : "
+        + code.getColumnPosition() + " in file : " + uri, e);
+    }
+  }
+
+  /**
+   * Apply the preprocessor to the first lexed token, the same way as the SSLR lexer does.
+   */
+  @SuppressWarnings("deprecation")
+  private void preprocess() {
+    if (lexed.isEmpty()) {
+      return;
+    }
+    window.clear();
+    for (Iterator<Token> iterator = lexed.iterator(); iterator.hasNext() && window.size() < LOOKAHEAD;) {
+      window.add(iterator.next());
+    }
+    com.sonar.sslr.api.PreprocessorAction action = preprocessor.process(window);
+    preprocessedTrivia.addAll(action.getTriviaToInject());
+    for (int i = 0; i < action.getNumberOfConsumedTokens(); ++i) {
+      preprocessedTrivia.addAll(lexed.poll().getTrivia());
+    }
+    for (Token token : action.getTokensToInject()) {
+      ready.add(attachTrivia(token));
+    }
+    if (action.getNumberOfConsumedTokens() == 0) {
+      Token token = lexed.poll();
+      preprocessedTrivia.addAll(token.getTrivia());
+      ready.add(attachTrivia(token));
+    }
+  }
+
+  private Token attachTrivia(Token token) {
+    if (preprocessedTrivia.isEmpty() && !token.hasTrivia()) {
+      return token;
+    }
+    Token result = Token.builder(token).setTrivia(preprocessedTrivia).build();
+    preprocessedTrivia = new ArrayList<>();
+    return result;
+  }
+
+  /**
+   * Collects the output of the channels, attaching the comments to the tokens as the SSLR lexer does.
+   */
+  private final class Output implements LexerOutput {
+    private List<Trivia> trivia = new ArrayList<>();
+    private int tokenCount = 0;
+    private Token lastToken = null;
+
+    @Override
+    public URI getURI() {
+      return uri;
+    }
+
+    @Override
+    public void addToken(Token... tokens) {
+      for (int i = 0; i < tokens.length; ++i) {
+        Token token = tokens[i];
+        if (i == 0 && (!trivia.isEmpty() || token.hasTrivia())) {
+          token = Token.builder(token).setTrivia(trivia).build();
+          trivia = new ArrayList<>();
+        }
+        lexed.add(token);
+        lastToken = token;
+      }
+      tokenCount += tokens.length;
+    }
+
+    @Override
+    public void addTrivia(Trivia trivia) {
+      this.trivia.add(trivia);
+    }
+
+    @Override
+    public int tokenCount() {
+      return tokenCount;
+    }
+
+    @CheckForNull
+    @Override
+    public Token lastToken() {
+      return lastToken;
+    }
+  }
+}
@@ -20,13 +20,12 @@
 package org.sonar.sslr.yaml.snakeyaml.parser;
 
 import com.sonar.sslr.api.Token;
-import com.sonar.sslr.impl.Lexer;
 import org.sonar.sslr.channel.Channel;
 import org.sonar.sslr.channel.CodeReader;
 
 import java.util.List;
 
-public class UnwindIndentChannel extends Channel<Lexer> {
+public class UnwindIndentChannel extends Channel<LexerOutput> {
     private final LexerState state;
     private final IndentUnwinder unwinder;
 
@@ -36,7 +35,7 @@ public class UnwindIndentChannel extends Channel<Lexer> {
     }
 
     @Override
-    public boolean consume(CodeReader code, Lexer output) {
+    public boolean consume(CodeReader code, LexerOutput output) {
         state.stalePossibleSimpleKeys(code);
         List<Token> tokens = unwinder.unwindIndent(code.getColumnPosition(), code.getLinePosition(), code.getColumnPosition(), output.getURI());
         if (!tokens.isEmpty()) {
@@ -24,7 +24,7 @@ import org.sonar.sslr.channel.Channel;
 import org.sonar.sslr.channel.CodeBuffer;
 import org.sonar.sslr.channel.CodeReader;
 
-public class ValueChannel extends Channel<com.sonar.sslr.impl.Lexer> {
+public class ValueChannel extends Channel<LexerOutput> {
     private final LexerState state;
     private final Token.Builder tokenBuilder = Token.builder();
 
@@ -33,9 +33,9 @@ public class ValueChannel extends Channel<com.sonar.sslr.impl.Lexer> {
     }
 
     @Override
-    public boolean consume(CodeReader code, com.sonar.sslr.impl.Lexer output) {
+    public boolean consume(CodeReader code, LexerOutput output) {
         int c = code.peek();
-        if (c == ':' && ((state.flowLevel() != 0) || Lexer.NULL_BL_T_LINEBR_S.indexOf(code.charAt(1)) != -1)) {
+        if (c == ':' && ((state.flowLevel() != 0) || CharClass.is(code.charAt(1), CharClass.NULL_BL_T_LINEBR))) {
             fetchValue(code, output);
             return true;
         } else {
@@ -48,9 +48,9 @@ public class ValueChannel extends Channel<com.sonar.sslr.impl.Lexer> {
      *
      * @see http://www.yaml.org/spec/1.1/#id863975
      */
-    private void fetchValue(CodeReader reader, com.sonar.sslr.impl.Lexer output) {
+    private void fetchValue(CodeReader reader, LexerOutput output) {
         // Do we determine a simple key?
-        SimpleKey key = state.possibleSimpleKeys().remove(state.flowLevel());
+        SimpleKey key = state.takePossibleSimpleKey();
         if (key != null) {
             // Add KEY.
             Token token = tokenBuilder
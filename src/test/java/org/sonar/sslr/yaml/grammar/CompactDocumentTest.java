@@ -0,0 +1,253 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.sslr.yaml.grammar.impl.MissingNode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompactDocumentTest {
+  private static final String DOCUMENT = "info:\n" +
+    "  title: API # comment\n" +
+    "  version: 1.0\n" +
+    "  tags: [a, 'b', {c: 1, d}]\n" +
+    "paths:\n" +
+    "  /users/{id}:\n" +
+    "    get:\n" +
+    "      parameters:\n" +
+    "      - name: id\n" +
+    "        in: path\n" +
+    "        required: yes\n" +
+    "      -\n" +
+    "      - $ref: '#/components/parameters/Limit'\n" +
+    "  ~tilde: null\n" +
+    "components:\n" +
+    "  parameters:\n" +
+    "    Limit:\n" +
+    "      name: limit\n" +
+    "      in: query\n" +
+    "empty:\n" +
+    "twice: 1\n" +
+    "twice: 2\n" +
+    "list:\n" +
+    "  - - 0x1F\n" +
+    "    - -2.5\n" +
+    "  - true\n" +
+    "  - \"quoted \\\" value\"\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void navigates_like_the_syntax_tree() {
+    JsonNode expected = new YamlParser(StandardCharsets.UTF_8).parse(DOCUMENT);
+    JsonNode actual = CompactDocument.parse(DOCUMENT).getRoot();
+
+    assertSameTree(expected, actual);
+  }
+
+  @Test
+  public void navigates_with_pointers() {
+    JsonNode root = CompactDocument.parse(DOCUMENT).getRoot();
+
+    assertThat(root.at("/paths/~1users~1{id}/get/parameters/0/name").stringValue()).isEqualTo("id");
+    assertThat(root.at("/paths/~1users~1{id}/get/parameters/0/name").getPointer()).isEqualTo("/paths/~1users~1{id}/get/parameters/0/name");
+    assertThat(root.at("/paths/~1users~1{id}/get/parameters/0/required").booleanValue()).isTrue();
+    assertThat(root.at("/paths/~1users~1{id}/get/parameters/1").getPointer()).isEqualTo("/paths/~1users~1{id}/get/parameters/1");
+    assertThat(root.at("/paths/~1users~1{id}/get/parameters/2").isMissing()).isTrue();
+    assertThat(root.at("/list/0/0").intValue()).isEqualTo(31);
+    assertThat(root.at("/list/0/1").doubleValue()).isEqualTo(-2.5);
+    assertThat(root.at("/twice").intValue()).isEqualTo(1);
+    assertThat(root.at("/info/tags/3").isMissing()).isTrue();
+    assertThat(root.at("/info/title/x").isMissing()).isTrue();
+    assertThat(root.at("/empty").isMissing()).isTrue();
+    assertThat(root.propertyNames()).containsExactly("info", "paths", "components", "empty", "twice", "twice", "list");
+  }
+
+  @Test
+  public void navigates_between_keys_and_values() {
+    JsonNode root = CompactDocument.parse(DOCUMENT).getRoot();
+    JsonNode value = root.at("/info/title");
+
+    JsonNode key = value.key();
+    assertThat(key.isScalar()).isTrue();
+    assertThat(key.stringValue()).isEqualTo("title");
+    assertThat(key.getToken().getColumn()).isEqualTo(2);
+    assertThat(key.key()).isEqualTo(key);
+    assertThat(key.value()).isEqualTo(value);
+    assertThat(value.value()).isEqualTo(value);
+    assertThat(value.getParent()).isEqualTo(root.get("info"));
+    assertThat(root.key().isMissing()).isTrue();
+    assertThat(root.at("/list/1").key().isMissing()).isTrue();
+  }
+
+  @Test
+  public void views_of_the_same_node_are_equal() {
+    JsonNode root = CompactDocument.parse(DOCUMENT).getRoot();
+
+    assertThat(root.get("info")).isEqualTo(root.at("/info"));
+    assertThat(root.get("info").hashCode()).isEqualTo(root.at("/info").hashCode());
+    assertThat(root.get("info")).isNotEqualTo(root.get("paths"));
+    assertThat(root.at("/info/title").key()).isNotEqualTo(root.at("/info/title"));
+    assertThat(root.get("info")).isNotEqualTo(CompactDocument.parse(DOCUMENT).getRoot().get("info"));
+  }
+
+  @Test
+  public void resolves_local_references() {
+    JsonNode reference = CompactDocument.parse(DOCUMENT).getRoot().at("/paths/~1users~1{id}/get/parameters/1");
+
+    assertThat(reference.isRef()).isTrue();
+    assertThat(reference.resolve().getPointer()).isEqualTo("/components/parameters/Limit");
+    assertThat(reference.resolve().get("in").stringValue()).isEqualTo("query");
+    JsonNode notReference = reference.resolve();
+    assertThat(notReference.resolve()).isEqualTo(notReference);
+  }
+
+  @Test
+  public void shares_equal_values() {
+    CompactDocument document = CompactDocument.parse(DOCUMENT);
+    JsonNode root = document.getRoot();
+
+    assertThat(root.at("/components/parameters/Limit/name").key().getTokenValue())
+      .isSameAs(root.at("/paths/~1users~1{id}/get/parameters/0/name").key().getTokenValue());
+  }
+
+  @Test
+  public void reads_single_pair_mappings_as_objects() {
+    JsonNode root = CompactDocument.parse("[a: 1, b]").getRoot();
+
+    List<JsonNode> elements = root.elements();
+    assertThat(elements).hasSize(2);
+    assertThat(elements.get(0).isObject()).isTrue();
+    assertThat(elements.get(0).get("a").intValue()).isEqualTo(1);
+    assertThat(elements.get(1).stringValue()).isEqualTo("b");
+  }
+
+  @Test
+  public void keeps_the_first_token_of_collection_keys() {
+    JsonNode root = CompactDocument.parse("? [a, b]\n: value\nc: d\n").getRoot();
+
+    assertThat(root.propertyNames()).containsExactly("[", "c");
+    assertThat(root.get("[").stringValue()).isEqualTo("value");
+    assertThat(root.get("c").getPointer()).isEqualTo("/c");
+  }
+
+  @Test
+  public void matches_the_syntax_tree_on_properties_without_key_or_value() {
+    String document = "a: {b, c: 1, ? [d]}\n? e\nf:\n";
+
+    assertSameTree(new YamlParser(StandardCharsets.UTF_8).parse(document), CompactDocument.parse(document).getRoot());
+  }
+
+  @Test
+  public void points_to_elements_by_their_position() {
+    StringBuilder document = new StringBuilder("list:\n");
+    for (int i = 0; i < 1000; ++i) {
+      document.append("- [").append(i).append(", {a: ").append(i).append("}]\n");
+    }
+    JsonNode root = CompactDocument.parse(document.toString()).getRoot();
+
+    assertThat(root.at("/list/999/1/a").getPointer()).isEqualTo("/list/999/1/a");
+    assertThat(root.at("/list/500").elements().get(0).getPointer()).isEqualTo("/list/500/0");
+    assertThat(root.at("/list/1000").isMissing()).isTrue();
+  }
+
+  @Test
+  public void finds_the_properties_of_large_mappings() {
+    StringBuilder document = new StringBuilder();
+    for (int i = 0; i < 40; ++i) {
+      document.append("k").append(i).append(": ").append(i).append('\n');
+    }
+    document.append("k3: duplicate\nempty:\n");
+    JsonNode root = CompactDocument.parse(document.toString()).getRoot();
+
+    assertThat(root.get("k39").intValue()).isEqualTo(39);
+    assertThat(root.get("k3").intValue()).isEqualTo(3);
+    assertThat(root.at("/k3").getPointer()).isEqualTo("/k3");
+    assertThat(root.get("empty").isMissing()).isTrue();
+    assertThat(root.get("k40").isMissing()).isTrue();
+    assertThat(root.propertyNames()).hasSize(42);
+  }
+
+  @Test
+  public void counts_nodes() {
+    assertThat(CompactDocument.parse("a: [1, 2]\nb:\n").size()).isEqualTo(5);
+    assertThat(CompactDocument.parse("").size()).isZero();
+    assertThat(CompactDocument.parse("# only a comment\n").getRoot()).isSameAs(MissingNode.MISSING);
+  }
+
+  @Test
+  public void parses_files() throws Exception {
+    Path file = folder.newFile("document.yaml").toPath();
+    Files.write(file, DOCUMENT.getBytes(StandardCharsets.UTF_8));
+
+    JsonNode root = CompactDocument.parse(file, StandardCharsets.UTF_8).getRoot();
+
+    assertThat(root.at("/info/title").getToken().getURI()).isEqualTo(file.toUri());
+    assertSameTree(new YamlParser(StandardCharsets.UTF_8).parse(DOCUMENT), root);
+  }
+
+  @Test
+  public void rejects_invalid_documents() {
+    assertThatThrownBy(() -> CompactDocument.parse("a: [b"))
+      .isInstanceOf(RecognitionException.class);
+    assertThatThrownBy(() -> CompactDocument.parse("a: 'b"))
+      .isInstanceOf(RecognitionException.class);
+  }
+
+  private static void assertSameTree(JsonNode expected, JsonNode actual) {
+    if (expected.isMissing()) {
+      assertThat(actual.isMissing()).isTrue();
+      return;
+    }
+    String pointer = expected.getPointer();
+    assertThat(actual.getPointer()).isEqualTo(pointer);
+    assertThat(actual.isObject()).as(pointer).isEqualTo(expected.isObject());
+    assertThat(actual.isArray()).as(pointer).isEqualTo(expected.isArray());
+    assertThat(actual.isScalar()).as(pointer).isEqualTo(expected.isScalar());
+    assertThat(actual.isNull()).as(pointer).isEqualTo(expected.isNull());
+    assertThat(actual.isRef()).as(pointer).isEqualTo(expected.isRef());
+    assertThat(actual.stringValue()).as(pointer).isEqualTo(expected.stringValue());
+    assertThat(actual.getToken().getType()).as(pointer).isEqualTo(expected.getToken().getType());
+    assertThat(actual.getToken().getLine()).as(pointer).isEqualTo(expected.getToken().getLine());
+    assertThat(actual.getToken().getColumn()).as(pointer).isEqualTo(expected.getToken().getColumn());
+    assertThat(actual.key().stringValue()).as(pointer).isEqualTo(expected.key().stringValue());
+    assertThat(actual.propertyNames()).as(pointer).isEqualTo(expected.propertyNames());
+    assertThat(actual.propertyMap().keySet()).as(pointer).containsExactlyElementsOf(expected.propertyMap().keySet());
+    for (String name : expected.propertyMap().keySet()) {
+      assertSameTree(expected.get(name), actual.get(name));
+    }
+    List<JsonNode> expectedElements = expected.elements();
+    List<JsonNode> actualElements = actual.elements();
+    assertThat(actualElements).as(pointer).hasSameSizeAs(expectedElements);
+    for (int i = 0; i < expectedElements.size(); ++i) {
+      assertSameTree(expectedElements.get(i), actualElements.get(i));
+    }
+  }
+}
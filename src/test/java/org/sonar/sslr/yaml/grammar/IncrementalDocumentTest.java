@@ -0,0 +1,255 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IncrementalDocumentTest {
+  private static final String DOCUMENT = "# header\n" +
+    "info:\n" +
+    "  title: API # comment\n" +
+    "  tags: [a, 'b', {c: 1, d}]\n" +
+    "paths:\n" +
+    "  /users/{id}:\n" +
+    "    get:\n" +
+    "      summary: Get a user\n" +
+    "      parameters:\n" +
+    "      - name: id\n" +
+    "        in: path\n" +
+    "      # the limit\n" +
+    "      - $ref: '#/components/parameters/Limit'\n" +
+    "    put:\n" +
+    "      summary: Update a user\n" +
+    "  /groups:\n" +
+    "    get:\n" +
+    "      description: |\n" +
+    "        All the groups\n" +
+    "# before the list\n" +
+    "list:\n" +
+    "  - - 1\n" +
+    "    - 2.5\n" +
+    "  - true\n" +
+    "last: value\n" +
+    "# trailing\n";
+
+  private final YamlParser parser = YamlParser.builder().withCharset(StandardCharsets.UTF_8).build();
+
+  @Test
+  public void reuses_the_properties_outside_of_an_edit() {
+    IncrementalDocument document = parser.parseIncrementally(DOCUMENT);
+    JsonNode info = document.getRoot().at("/info");
+    JsonNode put = document.getRoot().at("/paths/~1users~1{id}/put");
+    JsonNode groups = document.getRoot().at("/paths/~1groups");
+
+    IncrementalDocument edited = edit(document, "Get a user", "Get the user");
+
+    assertThat(edited.getRoot().at("/paths/~1users~1{id}/get/summary").stringValue()).isEqualTo("Get the user");
+    assertThat(edited.getRoot().at("/info")).isSameAs(info);
+    assertThat(edited.getRoot().at("/paths/~1users~1{id}/put")).isSameAs(put);
+    assertThat(edited.getRoot().at("/paths/~1groups")).isSameAs(groups);
+    assertThat(edited.getRoot().at("/paths/~1groups").getPointer()).isEqualTo("/paths/~1groups");
+    assertSameAsFullParse(edited);
+  }
+
+  @Test
+  public void moves_the_tokens_after_an_edit_that_adds_lines() {
+    IncrementalDocument document = parser.parseIncrementally(DOCUMENT);
+
+    IncrementalDocument edited = edit(document, "Get a user\n", "Get a user\n      deprecated: true\n");
+
+    assertThat(edited.getRoot().at("/paths/~1users~1{id}/get/deprecated").booleanValue()).isTrue();
+    assertThat(edited.getRoot().at("/last").getToken().getLine()).isEqualTo(26);
+    assertSameAsFullParse(edited);
+  }
+
+  @Test
+  public void parses_edits_of_the_last_properties() {
+    IncrementalDocument document = parser.parseIncrementally(DOCUMENT);
+
+    assertSameAsFullParse(edit(document, "last: value", "last: other # edited"));
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "# trailing\n", "other:\n  - 1\n"));
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "  - true\n", ""));
+  }
+
+  @Test
+  public void parses_edits_of_comments_between_properties() {
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "# before the list", "# before the lists"));
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "# before the list\n", ""));
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "      # the limit\n", "      # the limit\n      # and more\n"));
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "# header", "# the header"));
+  }
+
+  @Test
+  public void parses_edits_that_change_the_structure() {
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "    put:", "  put:"));
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "summary: Get a user", "summary: [Get,\n        a, user]"));
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "info:\n", "info:\n  new: 1\nother:\n"));
+    assertSameAsFullParse(edit(parser.parseIncrementally(DOCUMENT), "\n  /groups:\n", "\n  /groups: {}\n  /others:\n"));
+  }
+
+  @Test
+  public void reports_syntax_errors_of_the_edited_document() {
+    IncrementalDocument document = parser.parseIncrementally(DOCUMENT);
+
+    assertThatThrownBy(() -> edit(document, "Get a user", "\"Get a user")).isInstanceOf(RecognitionException.class);
+    assertThatThrownBy(() -> edit(document, "summary: Get a user", "summary: {Get a user")).isInstanceOf(RecognitionException.class);
+    assertSameAsFullParse(edit(document, "Get a user", "'Get a user'"));
+  }
+
+  @Test
+  public void validates_the_edited_document_again() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    GrammarRuleKey root = new GrammarRuleKey() {
+    };
+    b.rule(root).is(b.object(b.mandatoryProperty("p1", b.object(b.property("p3", b.string()))), b.property("p2", b.string())));
+    b.setRootRule(root);
+    YamlParser validatingParser = YamlParser.builder().withGrammar(b).build();
+    IncrementalDocument document = validatingParser.parseIncrementally("p1:\n  p3: v1\np2: v2\n");
+    assertThat(document.getResult().getIssues()).isEmpty();
+
+    document = document.edit(document.getText().indexOf("p3"), 1, "x");
+    assertThat(document.getResult().getIssues()).extracting(ValidationIssue::getMessage).containsExactly("Unexpected property: \"x3\"");
+
+    document = document.edit(document.getText().indexOf("x3"), 1, "p");
+    assertThat(document.getResult().getIssues()).isEmpty();
+    assertSameAsFullParse(validatingParser, document);
+  }
+
+  @Test
+  public void leaves_the_document_unchanged_when_the_strict_validation_fails() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    GrammarRuleKey root = new GrammarRuleKey() {
+    };
+    b.rule(root).is(b.object(b.mandatoryProperty("p1", b.object(b.property("p3", b.string()))), b.property("p2", b.string())));
+    b.setRootRule(root);
+    YamlParser strictParser = YamlParser.builder().withGrammar(b).withStrictValidation(true).build();
+    IncrementalDocument document = strictParser.parseIncrementally("p1:\n  p3: v1\np2: v2\n");
+    String before = dump(document.getRoot());
+
+    assertThatThrownBy(() -> edit(document, "p3", "x3")).isInstanceOf(ValidationException.class);
+
+    assertThat(dump(document.getRoot())).isEqualTo(before);
+    for (AstNode child : document.getRoot().getChildren()) {
+      assertThat(child.getParent()).isSameAs(document.getRoot());
+    }
+    IncrementalDocument edited = edit(document, "v2", "v3");
+    assertThat(edited.getRoot().at("/p2").stringValue()).isEqualTo("v3");
+    assertSameAsFullParse(strictParser, edited);
+  }
+
+  @Test
+  public void random_edits_give_the_same_tree_as_a_full_parse() {
+    Random random = new Random(42);
+    String alphabet = "ab1 :-#?|>[]{},'\"\n\n";
+    for (YamlParser.Engine engine : YamlParser.Engine.values()) {
+      YamlParser randomParser = YamlParser.builder().withEngine(engine).build();
+      IncrementalDocument document = randomParser.parseIncrementally(DOCUMENT);
+      for (int i = 0; i < 3000; ++i) {
+        if (i % 100 == 0) {
+          document = randomParser.parseIncrementally(DOCUMENT);
+        }
+        String text = document.getText();
+        int offset = random.nextInt(text.length() + 1);
+        int removed = random.nextInt(3) == 0 ? Math.min(text.length() - offset, random.nextInt(4)) : 0;
+        String inserted = random.nextInt(3) == 0 ? "" : String.valueOf(alphabet.charAt(random.nextInt(alphabet.length())));
+        String editedText = text.substring(0, offset) + inserted + text.substring(offset + removed);
+
+        ParseResult expected;
+        try {
+          expected = randomParser.parseDocument(editedText);
+        } catch (RecognitionException e) {
+          IncrementalDocument current = document;
+          assertThatThrownBy(() -> current.edit(offset, removed, inserted)).isInstanceOf(RecognitionException.class);
+          continue;
+        }
+        document = document.edit(offset, removed, inserted);
+        assertThat(document.getText()).isEqualTo(editedText);
+        assertThat(dump(document.getRoot())).as(editedText).isEqualTo(dump(expected.getRoot()));
+      }
+    }
+  }
+
+  @Test
+  public void rejects_edits_out_of_the_document() {
+    IncrementalDocument document = parser.parseIncrementally("a: 1\n");
+
+    assertThatThrownBy(() -> document.edit(4, 2, "")).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThatThrownBy(() -> document.edit(-1, 0, "b")).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThat(document.edit(5, 0, "b: 2\n").getRoot().propertyNames()).containsExactly("a", "b");
+  }
+
+  private static IncrementalDocument edit(IncrementalDocument document, String target, String replacement) {
+    int offset = document.getText().indexOf(target);
+    assertThat(offset).as(target).isNotNegative();
+    return document.edit(offset, target.length(), replacement);
+  }
+
+  private void assertSameAsFullParse(IncrementalDocument document) {
+    assertSameAsFullParse(parser, document);
+  }
+
+  private static void assertSameAsFullParse(YamlParser parser, IncrementalDocument document) {
+    ParseResult expected = parser.parseDocument(document.getText());
+    assertThat(dump(document.getRoot())).isEqualTo(dump(expected.getRoot()));
+    assertThat(messages(document.getResult().getIssues())).isEqualTo(messages(expected.getIssues()));
+  }
+
+  private static List<String> messages(List<ValidationIssue> issues) {
+    return issues.stream().map(i -> i.getNode().getPointer() + " " + i.getMessage()).collect(Collectors.toList());
+  }
+
+  /**
+   * Describe a whole syntax tree, from the root of the document, with the tokens and the comments of the nodes.
+   */
+  private static String dump(JsonNode root) {
+    StringBuilder b = new StringBuilder();
+    dump(root.getParent(), 0, b);
+    return b.toString();
+  }
+
+  private static void dump(AstNode node, int depth, StringBuilder b) {
+    b.append(depth).append(' ').append(node.getType()).append(' ').append(node.getName()).append(' ')
+      .append(node.getFromIndex()).append('-').append(node.getToIndex());
+    Token token = node.getToken();
+    if (token != null) {
+      b.append(' ').append(token.getType()).append(" '").append(token.getValue()).append("' ").append(token.getLine()).append(':').append(token.getColumn());
+      for (Trivia trivia : token.getTrivia()) {
+        Token comment = trivia.getToken();
+        b.append(' ').append(comment.getValue()).append('@').append(comment.getLine()).append(':').append(comment.getColumn());
+      }
+    }
+    b.append('\n');
+    for (AstNode child : node.getChildren()) {
+      dump(child, depth + 1, b);
+    }
+  }
+}
@@ -19,7 +19,10 @@
  */
 package org.sonar.sslr.yaml.grammar;
 
+import com.fasterxml.jackson.core.JsonPointer;
 import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
 import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.List;
@@ -27,6 +30,7 @@ import java.util.Map;
 import java.util.function.Consumer;
 import org.junit.Test;
 import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.yaml.grammar.impl.ObjectNode;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
@@ -312,6 +316,85 @@ public class JsonNodeTest {
 
   }
 
+  @Test
+  public void indexes_properties_in_document_order() {
+    JsonNode node = YamlParser.builder().withCharset(Charset.forName("UTF-8")).build().parse("p3: a\np1: b\np2: c\np1: d");
+
+    assertThat(node.propertyMap()).containsOnlyKeys("p3", "p1", "p2");
+    assertThat(node.propertyMap().keySet()).containsExactly("p3", "p1", "p2");
+    assertThat(node.propertyMap().get("p1").getTokenValue()).isEqualTo("b");
+    assertThat(node.get("p1").getTokenValue()).isEqualTo("b");
+    assertThat(node.at("/p1").getTokenValue()).isEqualTo("b");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void property_map_is_unmodifiable() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    b.rule(ROOT).is(b.anyObject());
+    b.setRootRule(ROOT);
+    JsonNode node = parseText(b, "p1: a");
+
+    node.propertyMap().remove("p1");
+  }
+
+  @Test
+  public void updates_index_when_properties_are_added() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    b.rule(ROOT).is(b.anyObject());
+    b.setRootRule(ROOT);
+    JsonNode node = parseText(b, "p1: a");
+    JsonNode other = parseText(b, "p2: b");
+    assertThat(node.get("p2").isMissing()).isTrue();
+
+    node.addChild(other.getFirstChild(BLOCK_PROPERTY));
+
+    assertThat(node.get("p2").getTokenValue()).isEqualTo("b");
+    assertThat(node.propertyMap()).containsOnlyKeys("p1", "p2");
+  }
+
+  @Test
+  public void computes_pointers() {
+    JsonNode node = YamlParser.builder().withCharset(Charset.forName("UTF-8")).build().parse("p1:\n  - a\n  - [b, {c: d}]\np2: {e/f: g}");
+
+    assertThat(node.getPointer()).isEmpty();
+    assertThat(node.at("/p1/1/1/c").getPointer()).isEqualTo("/p1/1/1/c");
+    assertThat(node.at("/p1/1/1").getPointer()).isEqualTo("/p1/1/1");
+    assertThat(node.at("/p1/0").getPointer()).isEqualTo("/p1/0");
+    assertThat(node.at("/p1/1/0").getPointer()).isEqualTo("/p1/1/0");
+    assertThat(node.at("/p2/e~1f").getPointer()).isEqualTo("/p2/e~1f");
+    assertThat(node.at("/p2/e~1f").key().getPointer()).isEqualTo("/p2/e~1f");
+  }
+
+  @Test
+  public void indexes_array_elements() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    b.rule(ROOT).is(b.anyArray());
+    b.setRootRule(ROOT);
+    JsonNode node = parseText(b, "[a, b, c]");
+    JsonNode other = parseText(b, "- d");
+
+    assertThat(node.at("/2").getTokenValue()).isEqualTo("c");
+    assertThat(node.at("/3").isMissing()).isTrue();
+    assertThat(node.at("/-").isMissing()).isTrue();
+    assertThat(other.at("/0").getTokenValue()).isEqualTo("d");
+
+    node.addChild(other.getFirstChild(YamlGrammar.BLOCK_ARRAY_ELEMENT));
+
+    assertThat(node.at("/3").getTokenValue()).isEqualTo("d");
+    assertThat(node.elements()).extracting(JsonNode::getTokenValue).containsExactly("a", "b", "c", "d");
+    assertThat(node.at("/3").getPointer()).isEqualTo("/3");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void elements_are_unmodifiable() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    b.rule(ROOT).is(b.anyArray());
+    b.setRootRule(ROOT);
+    JsonNode node = parseText(b, "[a, b, c]");
+
+    node.elements().clear();
+  }
+
   @Test
   public void can_resolve_references() {
     YamlGrammarBuilder b = new YamlGrammarBuilder();
@@ -325,6 +408,48 @@ public class JsonNodeTest {
 
   }
 
+  @Test
+  public void memoizes_resolved_references() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    b.rule(ROOT).is(b.anyObject());
+    b.setRootRule(ROOT);
+
+    JsonNode node = parseText(b, "p1: v1\np2:\n  $ref: '#/p1'");
+    JsonNode refNode = node.at("/p2");
+    JsonNode resolved = refNode.resolve();
+    assertThat(resolved).isSameAs(node.at("/p1"));
+    assertThat(refNode.resolve()).isSameAs(resolved);
+  }
+
+  @Test
+  public void navigates_through_nodes_overriding_the_pointer_navigation() {
+    YamlParser parser = YamlParser.builder().withCharset(Charset.forName("UTF-8"))
+      .withNodeFactory((rule, type, name, token) -> rule == YamlGrammar.BLOCK_MAPPING
+        ? new AliasingNode(type, name, token)
+        : JsonNodeFactory.DEFAULT.create(rule, type, name, token))
+      .build();
+
+    JsonNode node = parser.parse("key:\n  nested: value\n");
+
+    assertThat(node.at("/alias/nested").stringValue()).isEqualTo("value");
+    assertThat(node.at("/key/alias").isMissing()).isTrue();
+    assertThat(node.at("/key/nested").stringValue()).isEqualTo("value");
+  }
+
+  private static class AliasingNode extends ObjectNode {
+    AliasingNode(AstNodeType type, String name, Token token) {
+      super(type, name, token);
+    }
+
+    @Override
+    protected JsonNode internalAt(JsonPointer ptr) {
+      if ("alias".equals(ptr.getMatchingProperty())) {
+        return get("key");
+      }
+      return super.internalAt(ptr);
+    }
+  }
+
   private static Consumer<JsonNode> scalar(String value) {
     return n -> assertEquals(value, n.getTokenValue(), value);
   }
@@ -0,0 +1,85 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NodePointerTest {
+
+  @Test
+  public void splits_and_unescapes_the_segments() {
+    NodePointer pointer = NodePointer.compile("/a~1b/~0c/12/~01/");
+
+    assertThat(pointer.size()).isEqualTo(5);
+    assertThat(pointer.getProperty(0)).isEqualTo("a/b");
+    assertThat(pointer.getProperty(1)).isEqualTo("~c");
+    assertThat(pointer.getProperty(2)).isEqualTo("12");
+    assertThat(pointer.getProperty(3)).isEqualTo("~1");
+    assertThat(pointer.getProperty(4)).isEmpty();
+    assertThat(pointer.toString()).isEqualTo("/a~1b/~0c/12/~01/");
+    assertThat(NodePointer.compile("").size()).isZero();
+  }
+
+  @Test
+  public void parses_the_array_indexes() {
+    NodePointer pointer = NodePointer.compile("/0/12/012/-1/1a/2147483647/2147483648/");
+
+    assertThat(pointer.getIndex(0)).isZero();
+    assertThat(pointer.getIndex(1)).isEqualTo(12);
+    assertThat(pointer.getIndex(2)).isEqualTo(-1);
+    assertThat(pointer.getIndex(3)).isEqualTo(-1);
+    assertThat(pointer.getIndex(4)).isEqualTo(-1);
+    assertThat(pointer.getIndex(5)).isEqualTo(Integer.MAX_VALUE);
+    assertThat(pointer.getIndex(6)).isEqualTo(-1);
+    assertThat(pointer.getIndex(7)).isEqualTo(-1);
+  }
+
+  @Test
+  public void rejects_relative_pointers() {
+    assertThatThrownBy(() -> NodePointer.compile("a/b")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void caches_the_compiled_pointers() {
+    assertThat(NodePointer.of("/components/schemas")).isSameAs(NodePointer.of("/components/schemas"));
+    assertThat(NodePointer.of("/components/schemas")).isEqualTo(NodePointer.compile("/components/schemas"));
+    for (int i = 0; i < NodePointer.MAX_CACHED_POINTERS * 2; ++i) {
+      assertThat(NodePointer.of("/" + i).getIndex(0)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void navigates_in_documents() {
+    JsonNode root = new YamlParser(StandardCharsets.UTF_8).parse("a/b:\n  ~c: [x, {y: z}]\n'~1': w\n");
+
+    assertThat(root.at(NodePointer.compile("/a~1b/~0c/1/y")).stringValue()).isEqualTo("z");
+    assertThat(root.at("/a~1b/~0c/0").stringValue()).isEqualTo("x");
+    assertThat(root.at("/~01").stringValue()).isEqualTo("w");
+    assertThat(root.at("/a~1b/~0c/2").isMissing()).isTrue();
+    assertThat(root.at("/a~1b/~0c/x").isMissing()).isTrue();
+    assertThat(root.at("/none/deeper").isMissing()).isTrue();
+    assertThat(root.at("")).isSameAs(root);
+    assertThat(root.get("a/b")).isSameAs(root.at("/a~1b"));
+  }
+}
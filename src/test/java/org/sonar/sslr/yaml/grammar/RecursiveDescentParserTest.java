@@ -0,0 +1,254 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.yaml.snakeyaml.parser.Lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class RecursiveDescentParserTest {
+
+  @Test
+  public void builds_same_tree_as_sslr_machine() {
+    assertSameTree("");
+    assertSameTree("scalar");
+    assertSameTree("p1: v1\np2: 42\np3:\n  - a\n  - b\np4:\n- c\n- d\n");
+    assertSameTree("p1:\np2:\n  nested: true\n  other: null\n");
+    assertSameTree("- a\n- \n- [b, c]\n- {d: e}\n- - f\n  - g\n");
+    assertSameTree("[a, b, ]");
+    assertSameTree("[a: 1, b, [c, d], {e: f}]");
+    assertSameTree("{a: 1, b: [c], c: {d: e}, }");
+    assertSameTree("{a, b: , c: d}");
+    assertSameTree("? complex key\n: value\n? other key\n");
+    assertSameTree("p1: |\n  literal\n  text\np2: >\n  folded\n  text\n");
+    assertSameTree("# comment\np1: v1 # trailing\n# final comment\n");
+  }
+
+  @Test
+  public void builds_same_tree_as_sslr_machine_for_test_resources() throws Exception {
+    Path root = Paths.get(RecursiveDescentParserTest.class.getResource("/parser").toURI()).getParent();
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(root)) {
+      files = walk.filter(p -> p.toString().endsWith(".yaml") || p.toString().endsWith(".json")).collect(Collectors.toList());
+    }
+    assertThat(files).isNotEmpty();
+    for (Path file : files) {
+      String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      List<Token> tokens = Lexer.create(StandardCharsets.UTF_8).lex(text);
+      try {
+        Machine.parse(tokens, YamlGrammar.compiled());
+      } catch (RecognitionException e) {
+        // Some resources are invalid on purpose
+        assertInvalid(text);
+        continue;
+      }
+      assertSameTree(text);
+    }
+  }
+
+  @Test
+  public void builds_lazy_subtrees_on_first_access() {
+    List<Token> tokens = Lexer.create(StandardCharsets.UTF_8).lex("a:\n  b: [1, {c: 2}]\nd:\n  e: f\n");
+    List<AstNode> created = new ArrayList<>();
+    JsonNodeFactory factory = (rule, type, name, token) -> {
+      JsonNode node = JsonNodeFactory.DEFAULT.create(rule, type, name, token);
+      created.add(node);
+      return node;
+    };
+
+    JsonNode root = RecursiveDescentParser.parse(tokens, factory, true);
+    // ROOT and the top-level mapping
+    assertThat(created).extracting(AstNode::getType).containsExactly(YamlGrammar.ROOT, YamlGrammar.BLOCK_MAPPING);
+    JsonNode mapping = (JsonNode) root.getFirstChild();
+    assertThat(mapping.getFromIndex()).isEqualTo(0);
+    assertThat(mapping.getToIndex()).isEqualTo(tokens.size() - 1);
+
+    created.clear();
+    assertThat(mapping.at("/a/b/0").intValue()).isEqualTo(1);
+    assertThat(created).extracting(AstNode::getType).containsExactly(
+      // the properties of the top-level mapping, whose values are lazy
+      YamlGrammar.BLOCK_PROPERTY, YamlGrammar.SCALAR, YamlGrammar.BLOCK_MAPPING,
+      YamlGrammar.BLOCK_PROPERTY, YamlGrammar.SCALAR, YamlGrammar.BLOCK_MAPPING,
+      // the property of /a
+      YamlGrammar.BLOCK_PROPERTY, YamlGrammar.SCALAR, YamlGrammar.FLOW_SEQUENCE,
+      // the elements of /a/b
+      YamlGrammar.FLOW_ARRAY_ELEMENT, YamlGrammar.SCALAR, YamlGrammar.FLOW_ARRAY_ELEMENT, YamlGrammar.FLOW_MAPPING);
+
+    created.clear();
+    assertThat(mapping.at("/a/b/0").intValue()).isEqualTo(1);
+    assertThat(created).isEmpty();
+  }
+
+  @Test
+  public void builds_lazy_subtrees_once_across_threads() throws Exception {
+    List<Token> tokens = Lexer.create(StandardCharsets.UTF_8).lex("a: [1, 2, 3]\n");
+    JsonNode mapping = (JsonNode) RecursiveDescentParser.parse(tokens, JsonNodeFactory.DEFAULT, true).getFirstChild();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<JsonNode>> results = new ArrayList<>();
+      for (int i = 0; i < 8; ++i) {
+        results.add(executor.submit(() -> mapping.at("/a/2")));
+      }
+      JsonNode first = results.get(0).get();
+      for (Future<JsonNode> result : results) {
+        assertThat(result.get()).isSameAs(first);
+      }
+      assertThat(mapping.at("/a").getNumberOfChildren()).isEqualTo(7);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void builds_lazy_subtrees_on_any_access_to_their_children() {
+    List<Token> tokens = Lexer.create(StandardCharsets.UTF_8).lex("a: [1, {c: 2}]\nd: e\n");
+    Map<String, Function<AstNode, Object>> accesses = new LinkedHashMap<>();
+    accesses.put("addChild", n -> {
+      n.addChild(new AstNode(YamlGrammar.SCALAR, "added", null));
+      return describe(n.getChildren());
+    });
+    accesses.put("hasChildren", AstNode::hasChildren);
+    accesses.put("getChildren", n -> describe(n.getChildren()));
+    accesses.put("getChildren(types)", n -> describe(n.getChildren(YamlGrammar.BLOCK_PROPERTY)));
+    accesses.put("getNumberOfChildren", AstNode::getNumberOfChildren);
+    accesses.put("getChild", n -> describe(n.getChild(1)));
+    accesses.put("getFirstChild", n -> describe(n.getFirstChild()));
+    accesses.put("getFirstChild(types)", n -> describe(n.getFirstChild(YamlGrammar.BLOCK_PROPERTY)));
+    accesses.put("getLastChild", n -> describe(n.getLastChild()));
+    accesses.put("getLastChild(types)", n -> describe(n.getLastChild(YamlGrammar.BLOCK_PROPERTY)));
+    accesses.put("hasDirectChildren", n -> n.hasDirectChildren(YamlGrammar.BLOCK_PROPERTY));
+    accesses.put("getFirstDescendant", n -> describe(n.getFirstDescendant(YamlGrammar.FLOW_MAPPING)));
+    accesses.put("getDescendants", n -> describe(n.getDescendants(YamlGrammar.SCALAR)));
+    accesses.put("hasDescendant", n -> n.hasDescendant(YamlGrammar.FLOW_MAPPING));
+    accesses.put("getTokens", AstNode::getTokens);
+    accesses.put("getLastToken", AstNode::getLastToken);
+
+    for (Map.Entry<String, Function<AstNode, Object>> access : accesses.entrySet()) {
+      AstNode expected = RecursiveDescentParser.parse(tokens, JsonNodeFactory.DEFAULT).getFirstChild();
+      AstNode unbuilt = RecursiveDescentParser.parse(tokens, JsonNodeFactory.DEFAULT, true).getFirstChild();
+      assertThat(access.getValue().apply(unbuilt)).as(access.getKey()).isEqualTo(access.getValue().apply(expected));
+    }
+  }
+
+  private static String describe(@Nullable AstNode node) {
+    return node == null ? "null" : (node.getType() + "@" + node.getFromIndex());
+  }
+
+  private static String describe(List<AstNode> nodes) {
+    return nodes.stream().map(RecursiveDescentParserTest::describe).collect(Collectors.joining(", "));
+  }
+
+  @Test
+  public void gives_up_on_invalid_documents() {
+    assertInvalid("p1: [");
+    assertInvalid("[, a]");
+    assertInvalid("{a: 1");
+    assertInvalid("]");
+  }
+
+  @Test
+  public void reports_same_errors_as_sslr_machine() {
+    YamlParser sslr = YamlParser.builder().withCharset(StandardCharsets.UTF_8).build();
+    YamlParser recursive = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withEngine(YamlParser.Engine.RECURSIVE_DESCENT).build();
+
+    String expected = null;
+    try {
+      sslr.parse("p1: [a, b");
+      fail("Should throw");
+    } catch (RecognitionException e) {
+      expected = e.getMessage();
+    }
+    try {
+      recursive.parse("p1: [a, b");
+      fail("Should throw");
+    } catch (RecognitionException e) {
+      assertThat(e.getMessage()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void can_be_selected_in_parser() {
+    YamlParser parser = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withEngine(YamlParser.Engine.RECURSIVE_DESCENT).build();
+
+    JsonNode node = parser.parse("p1: [a, b]");
+
+    assertThat(node.at("/p1/1").stringValue()).isEqualTo("b");
+    assertThat(node.getParent().getType()).isEqualTo(YamlGrammar.ROOT);
+  }
+
+  private static void assertSameTree(String text) {
+    List<Token> tokens = Lexer.create(StandardCharsets.UTF_8).lex(text);
+    JsonNode expected = JsonAstCreator.create(Machine.parse(tokens, YamlGrammar.compiled()), tokens);
+    JsonNode actual = RecursiveDescentParser.parse(tokens, JsonNodeFactory.DEFAULT);
+    assertThat(actual).as(text).isNotNull();
+    assertSameNode(expected, actual, text);
+    JsonNode lazy = RecursiveDescentParser.parse(tokens, JsonNodeFactory.DEFAULT, true);
+    assertThat(lazy).as(text).isNotNull();
+    assertSameNode(expected, lazy, text);
+  }
+
+  static void assertSameNode(AstNode expected, AstNode actual, String text) {
+    String description = text + " - " + expected.getType() + " at token " + expected.getFromIndex();
+    assertThat(actual.getClass()).as(description).isEqualTo(expected.getClass());
+    assertThat(actual.getType()).as(description).isEqualTo(expected.getType());
+    assertThat(actual.getName()).as(description).isEqualTo(expected.getName());
+    assertThat(actual.getToken()).as(description).isSameAs(expected.getToken());
+    assertThat(actual.getFromIndex()).as(description).isEqualTo(expected.getFromIndex());
+    assertThat(actual.getToIndex()).as(description).isEqualTo(expected.getToIndex());
+    assertThat(actual.getNumberOfChildren()).as(description).isEqualTo(expected.getNumberOfChildren());
+    for (int i = 0; i < expected.getNumberOfChildren(); ++i) {
+      AstNode child = actual.getChildren().get(i);
+      assertThat(child.getParent()).as(description).isSameAs(actual);
+      assertSameNode(expected.getChildren().get(i), child, text);
+    }
+  }
+
+  private static void assertInvalid(String text) {
+    List<Token> tokens = Lexer.create(StandardCharsets.UTF_8).lex(text);
+    try {
+      Machine.parse(tokens, YamlGrammar.compiled());
+      fail("Expected SSLR to reject " + text);
+    } catch (RecognitionException e) {
+      assertThat(RecursiveDescentParser.parse(tokens, JsonNodeFactory.DEFAULT)).as(text).isNull();
+      assertThat(RecursiveDescentParser.parse(tokens, JsonNodeFactory.DEFAULT, true)).as(text).isNull();
+    }
+  }
+}
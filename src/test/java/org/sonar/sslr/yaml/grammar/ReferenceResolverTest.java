@@ -0,0 +1,187 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReferenceResolverTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final YamlParser parser = YamlParser.builder().withCharset(StandardCharsets.UTF_8).build();
+  private Path api;
+  private Path common;
+
+  @Before
+  public void setUp() throws IOException {
+    Path root = folder.getRoot().toPath();
+    api = write(root.resolve("specs/api.yaml"), "paths:\n" +
+      "  /pets:\n" +
+      "    $ref: '#/components/pets'\n" +
+      "  /owners:\n" +
+      "    $ref: '../shared/common.yaml#/components/owners'\n" +
+      "  /missing:\n" +
+      "    $ref: '#/components/none'\n" +
+      "components:\n" +
+      "  pets:\n" +
+      "    $ref: '../shared/common.yaml#/components/pets'\n");
+    common = write(root.resolve("shared/common.yaml"), "components:\n" +
+      "  pets:\n" +
+      "    description: pets\n" +
+      "  owners:\n" +
+      "    $ref: 'owners.yaml'\n");
+    write(root.resolve("shared/owners.yaml"), "description: owners\n");
+  }
+
+  @Test
+  public void resolves_references_within_and_across_documents() {
+    ReferenceResolver resolver = new ReferenceResolver(parser);
+    JsonNode document = resolver.document(api);
+
+    assertThat(resolver.resolve(document.at("/paths/~1pets"), api).at("/description").stringValue()).isEqualTo("pets");
+    assertThat(resolver.resolve(document.at("/paths/~1owners"), api).at("/description").stringValue()).isEqualTo("owners");
+    assertThat(resolver.resolve(document.at("/paths/~1missing"), api).isMissing()).isTrue();
+    assertThat(resolver.resolve(document.at("/components"), api)).isSameAs(document.at("/components"));
+    assertThat(resolver.resolve(document.at("/paths/~1pets"), api)).isSameAs(resolver.document(common).at("/components/pets"));
+  }
+
+  @Test
+  public void parses_each_file_once() {
+    ReferenceResolver resolver = new ReferenceResolver(parser);
+    JsonNode pets = resolver.resolve(resolver.document(api).at("/paths/~1pets"), api);
+
+    assertThat(resolver.document(common)).isSameAs(resolver.document(common));
+    assertThat(resolver.resolve(resolver.document(api).at("/paths/~1pets"), api)).isSameAs(pets);
+  }
+
+  @Test
+  public void parses_files_again_when_their_content_changes() throws IOException {
+    ReferenceResolver resolver = new ReferenceResolver(parser);
+    JsonNode document = resolver.document(api);
+    assertThat(resolver.resolve(document.at("/paths/~1pets"), api).at("/description").stringValue()).isEqualTo("pets");
+
+    write(common, "components:\n  pets:\n    description: other pets\n");
+
+    assertThat(resolver.document(api)).isSameAs(document);
+    assertThat(resolver.resolve(document.at("/paths/~1pets"), api).at("/description").stringValue()).isEqualTo("other pets");
+  }
+
+  @Test
+  public void evicts_the_least_recently_used_documents() throws IOException {
+    ReferenceResolver resolver = new ReferenceResolver(parser, 1);
+    JsonNode document = resolver.document(api);
+
+    assertThat(resolver.document(common)).isSameAs(resolver.document(common));
+    assertThat(resolver.document(api)).isNotSameAs(document);
+    assertThatThrownBy(() -> new ReferenceResolver(parser, 0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void detects_reference_cycles() throws IOException {
+    Path a = write(folder.getRoot().toPath().resolve("a.yaml"), "a:\n  $ref: 'b.yaml#/b'\nself:\n  $ref: '#/self'\n");
+    write(folder.getRoot().toPath().resolve("b.yaml"), "b:\n  $ref: 'a.yaml#/a'\n");
+    ReferenceResolver resolver = new ReferenceResolver(parser);
+    JsonNode document = resolver.document(a);
+
+    assertThatThrownBy(() -> resolver.resolve(document.at("/a"), a))
+      .isInstanceOf(ParsingException.class)
+      .hasMessageContaining("Cyclic reference");
+    assertThatThrownBy(() -> resolver.resolve(document.at("/self"), a))
+      .isInstanceOf(ParsingException.class)
+      .hasMessageContaining("Cyclic reference: \"#/self\"");
+  }
+
+  @Test
+  public void fails_on_missing_files() throws IOException {
+    Path a = write(folder.getRoot().toPath().resolve("a.yaml"), "a:\n  $ref: 'none.yaml#/b'\n");
+    ReferenceResolver resolver = new ReferenceResolver(parser);
+    JsonNode ref = resolver.document(a).at("/a");
+
+    assertThatThrownBy(() -> resolver.resolve(ref, a))
+      .isInstanceOf(ParsingException.class)
+      .hasMessageContaining("none.yaml");
+  }
+
+  @Test
+  public void resolves_references_of_other_trees_in_their_own_tree() throws IOException {
+    Path a = write(folder.getRoot().toPath().resolve("a.yaml"), "a:\n  $ref: '#/b'\nb:\n  c: 1\n");
+    ReferenceResolver resolver = new ReferenceResolver(parser);
+    JsonNode document = resolver.document(a);
+    JsonNode other = parser.parse(a);
+
+    assertThat(resolver.resolve(document.at("/a"), a)).isSameAs(document.at("/b"));
+    assertThat(resolver.resolve(other.at("/a"), a)).isSameAs(other.at("/b"));
+    assertThat(resolver.resolve(document.at("/a"), a)).isSameAs(document.at("/b"));
+  }
+
+  @Test
+  public void recovers_from_errors_while_parsing() {
+    AtomicBoolean fail = new AtomicBoolean(true);
+    YamlParser failing = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withNodeFactory((rule, type, name, token) -> {
+      if (fail.getAndSet(false)) {
+        throw new StackOverflowError();
+      }
+      return JsonNodeFactory.DEFAULT.create(rule, type, name, token);
+    }).build();
+    ReferenceResolver resolver = new ReferenceResolver(failing);
+
+    assertThatThrownBy(() -> resolver.document(common)).isInstanceOf(StackOverflowError.class);
+    assertThat(resolver.document(common).at("/components/pets/description").stringValue()).isEqualTo("pets");
+  }
+
+  @Test
+  public void shares_the_documents_between_threads() throws Exception {
+    ReferenceResolver resolver = new ReferenceResolver(parser);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<JsonNode>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; ++i) {
+        futures.add(executor.submit(() -> resolver.resolve(resolver.document(api).at("/paths/~1owners"), api)));
+      }
+      JsonNode expected = futures.get(0).get();
+      for (Future<JsonNode> future : futures) {
+        assertThat(future.get()).isSameAs(expected);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Path write(Path path, String content) throws IOException {
+    Files.createDirectories(path.getParent());
+    return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar;
+
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class YamlEventParserTest {
+  private static final String DOCUMENT = "info:\n" +
+    "  title: API # comment\n" +
+    "  tags: [a, 'b', {c: 1, d}]\n" +
+    "paths:\n" +
+    "  /users/{id}:\n" +
+    "    get:\n" +
+    "      parameters:\n" +
+    "      - name: id\n" +
+    "        in: path\n" +
+    "      -\n" +
+    "      - $ref: '#/components/parameters/Limit'\n" +
+    "  ~tilde: null\n" +
+    "empty:\n" +
+    "list:\n" +
+    "  - - 1\n" +
+    "    - 2.5\n" +
+    "  - true\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void reports_events_in_document_order() {
+    List<String> events = new ArrayList<>();
+
+    YamlEventParser.parse("a: [x, {k: v}]\nb:\n  - 1\n", new RecordingHandler(events));
+
+    assertThat(events).containsExactly(
+      "startMapping 1:0 ",
+      "key 1:0 /a a",
+      "startSequence 1:3 /a",
+      "scalar 1:4 /a/0 x",
+      "startMapping 1:7 /a/1",
+      "key 1:8 /a/1/k k",
+      "scalar 1:11 /a/1/k v",
+      "endMapping /a/1",
+      "endSequence /a",
+      "key 2:0 /b b",
+      "startSequence 3:2 /b",
+      "scalar 3:4 /b/0 1",
+      "endSequence /b",
+      "endMapping ");
+  }
+
+  @Test
+  public void reports_same_pointers_as_syntax_tree() {
+    Map<String, String> events = new LinkedHashMap<>();
+    YamlEventParser.parse(DOCUMENT, new YamlEventHandler() {
+      @Override
+      public void scalar(Token token, Context context) {
+        events.put(context.getPointer(), token.getValue());
+      }
+    });
+
+    Map<String, String> tree = new LinkedHashMap<>();
+    collectScalars(new YamlParser(StandardCharsets.UTF_8).parse(DOCUMENT), tree);
+
+    assertThat(events).isEqualTo(tree);
+    assertThat(events).containsEntry("/paths/~1users~1{id}/get/parameters/1/$ref", "#/components/parameters/Limit");
+    assertThat(events).containsEntry("/paths/~0tilde", "null");
+  }
+
+  @Test
+  public void parses_files() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("file.yaml");
+    Files.write(path, "key: v\u00e9\n".getBytes(StandardCharsets.ISO_8859_1));
+    List<String> events = new ArrayList<>();
+
+    YamlEventParser.parse(path, StandardCharsets.ISO_8859_1, new RecordingHandler(events));
+
+    assertThat(events).contains("scalar 1:5 /key v\u00e9");
+  }
+
+  @Test(expected = RecognitionException.class)
+  public void fails_on_syntax_error() {
+    YamlEventParser.parse("a: [b\nc: d", new YamlEventHandler() {
+    });
+  }
+
+  @Test(expected = RecognitionException.class)
+  public void fails_on_lexing_error() {
+    YamlEventParser.parse("a: \"unterminated", new YamlEventHandler() {
+    });
+  }
+
+  private static void collectScalars(JsonNode node, Map<String, String> scalars) {
+    if (node.isScalar()) {
+      scalars.put(node.getPointer(), node.stringValue());
+    } else if (node.isObject()) {
+      node.properties().forEach(child -> collectScalars(child, scalars));
+    } else if (node.isArray()) {
+      node.elements().forEach(child -> collectScalars(child, scalars));
+    }
+  }
+
+  private static class RecordingHandler implements YamlEventHandler {
+    private final List<String> events;
+
+    RecordingHandler(List<String> events) {
+      this.events = events;
+    }
+
+    @Override
+    public void startMapping(Token token, Context context) {
+      events.add("startMapping " + token.getLine() + ":" + token.getColumn() + " " + context.getPointer());
+    }
+
+    @Override
+    public void endMapping(Context context) {
+      events.add("endMapping " + context.getPointer());
+    }
+
+    @Override
+    public void startSequence(Token token, Context context) {
+      events.add("startSequence " + token.getLine() + ":" + token.getColumn() + " " + context.getPointer());
+    }
+
+    @Override
+    public void endSequence(Context context) {
+      events.add("endSequence " + context.getPointer());
+    }
+
+    @Override
+    public void key(Token token, Context context) {
+      events.add("key " + token.getLine() + ":" + token.getColumn() + " " + context.getPointer() + " " + token.getValue());
+    }
+
+    @Override
+    public void scalar(Token token, Context context) {
+      events.add("scalar " + token.getLine() + ":" + token.getColumn() + " " + context.getPointer() + " " + token.getValue());
+    }
+  }
+}
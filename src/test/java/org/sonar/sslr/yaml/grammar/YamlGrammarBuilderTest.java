@@ -425,9 +425,9 @@ public class YamlGrammarBuilderTest {
 
   private JsonNode parseText(YamlGrammarBuilder b, String s) {
     YamlParser parser = YamlParser.builder().withCharset(Charset.forName("UTF-8")).withGrammar(b).withStrictValidation(true).build();
-    JsonNode parse = parser.parse(s);
-    this.issues = parser.getIssues();
-    return parse;
+    ParseResult result = parser.parseDocument(s);
+    this.issues = result.getIssues();
+    return result.getRoot();
   }
 
   enum TestGrammar implements GrammarRuleKey {
@@ -20,8 +20,30 @@
 package org.sonar.sslr.yaml.grammar;
 
 import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.yaml.grammar.impl.ArrayNode;
+import org.sonar.sslr.yaml.grammar.impl.ElementNode;
 import org.sonar.sslr.yaml.grammar.impl.ObjectNode;
 import org.sonar.sslr.yaml.grammar.impl.PropertyNode;
 import org.sonar.sslr.yaml.grammar.impl.ScalarNode;
@@ -30,6 +52,7 @@ import org.sonar.sslr.yaml.grammar.impl.ValidationTestBase;
 
 import static com.sonar.sslr.api.GenericTokenType.EOF;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.sslr.yaml.grammar.YamlGrammar.BLOCK_PROPERTY;
 import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_ARRAY_ELEMENT;
@@ -41,6 +64,8 @@ import static org.sonar.sslr.yaml.snakeyaml.parser.Tokens.FLOW_SEQUENCE_END;
 import static org.sonar.sslr.yaml.snakeyaml.parser.Tokens.FLOW_SEQUENCE_START;
 
 public class YamlParserTest extends ValidationTestBase {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
 
   @Test
   public void generates_object_structure() {
@@ -66,9 +91,9 @@ public class YamlParserTest extends ValidationTestBase {
     assertThat(jsonNode).isInstanceOf(ArrayNode.class);
     assertThat(jsonNode.getChildren()).extracting(AstNode::getClass, AstNode::getType).containsExactly(
         tuple(SyntaxNode.class, FLOW_SEQUENCE_START),
-        tuple(SyntaxNode.class, FLOW_ARRAY_ELEMENT),
+        tuple(ElementNode.class, FLOW_ARRAY_ELEMENT),
         tuple(SyntaxNode.class, FLOW_ENTRY),
-        tuple(SyntaxNode.class, FLOW_ARRAY_ELEMENT),
+        tuple(ElementNode.class, FLOW_ARRAY_ELEMENT),
         tuple(SyntaxNode.class, FLOW_SEQUENCE_END),
         tuple(SyntaxNode.class, EOF)
     );
@@ -117,4 +142,256 @@ public class YamlParserTest extends ValidationTestBase {
     assertThat(jsonNode.getType()).isEqualTo(SCALAR);
     assertThat(jsonNode.isNull()).isTrue();
   }
-}
\ No newline at end of file
+
+  @Test
+  public void reports_issues_of_each_document() {
+    YamlParser parser = parserWithMandatoryProperty(false);
+
+    ParseResult invalid = parser.parseDocument("p2: v2");
+    ParseResult valid = parser.parseDocument("p1: v1");
+
+    assertThat(invalid.getIssues()).extracting(ValidationIssue::getMessage).containsExactly("Missing required properties: [p1]");
+    assertThat(valid.getIssues()).isEmpty();
+    assertThat(valid.getRoot().at("/p1").stringValue()).isEqualTo("v1");
+  }
+
+  @Test
+  public void reports_parsing_statistics() {
+    ParseResult result = parserWithMandatoryProperty(false).parseDocument("p1: v1");
+
+    // BLOCK_MAPPING_START, KEY, SCALAR, VALUE, SCALAR, BLOCK_END, EOF
+    assertThat(result.getTokenCount()).isEqualTo(7);
+    assertThat(result.getLexingNanos()).isPositive();
+    assertThat(result.getParsingNanos()).isPositive();
+    assertThat(result.getValidationNanos()).isGreaterThanOrEqualTo(0);
+    assertThat(result.getTotalNanos()).isEqualTo(result.getLexingNanos() + result.getParsingNanos() + result.getValidationNanos());
+  }
+
+  @Test
+  public void keeps_lazy_original_values_in_the_result() {
+    YamlParser parser = YamlParser.builder().withLazyOriginalValues(true).build();
+
+    ParseResult result = parser.parseDocument("key: |\n  multi\n  line\n");
+
+    Token token = result.getRoot().at("/key").getToken();
+    assertThat(token.getValue()).isEqualTo("multi\nline\n");
+    assertThat(token.getOriginalValue()).isEqualTo("multi\nline\n");
+    assertThat(result.getOriginalValue(token)).isEqualTo("|\n  multi\n  line\n");
+  }
+
+  @Test
+  public void reports_same_issues_with_lazy_subtrees() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    GrammarRuleKey root = new GrammarRuleKey() {
+    };
+    b.rule(root).is(b.object(
+      b.mandatoryProperty("p1", b.object(b.mandatoryProperty("a", b.integer()), b.property("b", b.array(b.string())))),
+      b.property("p2", b.string())));
+    b.setRootRule(root);
+    String text = "p1:\n  b: [x, 1, {y: z}]\n  c: d\np2: [v]\n";
+
+    ParseResult eager = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withGrammar(b).build().parseDocument(text);
+    ParseResult lazy = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withGrammar(b).withLazySubtrees(true).build().parseDocument(text);
+
+    assertThat(eager.getIssues()).isNotEmpty();
+    assertThat(lazy.getIssues()).extracting(ValidationIssue::getMessage, i -> i.getNode().getTokenLine(), i -> i.getNode().getPointer())
+      .containsExactlyElementsOf(eager.getIssues().stream()
+        .map(i -> tuple(i.getMessage(), i.getNode().getTokenLine(), i.getNode().getPointer()))
+        .collect(Collectors.toList()));
+    assertThat(lazy.getRoot().at("/p1/b/2/y").stringValue()).isEqualTo("z");
+    assertThat(lazy.getRoot().at("/p1/b/2/y").getPointer()).isEqualTo("/p1/b/2/y");
+  }
+
+  @Test
+  public void reports_syntax_errors_with_lazy_subtrees() {
+    YamlParser eager = YamlParser.builder().withCharset(StandardCharsets.UTF_8).build();
+    YamlParser lazy = YamlParser.builder().withCharset(StandardCharsets.UTF_8).withLazySubtrees(true).build();
+    String text = "p1:\n  p2: {a: [b}\n";
+
+    String expected = null;
+    try {
+      eager.parse(text);
+      fail("Should throw");
+    } catch (RecognitionException e) {
+      expected = e.getMessage();
+    }
+    try {
+      lazy.parse(text);
+      fail("Should throw");
+    } catch (RecognitionException e) {
+      assertThat(e.getMessage()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void throws_on_issues_in_strict_mode() {
+    try {
+      parserWithMandatoryProperty(true).parseDocument("p2: v2");
+      fail("Should throw");
+    } catch (ValidationException e) {
+      assertThat(e.getCauses()).hasSize(1);
+    }
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void does_not_keep_issues_of_parsed_documents() {
+    YamlParser parser = parserWithMandatoryProperty(false);
+
+    parser.parse("p2: v2");
+    parser.parseDocument("p2: v2");
+
+    assertThat(parser.getIssues()).isEmpty();
+  }
+
+  @Test
+  public void can_be_shared_between_threads() throws Exception {
+    YamlParser parser = parserWithMandatoryProperty(false);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<ParseResult>> results = new ArrayList<>();
+      for (int i = 0; i < 200; ++i) {
+        String text = i % 2 == 0 ? "p1: v" + i : "p2: v" + i;
+        results.add(executor.submit(() -> parser.parseDocument(text)));
+      }
+      for (int i = 0; i < results.size(); ++i) {
+        ParseResult result = results.get(i).get();
+        assertThat(result.getIssues()).hasSize(i % 2);
+        assertThat(result.getRoot().properties()).extracting(JsonNode::stringValue).containsExactly("v" + i);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void parses_batch_in_submission_order() throws Exception {
+    List<Path> paths = new ArrayList<>();
+    for (int i = 0; i < 50; ++i) {
+      paths.add(write("file" + i + ".yaml", i == 10 ? "p1: [" : "p1: v" + i));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      YamlParser parser = parserWithMandatoryProperty(YamlParser.builder().withExecutor(executor).withMaxConcurrency(3));
+
+      List<BatchResult> results = parser.parseAll(paths);
+
+      assertThat(results).extracting(BatchResult::getPath).containsExactlyElementsOf(paths);
+      assertThat(results.get(10).isSuccess()).isFalse();
+      assertThat(results.get(10).getResult()).isNull();
+      assertThat(results.get(10).getFailure()).isInstanceOf(RecognitionException.class);
+      assertThat(results.get(11).isSuccess()).isTrue();
+      assertThat(results.get(11).getFailure()).isNull();
+      assertThat(results.get(11).getResult().getRoot().at("/p1").stringValue()).isEqualTo("v11");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void bounds_concurrency_of_batch_stream() throws Exception {
+    List<Path> paths = new ArrayList<>();
+    for (int i = 0; i < 50; ++i) {
+      paths.add(write("file" + i + ".yaml", "p1: v" + i));
+    }
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      YamlParser parser = parserWithMandatoryProperty(YamlParser.builder().withMaxConcurrency(2).withExecutor(task -> {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        pool.execute(task);
+      }));
+
+      List<String> values;
+      try (Stream<BatchResult> results = parser.parseAll(paths.stream())) {
+        values = results
+          .peek(r -> inFlight.decrementAndGet())
+          .map(r -> r.getResult().getRoot().at("/p1").stringValue())
+          .collect(Collectors.toList());
+      }
+
+      assertThat(values).hasSize(50).doesNotHaveDuplicates();
+      assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void parses_mapped_file() throws Exception {
+    Path path = write("mapped.yaml", "p1: v\u00e9\n# comment\n");
+
+    ParseResult result = parserWithMandatoryProperty(false).parseDocument(path);
+
+    assertThat(result.getIssues()).isEmpty();
+    assertThat(result.getRoot().at("/p1").stringValue()).isEqualTo("v\u00e9");
+    assertThat(result.getRoot().at("/p1").getToken().getURI()).isEqualTo(path.toUri());
+  }
+
+  @Test(expected = RecognitionException.class)
+  public void fails_on_missing_file() {
+    parserWithMandatoryProperty(false).parse(folder.getRoot().toPath().resolve("missing.yaml"));
+  }
+
+  @Test
+  public void parses_buffer_in_given_charset() {
+    byte[] bytes = "p0: x\np1: v\u00e9\n".getBytes(StandardCharsets.ISO_8859_1);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes);
+    buffer.position(6);
+    YamlParser parser = parserWithMandatoryProperty(false);
+
+    ParseResult result = parser.parseDocument(buffer, StandardCharsets.ISO_8859_1);
+
+    assertThat(result.getIssues()).isEmpty();
+    assertThat(result.getRoot().at("/p1").stringValue()).isEqualTo("v\u00e9");
+    assertThat(buffer.position()).isEqualTo(6);
+    assertThat(parser.parse(bytes, StandardCharsets.ISO_8859_1).at("/p0").stringValue()).isEqualTo("x");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejects_invalid_concurrency() {
+    YamlParser.builder().withMaxConcurrency(0);
+  }
+
+  @Test
+  public void creates_nodes_with_supplied_factory() {
+    JsonNodeFactory factory = (rule, type, name, token) -> rule == YamlGrammar.BLOCK_MAPPING ? new CustomObjectNode(type, name, token) : JsonNodeFactory.DEFAULT.create(rule, type, name, token);
+    for (YamlParser.Engine engine : YamlParser.Engine.values()) {
+      YamlParser parser = YamlParser.builder().withCharset(Charset.forName("UTF-8")).withEngine(engine).withNodeFactory(factory).build();
+
+      JsonNode node = parser.parse("p1:\n  p2: [v1]");
+
+      assertThat(node).isInstanceOf(CustomObjectNode.class);
+      assertThat(node.getType()).isEqualTo(YamlGrammar.BLOCK_MAPPING);
+      assertThat(node.at("/p1")).isInstanceOf(CustomObjectNode.class);
+      assertThat(node.at("/p1/p2")).isExactlyInstanceOf(ArrayNode.class);
+    }
+  }
+
+  private Path write(String name, String content) throws IOException {
+    Path path = folder.getRoot().toPath().resolve(name);
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    return path;
+  }
+
+  private static YamlParser parserWithMandatoryProperty(boolean strict) {
+    return parserWithMandatoryProperty(YamlParser.builder().withStrictValidation(strict));
+  }
+
+  private static YamlParser parserWithMandatoryProperty(YamlParser.Builder builder) {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    GrammarRuleKey root = new GrammarRuleKey() {
+    };
+    b.rule(root).is(b.object(b.mandatoryProperty("p1", b.string()), b.property("p2", b.string())));
+    b.setRootRule(root);
+    return builder.withCharset(Charset.forName("UTF-8")).withGrammar(b).build();
+  }
+
+  private static class CustomObjectNode extends ObjectNode {
+    CustomObjectNode(AstNodeType type, String name, @Nullable Token token) {
+      super(type, name, token);
+    }
+  }
+}
@@ -19,10 +19,16 @@
  */
 package org.sonar.sslr.yaml.grammar.impl;
 
+import java.util.List;
 import org.junit.Test;
 import org.sonar.sslr.yaml.grammar.ValidationIssue;
+import org.sonar.sslr.yaml.grammar.ValidationRule;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 public class FirstOfValidationTest extends ValidationTestBase {
 
@@ -44,4 +50,97 @@ public class FirstOfValidationTest extends ValidationTestBase {
     assertThat(context.captured()).extracting(ValidationIssue::getMessage)
         .containsExactly("Expected one of [BOOLEAN, INTEGER]");
   }
+
+  @Test
+  public void skips_alternatives_of_other_node_types() {
+    ValidationRule object = spy(objectOfType("a"));
+    ValidationRule array = spy(new ArrayValidation(new AlwaysTrueValidation()));
+    FirstOfValidation validation = new FirstOfValidation(object, array, new IntegerValidation());
+
+    boolean valid = validation.visit(parseText("42"), context);
+
+    assertThat(valid).isTrue();
+    verify(object, never()).visit(any(), any());
+    verify(array, never()).visit(any(), any());
+  }
+
+  @Test
+  public void dispatches_on_discriminant_values() {
+    ValidationRule typeA = spy(objectOfType("a"));
+    RuleDefinition typeB = new RuleDefinition(FAKE_RULE);
+    typeB.setValidation(objectOfType("b", "c"));
+    typeB = spy(typeB);
+    ValidationRule typeD = spy(objectOfType("d"));
+    FirstOfValidation validation = new FirstOfValidation(typeA, typeB, typeD);
+
+    boolean valid = validation.visit(parseText("type: d\nvalue: 1"), context);
+
+    assertThat(valid).isTrue();
+    assertThat(context.captured()).isEmpty();
+    verify(typeA, never()).visit(any(), any());
+    verify(typeB, never()).visit(any(), any());
+  }
+
+  @Test
+  public void keeps_alternatives_without_discriminant() {
+    ValidationRule typeA = spy(objectOfType("a"));
+    ObjectValidation anyObject = spy(new ObjectValidation());
+    anyObject.addProperty(new PropertyDescriptionImpl(".*", true, false, false, new AlwaysTrueValidation()));
+    FirstOfValidation validation = new FirstOfValidation(typeA, anyObject);
+
+    boolean valid = validation.visit(parseText("type: d"), context);
+
+    assertThat(valid).isTrue();
+    verify(typeA, never()).visit(any(), any());
+    verify(anyObject).visit(any(), any());
+  }
+
+  @Test
+  public void reports_every_alternative_when_none_matches() {
+    FirstOfValidation validation = new FirstOfValidation(objectOfType("a"), objectOfType("b"), new IntegerValidation());
+
+    boolean valid = validation.visit(parseText("type: b"), context);
+
+    assertThat(valid).isFalse();
+    List<ValidationIssue> issues = context.captured();
+    assertThat(issues).hasSize(1);
+    ValidationIssue issue = issues.get(0);
+    assertThat(issue.getMessage()).isEqualTo("Expected one of [OBJECT, OBJECT, INTEGER]");
+    assertThat(issue.getCauses()).extracting(ValidationIssue::getMessage)
+        .containsExactly("Not OBJECT", "Not OBJECT", "Not INTEGER");
+    assertThat(issue.getCauses().get(0).getCauses()).extracting(ValidationIssue::getMessage)
+        .contains("Missing required properties: [value]");
+    assertThat(issue.getCauses().get(1).getCauses()).extracting(ValidationIssue::getMessage)
+        .containsExactly("Missing required properties: [value]");
+  }
+
+  @Test
+  public void skipped_alternatives_do_not_decorate_nodes() {
+    RuleDefinition nested = new RuleDefinition(FAKE_RULE);
+    ObjectValidation anyObject = new ObjectValidation();
+    anyObject.addProperty(new PropertyDescriptionImpl(".*", true, false, false, new AlwaysTrueValidation()));
+    nested.setValidation(anyObject);
+    ObjectValidation typeA = objectOfType("a");
+    typeA.addProperty(new PropertyDescriptionImpl("nested", false, false, false, nested));
+    ObjectValidation typeB = objectOfType("b");
+    typeB.addProperty(new PropertyDescriptionImpl("nested", false, false, false, nested));
+    FirstOfValidation validation = new FirstOfValidation(typeA, typeB);
+
+    boolean valid = validation.visit(parseText("type: b\nnested: {p: v}\nvalue: 1"), context);
+
+    assertThat(valid).isTrue();
+    assertThat(context.captured()).isEmpty();
+  }
+
+  private static ObjectValidation objectOfType(String... types) {
+    ValidationRule[] values = new ValidationRule[types.length];
+    for (int i = 0; i < types.length; ++i) {
+      values[i] = new TokenValueValidation(types[i]);
+    }
+    ObjectValidation validation = new ObjectValidation();
+    validation.addProperty(new PropertyDescriptionImpl("type", false, true, true,
+        values.length == 1 ? values[0] : new FirstOfValidation(values)));
+    validation.addProperty(new PropertyDescriptionImpl("value", false, true, false, new IntegerValidation()));
+    return validation;
+  }
 }
@@ -0,0 +1,63 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar.impl;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeyMatcherTest {
+  private static final String[] PATTERNS = {".*", "^.*", ".*$", "^.*$", "^x-.*", "x-.*", "^x-.*$", "^/", "/.*", "^p1$",
+    "p1", "", "^", "$", "^$", "^[1-5][0-9X][0-9X]$", "(?i)^X-.*", "^x-\\$", "^x\\-.*", "a|b", "^x-.+"};
+  private static final String[] KEYS = {"", "x", "x-", "x-foo", "X-foo", "x-foo\nbar", "x-foo\r", "x- ", "/pets",
+    "/", "p1", "p1\n", "p12", "200", "4XX", "a", "b", "x-$", "some property"};
+
+  @Test
+  public void matches_like_regular_expressions() {
+    for (String regex : PATTERNS) {
+      KeyMatcher matcher = KeyMatcher.compile(regex);
+      for (String key : KEYS) {
+        assertThat(matcher.matches(key))
+          .as("\"%s\" matches \"%s\"", regex, key)
+          .isEqualTo(Pattern.matches(regex, key));
+      }
+    }
+  }
+
+  @Test
+  public void uses_fast_paths_for_common_shapes() {
+    assertThat(KeyMatcher.compile(".*").getClass().getSimpleName()).isEqualTo("PrefixMatcher");
+    assertThat(KeyMatcher.compile("^x-.*").getClass().getSimpleName()).isEqualTo("PrefixMatcher");
+    assertThat(KeyMatcher.compile("^p1$").getClass().getSimpleName()).isEqualTo("LiteralMatcher");
+    assertThat(KeyMatcher.compile("^[1-5]XX$").getClass().getSimpleName()).isEqualTo("RegexMatcher");
+  }
+
+  @Test(expected = PatternSyntaxException.class)
+  public void rejects_invalid_expressions() {
+    KeyMatcher.compile("^x-(.*");
+  }
+
+  @Test
+  public void prints_the_expression() {
+    assertThat(KeyMatcher.compile("^x-.*")).hasToString("^x-.*");
+  }
+}
@@ -24,6 +24,7 @@ import org.mockito.Mockito;
 import org.sonar.sslr.yaml.grammar.JsonNode;
 import org.sonar.sslr.yaml.grammar.ValidationRule;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
 public class PropertyDescriptionImplTest {
@@ -38,4 +39,20 @@ public class PropertyDescriptionImplTest {
 
     Mockito.verify(delegate).visit(node, context);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void matches_named_keys() {
+    PropertyDescriptionImpl description = new PropertyDescriptionImpl("x-.*", false, false, false, mock(ValidationRule.class));
+
+    assertThat(description.matches("x-.*")).isTrue();
+    assertThat(description.matches("x-foo")).isFalse();
+  }
+
+  @Test
+  public void matches_pattern_keys() {
+    PropertyDescriptionImpl description = new PropertyDescriptionImpl("^x-.*", true, false, false, mock(ValidationRule.class));
+
+    assertThat(description.matches("x-foo")).isTrue();
+    assertThat(description.matches("foo")).isFalse();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.grammar.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import org.junit.Test;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.snakeyaml.parser.Tokens;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.sonar.sslr.yaml.grammar.impl.ScalarNode.decodeNumber;
+
+public class ScalarNodeTest extends ValidationTestBase {
+
+  @Test
+  public void decodes_yaml_integers() {
+    assertThat(decodeNumber("0")).isEqualTo(0L);
+    assertThat(decodeNumber("-23")).isEqualTo(-23L);
+    assertThat(decodeNumber("+23")).isEqualTo(23L);
+    assertThat(decodeNumber("1_000")).isEqualTo(1000L);
+    assertThat(decodeNumber("0x1F")).isEqualTo(31L);
+    assertThat(decodeNumber("-0x_1f")).isEqualTo(-31L);
+    assertThat(decodeNumber("017")).isEqualTo(15L);
+    assertThat(decodeNumber("0o17")).isEqualTo(15L);
+    assertThat(decodeNumber("0b1010_0111")).isEqualTo(167L);
+    // not octal, read as a decimal like the lexer does
+    assertThat(decodeNumber("019")).isEqualTo(19L);
+  }
+
+  @Test
+  public void decodes_large_integers() {
+    assertThat(decodeNumber("9223372036854775807")).isEqualTo(Long.MAX_VALUE);
+    assertThat(decodeNumber("-9223372036854775808")).isEqualTo(Long.MIN_VALUE);
+    assertThat(decodeNumber("9223372036854775808")).isEqualTo(new BigInteger("9223372036854775808"));
+    assertThat(decodeNumber("0xFFFFFFFFFFFFFFFF")).isEqualTo(new BigInteger("FFFFFFFFFFFFFFFF", 16));
+  }
+
+  @Test
+  public void decodes_yaml_floats() {
+    assertThat(decodeNumber("1.5")).isEqualTo(1.5);
+    assertThat(decodeNumber("-.5")).isEqualTo(-0.5);
+    assertThat(decodeNumber("+1.")).isEqualTo(1.0);
+    assertThat(decodeNumber("1_000.25")).isEqualTo(1000.25);
+    assertThat(decodeNumber("6.8523015e+5")).isEqualTo(685230.15);
+    assertThat(decodeNumber("1e3")).isEqualTo(1000.0);
+    assertThat(decodeNumber(".inf")).isEqualTo(Double.POSITIVE_INFINITY);
+    assertThat(decodeNumber("-.Inf")).isEqualTo(Double.NEGATIVE_INFINITY);
+    assertThat(decodeNumber("+.INF")).isEqualTo(Double.POSITIVE_INFINITY);
+    assertThat(decodeNumber(".NaN")).isEqualTo(Double.NaN);
+  }
+
+  @Test
+  public void does_not_decode_other_scalars() {
+    assertThat(decodeNumber("")).isNull();
+    assertThat(decodeNumber("-")).isNull();
+    assertThat(decodeNumber(".")).isNull();
+    assertThat(decodeNumber("-.")).isNull();
+    assertThat(decodeNumber("+.")).isNull();
+    assertThat(decodeNumber("-.nan")).isNull();
+    assertThat(decodeNumber("0x")).isNull();
+    assertThat(decodeNumber("0xG")).isNull();
+    assertThat(decodeNumber("1.2.3")).isNull();
+    assertThat(decodeNumber("12abc")).isNull();
+    assertThat(decodeNumber("Infinity")).isNull();
+    assertThat(decodeNumber("1d")).isNull();
+  }
+
+  @Test
+  public void converts_integer_values() {
+    JsonNode node = parseText("0x7FFFFFFFF");
+
+    assertThat(node.longValue()).isEqualTo(0x7FFFFFFFFL);
+    assertThat(node.bigIntegerValue()).isEqualTo(BigInteger.valueOf(0x7FFFFFFFFL));
+    assertThat(node.decimalValue()).isEqualTo(BigDecimal.valueOf(0x7FFFFFFFFL));
+    assertThat(node.doubleValue()).isEqualTo(0x7FFFFFFFFL);
+    assertThatThrownBy(node::intValue).isInstanceOf(NumberFormatException.class);
+    assertThat(parseText("42").intValue()).isEqualTo(42);
+  }
+
+  @Test
+  public void converts_float_values() {
+    JsonNode node = parseText("12_345.678_9");
+
+    assertThat(node.doubleValue()).isEqualTo(12345.6789);
+    assertThat(node.floatValue()).isEqualTo(12345.6789);
+    assertThat(node.decimalValue()).isEqualTo(new BigDecimal("12345.6789"));
+    assertThat(parseText("0.1").decimalValue()).isEqualTo(new BigDecimal("0.1"));
+  }
+
+  @Test
+  public void converts_integral_floats_to_integers() {
+    assertThat(parseText("1.0").intValue()).isEqualTo(1);
+    assertThat(parseText("-2.").longValue()).isEqualTo(-2L);
+    assertThat(parseText("1.5e+3").bigIntegerValue()).isEqualTo(BigInteger.valueOf(1500));
+  }
+
+  @Test
+  public void rejects_fractional_floats_as_integers() {
+    JsonNode node = parseText("12_345.678_9");
+
+    assertThatThrownBy(node::intValue).isInstanceOf(NumberFormatException.class).hasMessageContaining("12_345.678_9");
+    assertThatThrownBy(node::longValue).isInstanceOf(NumberFormatException.class);
+    assertThatThrownBy(node::bigIntegerValue).isInstanceOf(NumberFormatException.class);
+    assertThatThrownBy(parseText("-.5")::intValue).isInstanceOf(NumberFormatException.class);
+  }
+
+  @Test
+  public void rejects_floats_without_digits() {
+    for (String value : new String[] {".", "-.", "+."}) {
+      JsonNode node = parseText(value);
+
+      assertThat(node.getToken().getType()).isEqualTo(Tokens.FLOAT);
+      assertThatThrownBy(node::doubleValue).isInstanceOf(NumberFormatException.class).hasMessageContaining(value);
+      assertThatThrownBy(node::intValue).isInstanceOf(NumberFormatException.class);
+    }
+  }
+
+  @Test
+  public void converts_special_float_values() {
+    JsonNode node = parseText("-.inf");
+
+    assertThat(node.doubleValue()).isEqualTo(Double.NEGATIVE_INFINITY);
+    assertThatThrownBy(node::decimalValue).isInstanceOf(NumberFormatException.class);
+    assertThatThrownBy(node::longValue).isInstanceOf(NumberFormatException.class);
+    assertThat(parseText(".nan").doubleValue()).isNaN();
+  }
+
+  @Test
+  public void rejects_non_numbers_on_each_access() {
+    JsonNode node = parseText("abc");
+
+    assertThatThrownBy(node::intValue).isInstanceOf(NumberFormatException.class).hasMessageContaining("abc");
+    assertThatThrownBy(node::doubleValue).isInstanceOf(NumberFormatException.class).hasMessageContaining("abc");
+    assertThat(node.stringValue()).isEqualTo("abc");
+  }
+
+  @Test
+  public void non_scalars_have_default_values() {
+    JsonNode node = parseText("[1, 2]");
+
+    assertThat(node.longValue()).isZero();
+    assertThat(node.doubleValue()).isZero();
+    assertThat(node.bigIntegerValue()).isEqualTo(BigInteger.ZERO);
+    assertThat(node.decimalValue()).isEqualTo(BigDecimal.ZERO);
+    assertThat(node.elements().get(1).longValue()).isEqualTo(2L);
+  }
+}
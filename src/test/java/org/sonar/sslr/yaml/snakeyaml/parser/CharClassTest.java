@@ -0,0 +1,49 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CharClassTest {
+  private static final String NULL_BL_T_LINEBR = "\t \0\r\n\u0085\u2028\u2029\uFFFF";
+
+  @Test
+  public void classifies_every_character() {
+    assertClass(CharClass.NULL_BL_T_LINEBR, NULL_BL_T_LINEBR);
+    assertClass(CharClass.NULL_BL_LINEBR, " \0\r\n\u0085\u2028\u2029\uFFFF");
+    assertClass(CharClass.NULL_OR_LINEBR, "\0\r\n\u0085\u2028\u2029\uFFFF");
+    assertClass(CharClass.ANY_LINEBR, "\n\u0085\u2028\u2029\uFFFF");
+    assertClass(CharClass.BLANK, " \t");
+    assertClass(CharClass.NULL_BL_T_LINEBR | CharClass.INDICATOR, NULL_BL_T_LINEBR + "-?:,[]{}#&*!|>'\"%@`");
+    assertClass(CharClass.NULL_BL_T_LINEBR | CharClass.QUOTE, NULL_BL_T_LINEBR + "'\"\\");
+    assertClass(CharClass.FLOW_INDICATOR, ",[]{}");
+    assertClass(CharClass.NUMBER_START, "+-.0123456789");
+  }
+
+  private static void assertClass(int mask, String members) {
+    for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c) {
+      assertThat(CharClass.is((char) c, mask))
+        .as("class of U+%04X", c)
+        .isEqualTo(members.indexOf(c) != -1);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommentChannelTest {
+  private static final String[] COMMENTS = {"", " plain", "#", " with: colon", " - dash", " {flow} [seq]", " été",
+    "   trailing  ", "\ttab"};
+
+  @Test
+  public void scans_comments_up_to_the_line_break() {
+    List<Token> tokens = Lexer.create(StandardCharsets.UTF_8).lex("# first\nkey: value # second\r\n#\n- item #third");
+
+    assertThat(comments(tokens)).isEqualTo("1:0[ first]2:11[ second]3:0[]4:7[third]");
+  }
+
+  @Test(timeout = 120000)
+  public void same_comments_when_lexing_concurrently() throws Exception {
+    Random random = new Random(42);
+    List<String> documents = new ArrayList<>();
+    for (int i = 0; i < 2000; ++i) {
+      documents.add(document(random));
+    }
+    List<String> expected = new ArrayList<>();
+    for (String document : documents) {
+      expected.add(comments(Lexer.create(StandardCharsets.UTF_8).lex(document)));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (String document : documents) {
+        results.add(executor.submit(() -> comments(Lexer.create(StandardCharsets.UTF_8).lex(document))));
+      }
+      for (int i = 0; i < documents.size(); ++i) {
+        assertThat(results.get(i).get()).as(documents.get(i)).isEqualTo(expected.get(i));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static String document(Random random) {
+    StringBuilder document = new StringBuilder();
+    int lines = 10 + random.nextInt(40);
+    for (int i = 0; i < lines; ++i) {
+      if (random.nextBoolean()) {
+        document.append("key").append(i).append(": value").append(i).append(' ');
+      }
+      document.append('#').append(COMMENTS[random.nextInt(COMMENTS.length)]).append(i).append('\n');
+    }
+    return document.toString();
+  }
+
+  private static String comments(List<Token> tokens) {
+    StringBuilder result = new StringBuilder();
+    for (Token token : tokens) {
+      for (Trivia trivia : token.getTrivia()) {
+        Token comment = trivia.getToken();
+        result.append(comment.getLine()).append(':').append(comment.getColumn()).append('[').append(comment.getValue())
+          .append(']');
+      }
+    }
+    return result.toString();
+  }
+}
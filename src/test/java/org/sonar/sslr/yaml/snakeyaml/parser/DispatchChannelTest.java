@@ -0,0 +1,141 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.channel.BlackHoleChannel;
+import com.sonar.sslr.impl.channel.UnknownCharacterChannel;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.sonar.sslr.channel.Channel;
+import org.sonar.sslr.channel.CodeReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DispatchChannelTest {
+  private static final Charset UTF_8 = StandardCharsets.UTF_8;
+  // Fragments of YAML documents, each of them well-formed enough for the lexer to terminate
+  static final String[] FRAGMENTS = {
+    "a", "b: ", "- ", "? ", ": ", "\n", "  ", "\t", "'x''y'", "\"q\\n\\t\\u00e9\\x41 z\"", "\"a\\\n  b\"",
+    "|\n  lit\n\n  more\n", ">-\n  fold\n  ed\n\n  x\n", "|+2 # comment\n    k\n\n", "[", "]", "{", "}", ", ", "#c\n",
+    "---\n", "...\n", "\u00e9", "\u2028", "\r\n", "\r", "\u0085", "12", "-3.5", "true", "null", "x-y", ":", "?x", ":x",
+    "-x", "- - ", "key: value\n", "  - item\n", "\\", "multi\n  line plain\n", "a #b\n", "&anchor ", "*alias", "!tag ",
+    "%", "@", "`", "\u0000", "? a\n: b\n", "{a: [b, {c: d}]}"
+  };
+
+  @Test
+  public void same_tokens_as_sequential_channels_on_test_documents() throws IOException, URISyntaxException {
+    Path root = Paths.get(DispatchChannelTest.class.getResource("/newlexer").toURI()).getParent();
+    List<Path> documents;
+    try (Stream<Path> files = Files.walk(root)) {
+      documents = files.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+
+    for (Path document : documents) {
+      assertSameTokens(new String(Files.readAllBytes(document), UTF_8));
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void same_tokens_as_sequential_channels_on_random_documents() {
+    Random random = new Random(42);
+    for (int i = 0; i < 20000; ++i) {
+      StringBuilder document = new StringBuilder();
+      int count = 1 + random.nextInt(12);
+      for (int j = 0; j < count; ++j) {
+        document.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+      }
+      // Block scalars ending on an indented line at the end of the stream are not terminated
+      assertSameTokens(document.append('\n').toString());
+    }
+  }
+
+  private static void assertSameTokens(String document) {
+    assertThat(lex(Lexer.create(UTF_8), document)).as(document).isEqualTo(lex(sequentialLexer(), document));
+  }
+
+  /**
+   * The lexer as it was configured before the channels were dispatched by character.
+   */
+  private static com.sonar.sslr.impl.Lexer sequentialLexer() {
+    LexerState state = new LexerState();
+    return com.sonar.sslr.impl.Lexer.builder()
+      .withCharset(UTF_8)
+      .withFailIfNoChannelToConsumeOneCharacter(true)
+      .withPreprocessor(new FinalIndentUnwinder(state))
+      .withChannel(new BlackHoleChannel(" ++"))
+      .withChannel(writingToLexer(new CommentChannel(false)))
+      .withChannel(writingToLexer(new UnwindIndentChannel(state)))
+      .withChannel(writingToLexer(new LineBreakChannel(state)))
+      .withChannel(writingToLexer(new BlockEntryChannel(state)))
+      .withChannel(writingToLexer(new FlowCollectionChannel(state)))
+      .withChannel(writingToLexer(new KeyChannel(state)))
+      .withChannel(writingToLexer(new ValueChannel(state)))
+      .withChannel(writingToLexer(new ScalarChannel(state, null)))
+      .withChannel(new UnknownCharacterChannel())
+      .build();
+  }
+
+  private static Channel<com.sonar.sslr.impl.Lexer> writingToLexer(Channel<LexerOutput> channel) {
+    return new Channel<com.sonar.sslr.impl.Lexer>() {
+      @Override
+      public boolean consume(CodeReader code, com.sonar.sslr.impl.Lexer lexer) {
+        return channel.consume(code, LexerOutput.of(lexer));
+      }
+    };
+  }
+
+  private static String lex(com.sonar.sslr.impl.Lexer lexer, String document) {
+    try {
+      return format(lexer.lex(document));
+    } catch (RuntimeException e) {
+      return format(e);
+    }
+  }
+
+  static String format(RuntimeException e) {
+    return e.getClass().getName() + ": " + (e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+  }
+
+  static String format(List<Token> tokens) {
+    StringBuilder result = new StringBuilder();
+    for (Token token : tokens) {
+      result.append(token.getType()).append(' ').append(token.getLine()).append(':').append(token.getColumn())
+        .append(" [").append(token.getValue()).append("] [").append(token.getOriginalValue()).append(']');
+      for (Trivia trivia : token.getTrivia()) {
+        Token comment = trivia.getToken();
+        result.append(" #").append(comment.getLine()).append(':').append(comment.getColumn()).append(comment.getValue());
+      }
+      result.append('\n');
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.impl.Lexer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.sslr.channel.CodeReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class LexerStateTest {
+  private final LexerState state = new LexerState();
+  private final CodeReader reader = new CodeReader("abcdefgh\nijk");
+  private final LexerOutput output = LexerOutput.of(Lexer.builder().build());
+
+  @Test
+  public void keeps_one_simple_key_per_flow_level() {
+    saveKeyAndMoveOn();       // level 0, column 0
+    state.increaseFlowLevel();
+    saveKeyAndMoveOn();       // level 1, column 1
+    state.decreaseFlowLevel();
+    state.decreaseFlowLevel();
+    saveKeyAndMoveOn();       // level -1, column 2
+    state.decreaseFlowLevel();
+    saveKeyAndMoveOn();       // level -2, column 3
+    state.increaseFlowLevel();
+    state.increaseFlowLevel();
+    state.increaseFlowLevel();
+    Map<Integer, SimpleKey> before = state.possibleSimpleKeys();
+    saveKeyAndMoveOn();       // level 1 again, column 4
+
+    assertThat(columns(before)).containsExactly(entry(-2, 3), entry(-1, 2), entry(0, 0), entry(1, 1));
+    assertThat(columns(state.possibleSimpleKeys())).containsExactly(entry(-2, 3), entry(-1, 2), entry(0, 0), entry(1, 4));
+
+    assertThat(state.takePossibleSimpleKey().getColumn()).isEqualTo(4);
+    state.decreaseFlowLevel();
+    state.decreaseFlowLevel();
+    assertThat(state.takePossibleSimpleKey().getColumn()).isEqualTo(2);
+    assertThat(state.takePossibleSimpleKey()).isNull();
+    assertThat(columns(state.possibleSimpleKeys())).containsExactly(entry(-2, 3), entry(0, 0));
+  }
+
+  @Test
+  public void discards_the_simple_keys_of_previous_lines_at_all_levels() {
+    saveKeyAndMoveOn();
+    state.decreaseFlowLevel();
+    saveKeyAndMoveOn();
+    state.increaseFlowLevel();
+    state.increaseFlowLevel();
+    saveKeyAndMoveOn();
+    while (reader.peek() != '\n') {
+      reader.pop();
+    }
+    reader.pop();
+
+    state.stalePossibleSimpleKeys(reader);
+
+    assertThat(state.possibleSimpleKeys()).isEmpty();
+    saveKeyAndMoveOn();
+    assertThat(columns(state.possibleSimpleKeys())).containsExactly(entry(1, 0));
+  }
+
+  private void saveKeyAndMoveOn() {
+    state.savePossibleSimpleKey(reader, output);
+    reader.pop();
+  }
+
+  private static Map<Integer, Integer> columns(Map<Integer, SimpleKey> keys) {
+    Map<Integer, Integer> columns = new LinkedHashMap<>();
+    keys.forEach((level, key) -> columns.put(level, key.getColumn()));
+    return columns;
+  }
+}
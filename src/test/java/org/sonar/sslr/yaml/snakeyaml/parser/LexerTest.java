@@ -260,6 +260,25 @@ public class LexerTest {
         tuple(EOF, 2, 7, "EOF", "EOF"));
   }
 
+  @Test
+  public void simple_keys_of_interleaved_flow_levels() {
+    List<Token> tokens = lexer.lex("{a: [b, {c: d}], e: f}");
+
+    assertThat(tokens).filteredOn(t -> t.getType() == KEY).extracting(Token::getLine, Token::getColumn)
+      .containsExactly(tuple(1, 1), tuple(1, 9), tuple(1, 17));
+  }
+
+  @Test
+  public void simple_keys_of_negative_flow_levels() {
+    // the unbalanced closing brackets make the flow levels negative
+    assertThat(lexer.lex("}\n]\n[a: b, {c: d}, e]")).filteredOn(t -> t.getType() == KEY)
+      .extracting(Token::getLine, Token::getColumn)
+      .containsExactly(tuple(3, 1), tuple(3, 8));
+    assertThat(lexer.lex("]]\n{a: b, [c]: d}")).filteredOn(t -> t.getType() == KEY)
+      .extracting(Token::getLine, Token::getColumn, Token::getValue)
+      .containsExactly(tuple(2, 1, "?"), tuple(2, 8, "?"));
+  }
+
   @Test
   public void complex_key_as_list() {
     List<Token> tokens = lexer
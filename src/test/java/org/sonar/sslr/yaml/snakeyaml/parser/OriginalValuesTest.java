@@ -0,0 +1,100 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.api.Token;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.sonar.sslr.yaml.snakeyaml.parser.Tokens.KEY;
+import static org.sonar.sslr.yaml.snakeyaml.parser.Tokens.STRING;
+
+public class OriginalValuesTest {
+  private static final Charset UTF_8 = StandardCharsets.UTF_8;
+
+  @Test
+  public void scalar_tokens_share_their_value() {
+    OriginalValues originalValues = new OriginalValues();
+
+    List<Token> tokens = Lexer.create(UTF_8, originalValues).lex("key: \"quoted\"\n");
+
+    assertThat(tokens).extracting(Token::getType, Token::getValue, Token::getOriginalValue, originalValues::get)
+      .contains(
+        tuple(KEY, "?", "", ""),
+        tuple(STRING, "key", "key", "key"),
+        tuple(STRING, "quoted", "quoted", "\"quoted\""));
+  }
+
+  @Test
+  public void original_values_of_block_scalars() {
+    assertSameOriginalValues("description: | # a comment\n  first line\n\n  second line\n\nnext: >+2\n    folded\n\n");
+  }
+
+  @Test
+  public void original_values_with_line_breaks() {
+    assertSameOriginalValues("plain: multi\r\n  line\r  plain\u0085  value\nquoted: \"escaped\\\r\n break \\\u2028 and\u2029 separators\"\n");
+    assertSameOriginalValues("literal: |-\r\n  windows\r\n  lines\r\n\r\nsingle: 'it''s\r\n  here'\r\n");
+  }
+
+  @Test
+  public void original_values_with_trivia() {
+    assertSameOriginalValues("# header\nkey: value # comment\n# between\nother: [a, 'b', \"c\"] # flow\n");
+  }
+
+  @Test
+  public void original_values_of_test_documents() throws IOException, URISyntaxException {
+    Path root = Paths.get(OriginalValuesTest.class.getResource("/newlexer").toURI());
+    List<Path> documents;
+    try (Stream<Path> files = Files.walk(root)) {
+      documents = files.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+
+    for (Path document : documents) {
+      assertSameOriginalValues(new String(Files.readAllBytes(document), UTF_8));
+    }
+  }
+
+  private static void assertSameOriginalValues(String document) {
+    // Either with a copy of the text captured by the lexer or with the text itself
+    assertSameOriginalValues(document, new OriginalValues());
+    assertSameOriginalValues(document, new OriginalValues(document));
+  }
+
+  private static void assertSameOriginalValues(String document, OriginalValues originalValues) {
+    List<Token> expected = Lexer.create(UTF_8).lex(document);
+    List<Token> tokens = Lexer.create(UTF_8, originalValues).lex(document);
+
+    assertThat(tokens).extracting(Token::getType, Token::getLine, Token::getColumn, Token::getValue, originalValues::get)
+      .containsExactlyElementsOf(expected.stream()
+        .map(t -> tuple(t.getType(), t.getLine(), t.getColumn(), t.getValue(), t.getOriginalValue()))
+        .collect(Collectors.toList()));
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.sslr.yaml.snakeyaml.parser;
 
 import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.LexerException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.List;
@@ -218,6 +219,18 @@ public class ScalarChannelTest {
     assertEquals("'Some \n\t  \nquoted with breaks'", token.getOriginalValue());
   }
 
+  @Test
+  public void block_ending_the_stream() {
+    List<Token> tokens = lexer.lex("key: |\n");
+
+    assertThat(tokens).extracting("type", "value").contains(tuple(STRING, ""));
+  }
+
+  @Test(expected = LexerException.class)
+  public void unterminated_quotes() {
+    lexer.lex("key: 'unterminated");
+  }
+
   @Test
   public void decodes_booleans() {
     assertEquals(Tokens.TRUE, decodePlainScalar("on"));
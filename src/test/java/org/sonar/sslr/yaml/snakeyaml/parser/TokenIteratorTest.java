@@ -0,0 +1,126 @@
+/*
+ * Sonar SSLR :: YAML Parser
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.yaml.snakeyaml.parser;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.LexerException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class TokenIteratorTest {
+  private static final URI URI = java.net.URI.create("tests://unittest");
+
+  @Test
+  public void same_tokens_as_lexer_on_test_documents() throws IOException, URISyntaxException {
+    Path root = Paths.get(TokenIteratorTest.class.getResource("/newlexer").toURI()).getParent();
+    List<Path> documents;
+    try (Stream<Path> files = Files.walk(root)) {
+      documents = files.filter(Files::isRegularFile)
+        .filter(p -> p.toString().endsWith(".yaml") || p.toString().endsWith(".json"))
+        .collect(Collectors.toList());
+    }
+
+    for (Path document : documents) {
+      assertSameTokens(new String(Files.readAllBytes(document), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void same_tokens_as_lexer_on_random_documents() {
+    Random random = new Random(42);
+    for (int i = 0; i < 20000; ++i) {
+      StringBuilder document = new StringBuilder();
+      int count = 1 + random.nextInt(12);
+      for (int j = 0; j < count; ++j) {
+        document.append(DispatchChannelTest.FRAGMENTS[random.nextInt(DispatchChannelTest.FRAGMENTS.length)]);
+      }
+      assertSameTokens(document.append('\n').toString());
+    }
+  }
+
+  @Test
+  public void lexes_as_tokens_are_consumed() {
+    TokenIterator tokens = Lexer.tokens(new StringReader("key: value\nother: \"unterminated"), URI);
+
+    assertThat(tokens.next().getType()).isEqualTo(Tokens.BLOCK_MAPPING_START);
+    assertThat(tokens.next().getType()).isEqualTo(Tokens.KEY);
+    assertThat(tokens.next().getValue()).isEqualTo("key");
+    try {
+      tokens.stream().count();
+      fail("Should throw");
+    } catch (LexerException e) {
+      assertThat(e.getCause()).isInstanceOf(YamlLexerException.class);
+    }
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void ends_with_eof() {
+    TokenIterator tokens = Lexer.tokens("", URI);
+
+    Token eof = tokens.next();
+    assertThat(eof.getType()).isEqualTo(GenericTokenType.EOF);
+    assertThat(eof.getURI()).isEqualTo(URI);
+    assertThat(tokens.hasNext()).isFalse();
+    tokens.next();
+  }
+
+  private static void assertSameTokens(String document) {
+    String expected;
+    try {
+      expected = DispatchChannelTest.format(Lexer.create(StandardCharsets.UTF_8).lex(document));
+    } catch (RuntimeException e) {
+      expected = failure(e);
+    }
+    String actual;
+    try {
+      actual = DispatchChannelTest.format(Lexer.tokens(document, URI).stream().collect(Collectors.toList()));
+    } catch (RuntimeException e) {
+      actual = failure(e);
+    }
+    assertThat(actual).as(document).isEqualTo(expected);
+  }
+
+  /**
+   * The lexer wraps the lexing errors once more than the iterator does: only compare their original cause.
+   */
+  private static String failure(Throwable e) {
+    Throwable cause = e;
+    while (cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause.getClass().getName() + ": " + cause.getMessage();
+  }
+}